@@ -37,6 +37,12 @@ final public class Constants {
 	 */
 	final public static String ENTITY_DATA_TYPE = "entity";
 
+	/**
+	 * Tapestry data type of the entities with too many objects to be listed in a
+	 * <code>Select</code>. They are edited with the <code>EntityAutocomplete</code> component.
+	 */
+	final public static String LARGE_ENTITY_DATA_TYPE = "largeEntity";
+
 	/**
 	 * Event generated by the remove link in the {@link ActionLinks} component.
 	 */
@@ -47,6 +53,12 @@ final public class Constants {
 	 */
 	final public static String RESET_SORTING_EVENT = "resetGridSorting";
 
+	/**
+	 * Event that exports all the objects listed in a <code>BaseListPage</code>. Its context is
+	 * the export format extension (<code>csv</code> or <code>json</code>).
+	 */
+	final public static String EXPORT_EVENT = "export";
+
 	/**
 	 * Form id (t:id). All event handler methods is this class expect a form with this id.
 	 */
@@ -38,6 +38,7 @@ import br.com.arsmachina.module.service.PrimaryKeyTypeService;
 import br.com.arsmachina.tapestrycrud.Constants;
 import br.com.arsmachina.tapestrycrud.EditPage;
 import br.com.arsmachina.tapestrycrud.encoder.ActivationContextEncoder;
+import br.com.arsmachina.tapestrycrud.services.EntityChangeListener;
 import br.com.arsmachina.tapestrycrud.services.TapestryCrudModuleService;
 
 /**
@@ -92,8 +93,12 @@ public abstract class BaseEditPage<T, K extends Serializable> extends BasePage<T
 	 */
 	public BaseEditPage() {
 
-		final Class<T> entityClass = getEntityClass();
-		activationContextEncoder = getActivationContextEncoder(entityClass);
+		activationContextEncoder = getDescriptor().getActivationContextEncoder();
+
+		// no encoder was found, so let the source report it.
+		if (activationContextEncoder == null) {
+			activationContextEncoder = getActivationContextEncoder(getEntityClass());
+		}
 
 	}
 
@@ -215,6 +220,7 @@ public abstract class BaseEditPage<T, K extends Serializable> extends BasePage<T
 	 * <ol>
 	 * <li>Invokes {@link #prepareObjectForSaveOrUpdate()}</li>.
 	 * <li>Invokes {@link #getController()}<code>.saveOrUpdate(entity);</code>.
+	 * <li>Notifies the {@link EntityChangeListener}.
 	 * <li>Invokes and returns {@link #returnFromSaveOrUpdate()}</li>
 	 * </ol>
 	 */
@@ -223,8 +229,10 @@ public abstract class BaseEditPage<T, K extends Serializable> extends BasePage<T
 
 		prepareObjectForSaveOrUpdate();
 		T entity = getObject();
+		final boolean inserted = isObjectPersistent() == false;
 		entity = saveOrUpdate(entity);
 		setObject(entity);
+		getEntityChangeListener().objectSaved(getEntityClass(), entity, inserted);
 
 		return returnFromSaveOrUpdate();
 
@@ -15,22 +15,39 @@
 package br.com.arsmachina.tapestrycrud.base;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.tapestry5.ComponentResources;
 import org.apache.tapestry5.PrimaryKeyEncoder;
 import org.apache.tapestry5.annotations.Cached;
 import org.apache.tapestry5.annotations.InjectComponent;
 import org.apache.tapestry5.annotations.OnEvent;
+import org.apache.tapestry5.annotations.Persist;
 import org.apache.tapestry5.beaneditor.BeanModel;
 import org.apache.tapestry5.corelib.components.Grid;
 import org.apache.tapestry5.corelib.components.Zone;
 import org.apache.tapestry5.ioc.annotations.Inject;
+import org.apache.tapestry5.ioc.annotations.Symbol;
 import org.apache.tapestry5.services.BeanModelSource;
 import org.apache.tapestry5.services.Request;
 
+import br.com.arsmachina.dao.SortCriterion;
+import br.com.arsmachina.module.service.PrimaryKeyTypeService;
 import br.com.arsmachina.tapestrycrud.Constants;
 import br.com.arsmachina.tapestrycrud.grid.ControllerGridDataSource;
+import br.com.arsmachina.tapestrycrud.grid.ExportFormat;
+import br.com.arsmachina.tapestrycrud.grid.ExportStreamResponse;
+import br.com.arsmachina.tapestrycrud.grid.FilterCriteria;
+import br.com.arsmachina.tapestrycrud.grid.FilterableSearch;
+import br.com.arsmachina.tapestrycrud.grid.KeysetBoundary;
+import br.com.arsmachina.tapestrycrud.grid.PagedSearchExportStream;
+import br.com.arsmachina.tapestrycrud.ioc.TapestryCrudIoCModule;
+import br.com.arsmachina.tapestrycrud.services.GridPrefetcher;
+import br.com.arsmachina.tapestrycrud.services.PageCache;
 import br.com.arsmachina.tapestrycrud.services.PrimaryKeyEncoderSource;
+import br.com.arsmachina.tapestrycrud.services.RowAuthorizer;
+import br.com.arsmachina.tapestrycrud.services.RowCountCache;
 
 /**
  * Base class for pages that list entity objects. The <code>object</code> property is meant to be
@@ -62,11 +79,36 @@ public abstract class BaseListPage<T, K extends Serializable> extends BasePage<T
 	
 	@Inject
 	private BeanModelSource beanModelSource;
+
+	@Inject
+	private RowCountCache rowCountCache;
+
+	@Inject
+	private GridPrefetcher gridPrefetcher;
+
+	@Inject
+	private PageCache pageCache;
+
+	@Inject
+	private PrimaryKeyTypeService primaryKeyTypeService;
+
+	@Inject
+	private RowAuthorizer rowAuthorizer;
+
+	@Inject
+	@Symbol(TapestryCrudIoCModule.EXPORT_CHUNK_SIZE_SYMBOL)
+	private int exportChunkSize;
 	
 	@InjectComponent
 	private Grid grid;
 	
 	private T object;
+
+	@Persist
+	private KeysetBoundary keysetBoundary;
+
+	@Persist
+	private FilterCriteria filterCriteria;
 	
 	/**
 	 * Checks whether the current user can search this entity class, but only if the current
@@ -82,14 +124,147 @@ public abstract class BaseListPage<T, K extends Serializable> extends BasePage<T
 
 	/**
 	 * Method used as the <code>source</code> parameter of the {@link Grid} component. This
-	 * implementation returns <code>new {@link ControllerGridDataSource}(getController())</code>.
+	 * implementation returns a {@link ControllerGridDataSource} that takes the number of rows
+	 * from the {@link RowCountCache} and remembers the boundaries of the served page in
+	 * {@link #getKeysetBoundary()}. If {@link #isReadAheadEnabled()} returns <code>true</code>,
+	 * the next page is read ahead using the {@link GridPrefetcher}. If the entity class'
+	 * <code>TapestryCrudModule</code> enables it, pages and counts are shared through the
+	 * {@link PageCache}. If {@link #isProjectionEnabled()} returns <code>true</code>, only the
+	 * properties returned by {@link #getProjectedPropertyNames()} are loaded. The listed objects
+	 * are restricted by {@link #getFilterCriteria()} when the controller implements
+	 * {@link FilterableSearch}. The permissions of the rows of each page are checked at once by
+	 * the {@link RowAuthorizer}.
 	 * 
 	 * @return an {@link Object}.
 	 */
 	@SuppressWarnings("unchecked")
 	@Cached
 	public Object getObjects() {
-		return new ControllerGridDataSource(getEntityClass(), getController());
+
+		final ControllerGridDataSource dataSource =
+			new ControllerGridDataSource(getEntityClass(), getController(), rowCountCache,
+					getFilterCriteria());
+		dataSource.setKeysetBoundary(getKeysetBoundary());
+		dataSource.setRowAuthorizer(rowAuthorizer);
+
+		if (isReadAheadEnabled()) {
+			dataSource.setPrefetcher(gridPrefetcher);
+		}
+
+		if (pageCache.isEnabled(getEntityClass())) {
+			dataSource.setPageCache(pageCache);
+		}
+
+		if (isProjectionEnabled()) {
+			dataSource.setProjection(getProjectedPropertyNames());
+		}
+
+		return dataSource;
+
+	}
+
+	/**
+	 * Defines whether the grid reads the next page ahead in background. As the prefetched
+	 * objects are loaded in another thread, enable it only when the displayed properties don't
+	 * need lazy loading. This implementation returns <code>false</code>.
+	 * 
+	 * @return a <code>boolean</code>.
+	 */
+	protected boolean isReadAheadEnabled() {
+		return false;
+	}
+
+	/**
+	 * Defines whether the grid loads only the properties returned by
+	 * {@link #getProjectedPropertyNames()}. It only has effect when the controller implements
+	 * <code>ProjectionSearch</code>. Enable it only when the page template and the
+	 * <code>Authorizer</code> don't read other properties of the listed objects. This
+	 * implementation returns <code>false</code>.
+	 * 
+	 * @return a <code>boolean</code>.
+	 */
+	protected boolean isProjectionEnabled() {
+		return false;
+	}
+
+	/**
+	 * Returns the names of the properties loaded when {@link #isProjectionEnabled()} returns
+	 * <code>true</code>. This implementation returns the primary key property, used by the
+	 * action links, and the properties of {@link #getBeanModel()}.
+	 * 
+	 * @return a {@link String} array.
+	 */
+	protected String[] getProjectedPropertyNames() {
+
+		final String primaryKeyPropertyName =
+			primaryKeyTypeService.getPrimaryKeyPropertyName(getEntityClass());
+		final List<String> propertyNames = new ArrayList<String>();
+		propertyNames.add(primaryKeyPropertyName);
+
+		for (String propertyName : getBeanModel().getPropertyNames()) {
+
+			if (propertyName.equals(Constants.ACTION_PROPERTY_NAME) == false
+					&& propertyName.equals(primaryKeyPropertyName) == false) {
+
+				propertyNames.add(propertyName);
+
+			}
+
+		}
+
+		return propertyNames.toArray(new String[propertyNames.size()]);
+
+	}
+
+	/**
+	 * Returns the {@link FilterCriteria} used to restrict the listed objects. It is persisted in
+	 * the session and is meant to be used as the <code>filter</code> parameter of the
+	 * <code>GridFilter</code> component.
+	 * 
+	 * @return a {@link FilterCriteria}.
+	 */
+	public FilterCriteria getFilterCriteria() {
+
+		if (filterCriteria == null) {
+			filterCriteria = new FilterCriteria();
+		}
+
+		return filterCriteria;
+
+	}
+
+	/**
+	 * Tells if the listed objects can be filtered, which happens when the controller
+	 * implements {@link FilterableSearch}.
+	 * 
+	 * @return a <code>boolean</code>.
+	 */
+	public boolean isFilterable() {
+		return getController() instanceof FilterableSearch;
+	}
+
+	/**
+	 * Returns the {@link KeysetBoundary} of the last page served by the grid. It is persisted in
+	 * the session so the next page can be fetched by seeking instead of by offset.
+	 * 
+	 * @return a {@link KeysetBoundary}.
+	 */
+	protected KeysetBoundary getKeysetBoundary() {
+
+		if (keysetBoundary == null) {
+			keysetBoundary = new KeysetBoundary();
+		}
+
+		return keysetBoundary;
+
+	}
+
+	/**
+	 * Discards the cached number of objects of this page's entity class, so it is recounted in
+	 * the next rendering. Invoke it when objects are added or removed outside the CRUD pages.
+	 */
+	protected void refreshRowCount() {
+		rowCountCache.refresh(getEntityClass());
 	}
 
 	/**
@@ -187,6 +362,54 @@ public abstract class BaseListPage<T, K extends Serializable> extends BasePage<T
 		
 	}
 
+	/**
+	 * Exports all the objects of this page's entity class, ordered by primary key, with the
+	 * properties of {@link #getBeanModel()}. Like the listed objects, they are restricted by
+	 * {@link #getFilterCriteria()} when the controller implements {@link FilterableSearch}. The
+	 * objects are fetched in chunks while the response is written and each one is passed to
+	 * {@link #evictExported(Object)} after being written.
+	 * 
+	 * @param extension a {@link String} with the export format extension (<code>csv</code> or
+	 * <code>json</code>).
+	 * @return an {@link ExportStreamResponse}.
+	 */
+	@OnEvent(Constants.EXPORT_EVENT)
+	Object export(String extension) {
+
+		getAuthorizer().checkSearch(getEntityClass());
+
+		final ExportFormat format = ExportFormat.get(extension);
+		final String primaryKeyPropertyName =
+			primaryKeyTypeService.getPrimaryKeyPropertyName(getEntityClass());
+
+		final PagedSearchExportStream<T> stream = new PagedSearchExportStream<T>(
+				ControllerGridDataSource.createPagedSearch(getController(), getFilterCriteria()),
+				getBeanModel(), format, exportChunkSize, true,
+				new SortCriterion(primaryKeyPropertyName, true)) {
+
+			@Override
+			protected void exported(T object) {
+				evictExported(object);
+			}
+
+		};
+
+		return new ExportStreamResponse(stream, format,
+				getEntityClass().getSimpleName().toLowerCase());
+
+	}
+
+	/**
+	 * Removes an exported object from the persistence context, so the memory used by an export
+	 * doesn't grow with the number of objects. This implementation invokes
+	 * <code>getController().evict(object)</code>.
+	 * 
+	 * @param object a <code>T</code>.
+	 */
+	protected void evictExported(T object) {
+		getController().evict(object);
+	}
+
 	/**
 	 * Returns the configured {@link PrimaryKeyEncoder} for a given entity class.
 	 * 
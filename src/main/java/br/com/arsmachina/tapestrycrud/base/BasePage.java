@@ -15,8 +15,6 @@
 package br.com.arsmachina.tapestrycrud.base;
 
 import java.io.Serializable;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -41,14 +39,14 @@ import org.apache.tapestry5.services.ValueEncoderSource;
 
 import br.com.arsmachina.authorization.Authorizer;
 import br.com.arsmachina.controller.Controller;
-import br.com.arsmachina.module.service.ControllerSource;
-import br.com.arsmachina.module.service.PrimaryKeyTypeService;
 import br.com.arsmachina.tapestrycrud.Constants;
 import br.com.arsmachina.tapestrycrud.CrudPage;
 import br.com.arsmachina.tapestrycrud.encoder.ActivationContextEncoder;
 import br.com.arsmachina.tapestrycrud.encoder.LabelEncoder;
 import br.com.arsmachina.tapestrycrud.selectmodel.SelectModelFactory;
 import br.com.arsmachina.tapestrycrud.services.ActivationContextEncoderSource;
+import br.com.arsmachina.tapestrycrud.services.EntityChangeListener;
+import br.com.arsmachina.tapestrycrud.services.EntityPageDescriptorSource;
 import br.com.arsmachina.tapestrycrud.services.LabelEncoderSource;
 import br.com.arsmachina.tapestrycrud.services.PrimaryKeyEncoderSource;
 import br.com.arsmachina.tapestrycrud.services.TapestryCrudModuleService;
@@ -68,7 +66,7 @@ public abstract class BasePage<T, K extends Serializable> implements CrudPage<T,
 	private static final int NESTED_ID = 6;
 
 	// copied from ComponentEventLinkEncoder
-	private final Pattern PATH_PATTERN = Pattern.compile("^/" + // The leading slash is recognized
+	private static final Pattern PATH_PATTERN = Pattern.compile("^/" + // The leading slash is recognized
 																// but skipped
 			"(((\\w+)/)*(\\w+))" + // A series of folder names leading up to the page name, forming
 									// the logical page name
@@ -79,7 +77,7 @@ public abstract class BasePage<T, K extends Serializable> implements CrudPage<T,
 			Pattern.COMMENTS);
 
 	@Retain
-	private PrimaryKeyEncoder<K, T> primaryKeyEncoder;
+	private EntityPageDescriptor<T, K> descriptor;
 
 	@Inject
 	private ActivationContextEncoderSource activationContextEncoderSource;
@@ -87,9 +85,6 @@ public abstract class BasePage<T, K extends Serializable> implements CrudPage<T,
 	@Inject
 	private Authorizer authorizer;
 
-	@Inject
-	private ControllerSource controllerSource;
-
 	@Inject
 	private LabelEncoderSource labelEncoderSource;
 
@@ -103,19 +98,16 @@ public abstract class BasePage<T, K extends Serializable> implements CrudPage<T,
 	private PrimaryKeyEncoderSource primaryKeyEncoderSource;
 
 	@Inject
-	private PrimaryKeyTypeService primaryKeyTypeService;
+	private EntityPageDescriptorSource entityPageDescriptorSource;
 
 	@Inject
 	private TapestryCrudModuleService tapestryCrudModuleService;
 
 	@Inject
-	private Request request;
+	private EntityChangeListener entityChangeListener;
 
-	@Retain
-	private Class<T> entityClass;
-
-	@Retain
-	private Controller<T, K> controller;
+	@Inject
+	private Request request;
 
 	@Persist(PersistenceConstants.FLASH)
 	private String message;
@@ -129,9 +121,6 @@ public abstract class BasePage<T, K extends Serializable> implements CrudPage<T,
 	@Inject
 	private ComponentSource componentSource;
 
-	@Retain
-	private Class<K> primaryKeyClass;
-
 	@Property
 	private boolean removedObjectNotFound;
 
@@ -139,25 +128,25 @@ public abstract class BasePage<T, K extends Serializable> implements CrudPage<T,
 	private boolean removeObjectNotAllowed;
 
 	/**
-	 * Single constructor of this class.
+	 * Single constructor of this class. The entity class, its controller and its encoders are
+	 * resolved only once per entity class by the {@link EntityPageDescriptorSource} and shared
+	 * by all the page instances.
 	 */
-	@SuppressWarnings("unchecked")
 	public BasePage() {
 
-		final Type genericSuperclass = getClass().getGenericSuperclass();
-		final ParameterizedType parameterizedType = ((ParameterizedType) genericSuperclass);
-		entityClass = (Class<T>) parameterizedType.getActualTypeArguments()[0];
-		primaryKeyClass = primaryKeyTypeService.getPrimaryKeyType(entityClass);
+		descriptor = entityPageDescriptorSource.getForPage(getClass());
 
-		controller = controllerSource.get(entityClass);
+		assert descriptor != null;
 
-		primaryKeyEncoder = (PrimaryKeyEncoder<K, T>) primaryKeyEncoderSource.get(entityClass);
-
-		assert entityClass != null;
-		assert primaryKeyClass != null;
-		assert controller != null;
-		assert primaryKeyEncoder != null;
+	}
 
+	/**
+	 * Returns the {@link EntityPageDescriptor} of this page's entity class.
+	 * 
+	 * @return an {@link EntityPageDescriptor}.
+	 */
+	protected final EntityPageDescriptor<T, K> getDescriptor() {
+		return descriptor;
 	}
 
 	/**
@@ -227,15 +216,15 @@ public abstract class BasePage<T, K extends Serializable> implements CrudPage<T,
 	 * @return a {@link Controller<T,K>}.
 	 */
 	public final Controller<T, K> getController() {
-		return controller;
+		return descriptor.getController();
 	}
 
 	public final Class<T> getEntityClass() {
-		return entityClass;
+		return descriptor.getEntityClass();
 	}
 
 	public final Class<K> getPrimaryKeyClass() {
-		return primaryKeyClass;
+		return descriptor.getPrimaryKeyClass();
 	}
 
 	/**
@@ -313,7 +302,7 @@ public abstract class BasePage<T, K extends Serializable> implements CrudPage<T,
 	@OnEvent(Constants.NEW_OBJECT_EVENT)
 	final Object handleNewObject() {
 
-		final Class<?> editPageClass = tapestryCrudModuleService.getEditPageClass(entityClass);
+		final Class<?> editPageClass = tapestryCrudModuleService.getEditPageClass(getEntityClass());
 		final Component page = componentSource.getPage(editPageClass);
 		BaseEditPage baseEditPage = (BaseEditPage) page;
 		baseEditPage.setObject(null);
@@ -335,7 +324,7 @@ public abstract class BasePage<T, K extends Serializable> implements CrudPage<T,
 		getAuthorizer().checkRemove(getEntityClass());
 
 		K id = context.get(getPrimaryKeyClass(), 0);
-		final T toBeRemoved = primaryKeyEncoder.toValue(id);
+		final T toBeRemoved = descriptor.getPrimaryKeyEncoder().toValue(id);
 
 		if (toBeRemoved != null) {
 
@@ -360,6 +349,7 @@ public abstract class BasePage<T, K extends Serializable> implements CrudPage<T,
 
 		if (object != null) {
 			remove(object);
+			entityChangeListener.objectRemoved(getEntityClass(), object);
 		}
 		else {
 			removedObjectNotFound = true;
@@ -440,6 +430,15 @@ public abstract class BasePage<T, K extends Serializable> implements CrudPage<T,
 		return tapestryCrudModuleService;
 	}
 
+	/**
+	 * Returns the value of the <code>entityChangeListener</code> property.
+	 * 
+	 * @return an {@link EntityChangeListener}.
+	 */
+	final protected EntityChangeListener getEntityChangeListener() {
+		return entityChangeListener;
+	}
+
 	/**
 	 * Returns the value of the <code>removedObjectNotFound</code> property.
 	 * 
@@ -0,0 +1,129 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.base;
+
+import java.io.Serializable;
+
+import org.apache.tapestry5.PrimaryKeyEncoder;
+
+import br.com.arsmachina.controller.Controller;
+import br.com.arsmachina.tapestrycrud.encoder.ActivationContextEncoder;
+import br.com.arsmachina.tapestrycrud.services.EntityPageDescriptorSource;
+
+/**
+ * Immutable class that holds everything the CRUD pages of an entity class need to resolve about
+ * it. It is created once per entity class by the {@link EntityPageDescriptorSource} and shared by
+ * all the instances of all its pages.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ * @param <T> the entity class.
+ * @param <K> the type of the class' primary key property.
+ */
+final public class EntityPageDescriptor<T, K extends Serializable> {
+
+	final private Class<T> entityClass;
+
+	final private Class<K> primaryKeyClass;
+
+	final private Controller<T, K> controller;
+
+	final private PrimaryKeyEncoder<K, T> primaryKeyEncoder;
+
+	final private ActivationContextEncoder<T> activationContextEncoder;
+
+	/**
+	 * Single constructor of this class.
+	 * 
+	 * @param entityClass a {@link Class}. It cannot be null.
+	 * @param primaryKeyClass a {@link Class}. It cannot be null.
+	 * @param controller a {@link Controller}. It cannot be null.
+	 * @param primaryKeyEncoder a {@link PrimaryKeyEncoder}. It cannot be null.
+	 * @param activationContextEncoder an {@link ActivationContextEncoder} or <code>null</code>
+	 * if the entity class has none.
+	 */
+	public EntityPageDescriptor(Class<T> entityClass, Class<K> primaryKeyClass,
+			Controller<T, K> controller, PrimaryKeyEncoder<K, T> primaryKeyEncoder,
+			ActivationContextEncoder<T> activationContextEncoder) {
+
+		if (entityClass == null) {
+			throw new IllegalArgumentException("Parameter entityClass cannot be null");
+		}
+
+		if (primaryKeyClass == null) {
+			throw new IllegalArgumentException("Parameter primaryKeyClass cannot be null");
+		}
+
+		if (controller == null) {
+			throw new IllegalArgumentException("Parameter controller cannot be null");
+		}
+
+		if (primaryKeyEncoder == null) {
+			throw new IllegalArgumentException("Parameter primaryKeyEncoder cannot be null");
+		}
+
+		this.entityClass = entityClass;
+		this.primaryKeyClass = primaryKeyClass;
+		this.controller = controller;
+		this.primaryKeyEncoder = primaryKeyEncoder;
+		this.activationContextEncoder = activationContextEncoder;
+
+	}
+
+	/**
+	 * Returns the value of the <code>entityClass</code> property.
+	 * 
+	 * @return a {@link Class}.
+	 */
+	public Class<T> getEntityClass() {
+		return entityClass;
+	}
+
+	/**
+	 * Returns the value of the <code>primaryKeyClass</code> property.
+	 * 
+	 * @return a {@link Class}.
+	 */
+	public Class<K> getPrimaryKeyClass() {
+		return primaryKeyClass;
+	}
+
+	/**
+	 * Returns the value of the <code>controller</code> property.
+	 * 
+	 * @return a {@link Controller}.
+	 */
+	public Controller<T, K> getController() {
+		return controller;
+	}
+
+	/**
+	 * Returns the value of the <code>primaryKeyEncoder</code> property.
+	 * 
+	 * @return a {@link PrimaryKeyEncoder}.
+	 */
+	public PrimaryKeyEncoder<K, T> getPrimaryKeyEncoder() {
+		return primaryKeyEncoder;
+	}
+
+	/**
+	 * Returns the value of the <code>activationContextEncoder</code> property.
+	 * 
+	 * @return an {@link ActivationContextEncoder} or <code>null</code>.
+	 */
+	public ActivationContextEncoder<T> getActivationContextEncoder() {
+		return activationContextEncoder;
+	}
+
+}
@@ -15,15 +15,26 @@
 package br.com.arsmachina.tapestrycrud.beanmodel;
 
 import org.apache.tapestry5.beaneditor.BeanModel;
+import org.apache.tapestry5.ioc.annotations.Inject;
+import org.apache.tapestry5.ioc.annotations.Symbol;
 import org.apache.tapestry5.ioc.services.PropertyAdapter;
 import org.apache.tapestry5.services.DataTypeAnalyzer;
 
+import br.com.arsmachina.controller.Controller;
+import br.com.arsmachina.module.service.ControllerSource;
 import br.com.arsmachina.tapestrycrud.Constants;
+import br.com.arsmachina.tapestrycrud.grid.ControllerGridDataSource;
+import br.com.arsmachina.tapestrycrud.ioc.TapestryCrudIoCModule;
+import br.com.arsmachina.tapestrycrud.selectmodel.LabelSearch;
+import br.com.arsmachina.tapestrycrud.services.RowCountCache;
 import br.com.arsmachina.tapestrycrud.services.TapestryCrudModuleService;
 
 /**
  * {@link DataTypeAnalyzer} implementation that classifies any entity classes as the
- * <code>entity</code> Tapestry data type.
+ * <code>entity</code> Tapestry data type. Entity classes whose controllers implement
+ * {@link LabelSearch} and that have more objects than the
+ * {@link TapestryCrudIoCModule#ENTITY_AUTOCOMPLETE_THRESHOLD_SYMBOL} symbol value are
+ * classified as the <code>largeEntity</code> data type instead.
  * 
  * @author Thiago H. de Paula Figueiredo
  * @see BeanModel
@@ -32,18 +43,43 @@ public class EntityDataTypeAnalyzer implements DataTypeAnalyzer {
 
 	private TapestryCrudModuleService tapestryCrudModuleService;
 
+	private ControllerSource controllerSource;
+
+	private RowCountCache rowCountCache;
+
+	private int autocompleteThreshold;
+
 	/**
 	 * Single constructor of this class.
 	 * 
 	 * @param tapestryCrudModuleService a {@link TapestryCrudModuleService}. It cannot be null.
+	 * @param controllerSource a {@link ControllerSource}. It cannot be null.
+	 * @param rowCountCache a {@link RowCountCache}. It cannot be null.
+	 * @param autocompleteThreshold an <code>int</code> with the number of objects above which an
+	 * entity class is classified as <code>largeEntity</code>. If it is zero or negative, no
+	 * entity class is.
 	 */
-	public EntityDataTypeAnalyzer(TapestryCrudModuleService tapestryCrudModuleService) {
+	public EntityDataTypeAnalyzer(TapestryCrudModuleService tapestryCrudModuleService,
+			ControllerSource controllerSource, RowCountCache rowCountCache,
+			@Inject @Symbol(TapestryCrudIoCModule.ENTITY_AUTOCOMPLETE_THRESHOLD_SYMBOL)
+			int autocompleteThreshold) {
 
 		if (tapestryCrudModuleService == null) {
 			throw new IllegalArgumentException("Parameter tapestryCrudModuleService cannot be null");
 		}
 
+		if (controllerSource == null) {
+			throw new IllegalArgumentException("Parameter controllerSource cannot be null");
+		}
+
+		if (rowCountCache == null) {
+			throw new IllegalArgumentException("Parameter rowCountCache cannot be null");
+		}
+
 		this.tapestryCrudModuleService = tapestryCrudModuleService;
+		this.controllerSource = controllerSource;
+		this.rowCountCache = rowCountCache;
+		this.autocompleteThreshold = autocompleteThreshold;
 
 	}
 
@@ -54,11 +90,41 @@ public class EntityDataTypeAnalyzer implements DataTypeAnalyzer {
 		Class<?> clasz = adapter.getType();
 
 		if (tapestryCrudModuleService.contains(clasz)) {
-			type = Constants.ENTITY_DATA_TYPE;
+			type = isLarge(clasz) ? Constants.LARGE_ENTITY_DATA_TYPE : Constants.ENTITY_DATA_TYPE;
 		}
 
 		return type;
 
 	}
 
+	/**
+	 * Tells if a given entity class has too many objects to be listed in a <code>Select</code>.
+	 * The count is taken from the {@link RowCountCache}, so it is not done for every bean model.
+	 * 
+	 * @param clasz a {@link Class}.
+	 * @return a <code>boolean</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean isLarge(Class<?> clasz) {
+
+		boolean large = false;
+
+		if (autocompleteThreshold > 0) {
+
+			final Controller controller = controllerSource.get(clasz);
+
+			if (controller instanceof LabelSearch) {
+
+				final int count = rowCountCache.getCount(clasz,
+						ControllerGridDataSource.createPagedSearch(controller));
+				large = count > autocompleteThreshold;
+
+			}
+
+		}
+
+		return large;
+
+	}
+
 }
@@ -23,8 +23,8 @@ import org.apache.tapestry5.annotations.Property;
 import org.apache.tapestry5.corelib.components.Grid;
 import org.apache.tapestry5.ioc.annotations.Inject;
 
-import br.com.arsmachina.authorization.Authorizer;
 import br.com.arsmachina.tapestrycrud.Constants;
+import br.com.arsmachina.tapestrycrud.services.RowAuthorizer;
 import br.com.arsmachina.tapestrycrud.services.TapestryCrudModuleService;
 
 /**
@@ -125,7 +125,7 @@ public class ActionLinks {
 	private TapestryCrudModuleService tapestryCrudModuleService;
 	
 	@Inject
-	private Authorizer authorizer;
+	private RowAuthorizer rowAuthorizer;
 	
 	/**
 	 * Defines the value of the <code>edit</code> parameter if not bound.
@@ -136,7 +136,7 @@ public class ActionLinks {
 			return edit;
 		}
 		
-		return authorizer.canUpdate(object.getClass()) && authorizer.canUpdate(object);
+		return rowAuthorizer.canUpdate(object);
 		
 	}
 
@@ -149,7 +149,7 @@ public class ActionLinks {
 			return view;
 		}
 
-		return authorizer.canRead(object.getClass()) && authorizer.canRead(object);
+		return rowAuthorizer.canRead(object);
 		
 	}
 
@@ -162,7 +162,7 @@ public class ActionLinks {
 			return remove;
 		}
 		
-		return authorizer.canRemove(object.getClass()) && authorizer.canRemove(object);
+		return rowAuthorizer.canRemove(object);
 		
 	}
 
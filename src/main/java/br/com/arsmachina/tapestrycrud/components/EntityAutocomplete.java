@@ -0,0 +1,328 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.components;
+
+import java.util.List;
+
+import org.apache.tapestry5.Binding;
+import org.apache.tapestry5.BindingConstants;
+import org.apache.tapestry5.ComponentResources;
+import org.apache.tapestry5.FieldValidationSupport;
+import org.apache.tapestry5.FieldValidator;
+import org.apache.tapestry5.MarkupWriter;
+import org.apache.tapestry5.RenderSupport;
+import org.apache.tapestry5.ValidationException;
+import org.apache.tapestry5.ValidationTracker;
+import org.apache.tapestry5.ValueEncoder;
+import org.apache.tapestry5.annotations.Environmental;
+import org.apache.tapestry5.annotations.IncludeJavaScriptLibrary;
+import org.apache.tapestry5.annotations.IncludeStylesheet;
+import org.apache.tapestry5.annotations.OnEvent;
+import org.apache.tapestry5.annotations.Parameter;
+import org.apache.tapestry5.corelib.base.AbstractField;
+import org.apache.tapestry5.corelib.components.Select;
+import org.apache.tapestry5.ioc.annotations.Inject;
+import org.apache.tapestry5.ioc.internal.util.InternalUtils;
+import org.apache.tapestry5.json.JSONArray;
+import org.apache.tapestry5.json.JSONObject;
+import org.apache.tapestry5.services.ComponentDefaultProvider;
+import org.apache.tapestry5.services.Request;
+import org.apache.tapestry5.services.ValueEncoderSource;
+
+import br.com.arsmachina.authorization.Authorizer;
+import br.com.arsmachina.controller.Controller;
+import br.com.arsmachina.module.service.ControllerSource;
+import br.com.arsmachina.tapestrycrud.Constants;
+import br.com.arsmachina.tapestrycrud.encoder.LabelEncoder;
+import br.com.arsmachina.tapestrycrud.selectmodel.LabelSearch;
+import br.com.arsmachina.tapestrycrud.services.LabelEncoderSource;
+import br.com.arsmachina.tapestrycrud.services.TapestryCrudModuleService;
+
+/**
+ * A component that selects an entity object by typing the beginning of its label. The matching
+ * objects are fetched through AJAX, a few at a time, by the entity controller, which must
+ * implement {@link LabelSearch}. It is an alternative to {@link Select} for entity classes with
+ * too many objects to be listed at once.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+@IncludeJavaScriptLibrary("classpath:/br/com/arsmachina/tapestrycrud/javascript/entityautocomplete.js")
+@IncludeStylesheet(Constants.TAPESTRY_CRUD_CSS_ASSET)
+public class EntityAutocomplete extends AbstractField {
+
+	/**
+	 * Name of the event triggered to search the objects matching the typed text. Its context is
+	 * the entity class name.
+	 */
+	public static final String SEARCH_EVENT = "search";
+
+	/**
+	 * Name of the request parameter that holds the typed text in the search event.
+	 */
+	public static final String QUERY_PARAMETER = "q";
+
+	/**
+	 * The value to read or update.
+	 */
+	@Parameter(required = true, principal = true, autoconnect = true)
+	private Object value;
+
+	/**
+	 * The entity class. If not provided, the type of the <code>value</code> binding is used.
+	 */
+	@SuppressWarnings("unchecked")
+	@Parameter
+	private Class type;
+
+	/**
+	 * Allows a specific implementation of {@link ValueEncoder} to be supplied. It is only used
+	 * to render and submit the value: the search results are encoded by the encoder of the
+	 * entity class provided by {@link ValueEncoderSource}.
+	 */
+	@SuppressWarnings("unchecked")
+	@Parameter
+	private ValueEncoder encoder;
+
+	/**
+	 * Performs input validation on the value supplied by the user in the form submission.
+	 */
+	@Parameter(defaultPrefix = BindingConstants.VALIDATE)
+	private FieldValidator<Object> validate;
+
+	/**
+	 * Minimum number of typed characters needed to start a search.
+	 */
+	@Parameter(value = "1")
+	private int minimumLength;
+
+	/**
+	 * Maximum number of objects shown for each search.
+	 */
+	@Parameter(value = "20")
+	private int maximumResults;
+
+	@Inject
+	private Request request;
+
+	@Inject
+	private ComponentResources resources;
+
+	@Environmental
+	private ValidationTracker tracker;
+
+	@Inject
+	private ComponentDefaultProvider defaultProvider;
+
+	@Inject
+	private FieldValidationSupport fieldValidationSupport;
+
+	@Inject
+	private RenderSupport renderSupport;
+
+	@Inject
+	private LabelEncoderSource labelEncoderSource;
+
+	@Inject
+	private ValueEncoderSource valueEncoderSource;
+
+	@Inject
+	private ControllerSource controllerSource;
+
+	@Inject
+	private TapestryCrudModuleService tapestryCrudModuleService;
+
+	@Inject
+	private Authorizer authorizer;
+
+	@Override
+	protected void processSubmission(String elementName) {
+
+		final String submittedValue = request.getParameter(elementName);
+
+		tracker.recordInput(this, submittedValue);
+
+		final Object selectedValue =
+			InternalUtils.isBlank(submittedValue) ? null : encoder.toValue(submittedValue);
+
+		try {
+			fieldValidationSupport.validate(selectedValue, resources, validate);
+			value = selectedValue;
+		}
+		catch (ValidationException ex) {
+			tracker.recordError(this, ex.getMessage());
+		}
+
+	}
+
+	@SuppressWarnings("unchecked")
+	void beginRender(MarkupWriter writer) {
+
+		final String clientId = getClientId();
+		final String labelId = clientId + "-label";
+		final String choicesId = clientId + "-choices";
+		final Class entityClass = getType();
+
+		String label = "";
+
+		if (value != null) {
+
+			final LabelEncoder labelEncoder = labelEncoderSource.get(entityClass);
+			label = labelEncoder.toLabel(value);
+
+		}
+
+		writer.element("div", "class", "t-crud-autocomplete");
+
+		writer.element("input", "type", "hidden", "name", getControlName(), "id", clientId,
+				"value", value != null ? encoder.toClient(value) : "");
+		writer.end(); // input
+
+		writer.element("input", "type", "text", "id", labelId, "value", label,
+				"autocomplete", "off");
+
+		if (isDisabled()) {
+			writer.attributes("disabled", "disabled");
+		}
+
+		writer.end(); // input
+
+		writer.element("div", "id", choicesId, "class", "t-crud-autocomplete-choices",
+				"style", "display: none;");
+		writer.end(); // div
+
+		writer.end(); // div
+
+		if (isDisabled() == false) {
+
+			final String url =
+				resources.createEventLink(SEARCH_EVENT, entityClass.getName()).toURI();
+
+			renderSupport.addScript("EntityAutocomplete.initialize('%s', '%s', '%s', %d);",
+					clientId, url, QUERY_PARAMETER, minimumLength);
+
+		}
+
+	}
+
+	/**
+	 * Returns the objects whose labels start with the typed text as a {@link JSONObject} with an
+	 * array (<code>results</code>) of objects with the client value (<code>value</code>) and the
+	 * label (<code>label</code>). It doesn't use any parameter bound to the page being rendered,
+	 * as it is invoked in a separate request. As the event can be triggered by anyone knowing its
+	 * URL, the current user must be allowed to search the entity class, as checked by
+	 * {@link Authorizer#checkSearch(Class)}.
+	 * 
+	 * @param className a {@link String} with the entity class name.
+	 * @return a {@link JSONObject}.
+	 */
+	@OnEvent(SEARCH_EVENT)
+	@SuppressWarnings("unchecked")
+	JSONObject search(String className) {
+
+		final Class entityClass = getEntityClass(className);
+		authorizer.checkSearch(entityClass);
+
+		final String prefix = request.getParameter(QUERY_PARAMETER);
+		final JSONArray array = new JSONArray();
+
+		if (prefix != null && prefix.trim().length() >= minimumLength) {
+
+			final LabelSearch labelSearch = getLabelSearch(entityClass);
+			final LabelEncoder labelEncoder = labelEncoderSource.get(entityClass);
+			final ValueEncoder valueEncoder = valueEncoderSource.getValueEncoder(entityClass);
+			final List<Object> objects = labelSearch.searchByLabel(prefix.trim(), maximumResults);
+
+			for (Object object : objects) {
+
+				final JSONObject json = new JSONObject();
+				json.put("value", valueEncoder.toClient(object));
+				json.put("label", labelEncoder.toLabel(object));
+				array.put(json);
+
+			}
+
+		}
+
+		final JSONObject result = new JSONObject();
+		result.put("results", array);
+
+		return result;
+
+	}
+
+	/**
+	 * Returns the entity class with a given name. Only classes that belong to a Tapestry CRUD
+	 * module are accepted, as the name comes from the request.
+	 * 
+	 * @param className a {@link String}.
+	 * @return a {@link Class}.
+	 */
+	private Class<?> getEntityClass(String className) {
+
+		Class<?> entityClass;
+
+		try {
+			entityClass = Thread.currentThread().getContextClassLoader().loadClass(className);
+		}
+		catch (ClassNotFoundException e) {
+			throw new IllegalArgumentException("Class not found: " + className, e);
+		}
+
+		if (tapestryCrudModuleService.contains(entityClass) == false) {
+			throw new IllegalArgumentException("Not an entity class: " + className);
+		}
+
+		return entityClass;
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private LabelSearch getLabelSearch(Class<?> entityClass) {
+
+		final Controller controller = controllerSource.get(entityClass);
+
+		if (controller instanceof LabelSearch == false) {
+			throw new IllegalArgumentException("The controller of " + entityClass.getName()
+					+ " doesn't implement " + LabelSearch.class.getName());
+		}
+
+		return (LabelSearch) controller;
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private Class getType() {
+		return type != null ? type : resources.getBoundType("value");
+	}
+
+	@SuppressWarnings("unchecked")
+	ValueEncoder defaultEncoder() {
+		return valueEncoderSource.getValueEncoder(getType());
+	}
+
+	/**
+	 * Computes a default value for the "validate" parameter using
+	 * {@link ComponentDefaultProvider}.
+	 */
+	Binding defaultValidate() {
+		return defaultProvider.defaultValidatorBinding("value", resources);
+	}
+
+	@Override
+	public boolean isRequired() {
+		return validate.isRequired();
+	}
+
+}
@@ -0,0 +1,167 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.components;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.tapestry5.annotations.IncludeStylesheet;
+import org.apache.tapestry5.annotations.InjectComponent;
+import org.apache.tapestry5.annotations.OnEvent;
+import org.apache.tapestry5.annotations.Parameter;
+import org.apache.tapestry5.annotations.Property;
+import org.apache.tapestry5.beaneditor.BeanModel;
+import org.apache.tapestry5.beaneditor.PropertyModel;
+import org.apache.tapestry5.corelib.components.Form;
+import org.apache.tapestry5.corelib.components.Grid;
+import org.apache.tapestry5.ioc.Messages;
+import org.apache.tapestry5.ioc.annotations.Inject;
+import org.apache.tapestry5.ioc.services.TypeCoercer;
+
+import br.com.arsmachina.tapestrycrud.Constants;
+import br.com.arsmachina.tapestrycrud.grid.FilterCriteria;
+import br.com.arsmachina.tapestrycrud.grid.FilterableSearch;
+
+/**
+ * Component that renders a form with one filter input per property of a {@link BeanModel}, which
+ * fills a {@link FilterCriteria}. Only properties of string, numeric or boolean types can be
+ * filtered. It is meant to be used above a {@link Grid} whose data source pushes the filter to a
+ * {@link FilterableSearch}, as the one provided by <code>BaseListPage</code>.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+@IncludeStylesheet(Constants.TAPESTRY_CRUD_CSS_ASSET)
+public class GridFilter {
+
+	/**
+	 * Key of the message shown when a filter value cannot be converted to the property type.
+	 */
+	public static final String MESSAGE_INVALID_VALUE = "message.error.filter.invalid";
+
+	/**
+	 * The {@link BeanModel} whose properties will be filtered.
+	 */
+	@Parameter(required = true, allowNull = false)
+	private BeanModel<?> model;
+
+	/**
+	 * The {@link FilterCriteria} that receives the filter values.
+	 */
+	@Parameter(required = true, allowNull = false)
+	private FilterCriteria filter;
+
+	@Property
+	private String propertyName;
+
+	@InjectComponent
+	private Form filterForm;
+
+	@Inject
+	private TypeCoercer typeCoercer;
+
+	@Inject
+	private Messages messages;
+
+	/**
+	 * Returns the names of the properties that can be filtered.
+	 * 
+	 * @return a {@link List} of {@link String}s.
+	 */
+	public List<String> getPropertyNames() {
+
+		final List<String> propertyNames = new ArrayList<String>();
+
+		for (String name : model.getPropertyNames()) {
+
+			final PropertyModel propertyModel = model.get(name);
+
+			if (propertyModel.getConduit() != null
+					&& isFilterable(propertyModel.getPropertyType())) {
+
+				propertyNames.add(name);
+
+			}
+
+		}
+
+		return propertyNames;
+
+	}
+
+	/**
+	 * Returns the label of the current property.
+	 * 
+	 * @return a {@link String}.
+	 */
+	public String getPropertyLabel() {
+		return model.get(propertyName).getLabel();
+	}
+
+	/**
+	 * Returns the filter value of the current property as a {@link String}.
+	 * 
+	 * @return a {@link String} or <code>null</code>.
+	 */
+	public String getValue() {
+
+		final Object value = filter.get(propertyName);
+		return value != null ? value.toString() : null;
+
+	}
+
+	/**
+	 * Changes the filter value of the current property. Blank values remove the filter.
+	 * 
+	 * @param value a {@link String}.
+	 */
+	public void setValue(String value) {
+
+		if (value == null || value.trim().length() == 0) {
+			filter.remove(propertyName);
+		}
+		else {
+
+			final Class<?> type = model.get(propertyName).getPropertyType();
+
+			try {
+				filter.put(propertyName, typeCoercer.coerce(value.trim(), type));
+			}
+			catch (RuntimeException e) {
+				filter.remove(propertyName);
+				filterForm.recordError(messages.format(MESSAGE_INVALID_VALUE, getPropertyLabel()));
+			}
+
+		}
+
+	}
+
+	/**
+	 * Removes all the filter values.
+	 */
+	@OnEvent("clearFilter")
+	void clearFilter() {
+		filter.clear();
+	}
+
+	private static boolean isFilterable(Class<?> type) {
+
+		return String.class.equals(type) || Boolean.class.equals(type)
+				|| boolean.class.equals(type) || Number.class.isAssignableFrom(type)
+				|| (type.isPrimitive() && char.class.equals(type) == false
+						&& void.class.equals(type) == false);
+
+	}
+
+}
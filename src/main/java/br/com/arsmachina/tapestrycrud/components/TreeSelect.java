@@ -2,10 +2,11 @@
 package br.com.arsmachina.tapestrycrud.components;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.tapestry5.Asset;
 import org.apache.tapestry5.Binding;
@@ -23,6 +24,7 @@ import org.apache.tapestry5.annotations.Environmental;
 import org.apache.tapestry5.annotations.IncludeJavaScriptLibrary;
 import org.apache.tapestry5.annotations.IncludeStylesheet;
 import org.apache.tapestry5.annotations.Mixin;
+import org.apache.tapestry5.annotations.OnEvent;
 import org.apache.tapestry5.annotations.Parameter;
 import org.apache.tapestry5.corelib.base.AbstractField;
 import org.apache.tapestry5.corelib.components.Select;
@@ -30,16 +32,21 @@ import org.apache.tapestry5.corelib.mixins.RenderDisabled;
 import org.apache.tapestry5.internal.TapestryInternalUtils;
 import org.apache.tapestry5.ioc.annotations.Inject;
 import org.apache.tapestry5.ioc.internal.util.InternalUtils;
+import org.apache.tapestry5.json.JSONArray;
+import org.apache.tapestry5.json.JSONObject;
 import org.apache.tapestry5.services.ComponentDefaultProvider;
 import org.apache.tapestry5.services.FieldValidatorDefaultSource;
 import org.apache.tapestry5.services.Request;
 import org.apache.tapestry5.services.ValueEncoderSource;
 import org.apache.tapestry5.util.EnumSelectModel;
 
+import br.com.arsmachina.authorization.Authorizer;
 import br.com.arsmachina.tapestrycrud.Constants;
 import br.com.arsmachina.tapestrycrud.encoder.LabelEncoder;
 import br.com.arsmachina.tapestrycrud.services.LabelEncoderSource;
 import br.com.arsmachina.tapestrycrud.services.TreeServiceSource;
+import br.com.arsmachina.tapestrycrud.tree.BulkSingleTypeTreeService;
+import br.com.arsmachina.tapestrycrud.tree.CompactTree;
 import br.com.arsmachina.tapestrycrud.tree.SimpleTreeSelectNode;
 import br.com.arsmachina.tapestrycrud.tree.SingleTypeTreeService;
 import br.com.arsmachina.tapestrycrud.tree.TreeSelectNode;
@@ -53,6 +60,11 @@ import br.com.arsmachina.tapestrycrud.tree.TreeSelectNode;
 @IncludeStylesheet(Constants.TAPESTRY_CRUD_CSS_ASSET)
 public class TreeSelect extends AbstractField {
 
+	/**
+	 * Name of the event triggered to fetch the children of a collapsed node.
+	 */
+	public static final String CHILDREN_EVENT = "children";
+
 	private static final ArrayList<TreeSelectNode> EMPTY_LIST =
 		new ArrayList<TreeSelectNode>(0);
 
@@ -82,6 +94,14 @@ public class TreeSelect extends AbstractField {
 	@Parameter(value = "false")
 	private boolean showTreeAtFirst;
 
+	/**
+	 * Number of tree levels rendered up front. The children of deeper nodes are fetched through
+	 * AJAX when they are expanded, except for the ancestors of the current value, which are
+	 * always expanded. Zero, the default, renders the whole tree.
+	 */
+	@Parameter(value = "0")
+	private int expandedLevels;
+
 //	/**
 //	 * Defines whether descendent options will be disabled or not. This is useful when
 //	 * dealing with parent/child self relationships.
@@ -90,9 +110,10 @@ public class TreeSelect extends AbstractField {
 //	private boolean disableDescendentOptions;
 
 	/**
-	 * The list of root nodes to be used as options.
+	 * The list of root nodes to be used as options. If not provided, they are built from the
+	 * trees of the value type cached by {@link TreeServiceSource}.
 	 */
-	@Parameter(required = true, allowNull = false)
+	@Parameter(allowNull = false)
 	private List<TreeSelectNode> rootNodes;
 
 	@Inject
@@ -151,10 +172,15 @@ public class TreeSelect extends AbstractField {
 	@Inject
 	private LabelEncoderSource labelEncoderSource;
 
+	@Inject
+	private Authorizer authorizer;
+
 	private String selectedClientValue;
 
 	private String clientId;
 
+	private Set<String> expandedClientValues;
+
 	@SuppressWarnings("unused")
 	private boolean isSelected(String clientValue) {
 		return TapestryInternalUtils.isEqual(clientValue, selectedClientValue);
@@ -196,28 +222,30 @@ public class TreeSelect extends AbstractField {
 		final String textId = clientId + "-text";
 		final String showId = clientId + "-show";
 
-		if (showTreeAtFirst == false) {
+		// computed once instead of once per node.
+		selectedClientValue = encoder.toClient(value);
 
-			writer.element("p", "id", textId);
+		final Class boundType = resources.getBoundType("value");
+		final boolean pathNeeded = showTreeAtFirst == false || expandedLevels > 0;
+		final List<Object> stack = value != null && pathNeeded ? getPath(boundType) : null;
 
-			if (value == null) {
-				writer.write(noParentOptionLabel);
-			} else {
+		expandedClientValues = new HashSet<String>();
 
-				final Class boundType = resources.getBoundType("value");
+		if (stack != null && expandedLevels > 0) {
 
-				final SingleTypeTreeService<Object> treeService =
-					treeServiceSource.get(boundType);
+			for (int i = 0; i < stack.size() - 1; i++) {
+				expandedClientValues.add(encoder.toClient(stack.get(i)));
+			}
 
-				List<Object> stack = new ArrayList<Object>();
-				Object current = value;
+		}
 
-				while (current != null) {
-					stack.add(current);
-					current = treeService.getParent(current);
-				}
+		if (showTreeAtFirst == false) {
+
+			writer.element("p", "id", textId);
 
-				Collections.reverse(stack);
+			if (value == null) {
+				writer.write(noParentOptionLabel);
+			} else {
 
 				final LabelEncoder labelEncoder =
 					labelEncoderSource.get(boundType);
@@ -259,12 +287,39 @@ public class TreeSelect extends AbstractField {
 
 		renderNoParentOption(writer);
 
-		for (TreeSelectNode node : rootNodes) {
-			render(node, writer, 1);
+		if (rootNodes != null) {
+
+			for (TreeSelectNode node : rootNodes) {
+				render(node, writer, 1);
+			}
+
+		}
+		else {
+
+			// the cached trees are rendered straight from their arrays.
+			final CompactTree tree = treeServiceSource.getSnapshot(boundType).getTree();
+			final LabelEncoder labelEncoder = labelEncoderSource.get(boundType);
+			final int rootCount = tree.getRootCount();
+
+			for (int i = 0; i < rootCount; i++) {
+				render(tree, tree.getRoot(i), labelEncoder, writer);
+			}
+
 		}
 
 		writer.end(); // outer ul tag
 
+		// a single handler for all the radio buttons, however many nodes the tree has.
+		renderSupport.addScript("TreeSelect.initialize('%s');", clientId);
+
+		if (expandedLevels > 0) {
+
+			renderSupport.addScript("TreeSelect.initializeLazy('%s', '%s', '%s', '%s', '%s');",
+					clientId, resources.createEventLink(CHILDREN_EVENT).toURI(), getControlName(),
+					hasChildrenIcon.toClientURL(), noChildrenIcon.toClientURL());
+
+		}
+
 		if (showTreeAtFirst == false) {
 
 			writer.element("p", "id", hideId, "style", "display: none");
@@ -283,6 +338,156 @@ public class TreeSelect extends AbstractField {
 
 	}
 
+	/**
+	 * Returns the ancestors of the current value followed by the value itself. The whole path is
+	 * fetched at once, from the cached trees if they are used, or from the tree service if it
+	 * implements {@link BulkSingleTypeTreeService}. Otherwise, the parent chain is walked.
+	 * 
+	 * @param boundType the type of the value.
+	 * @return a {@link List}.
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Object> getPath(Class boundType) {
+
+		List<Object> path;
+
+		if (rootNodes == null) {
+			path = treeServiceSource.getSnapshot(boundType).getAncestors(value);
+		}
+		else {
+
+			final SingleTypeTreeService<Object> treeService = treeServiceSource.get(boundType);
+
+			if (treeService instanceof BulkSingleTypeTreeService) {
+				path = ((BulkSingleTypeTreeService<Object>) treeService).getAncestors(value);
+			}
+			else {
+
+				path = new ArrayList<Object>();
+
+				final Set<Object> visited = new HashSet<Object>();
+				Object current = treeService.isRoot(value) ? null : treeService.getParent(value);
+				visited.add(value);
+
+				// a corrupt hierarchy may have cycles.
+				while (current != null && visited.add(current)) {
+					path.add(0, current);
+					current = treeService.isRoot(current) ? null : treeService.getParent(current);
+				}
+
+			}
+
+		}
+
+		path.add(value);
+
+		return path;
+
+	}
+
+	/**
+	 * Returns the children of a collapsed node as a {@link JSONObject} with an array
+	 * (<code>children</code>) of objects with the client value (<code>value</code>), the label
+	 * (<code>label</code>) and whether the child has children (<code>children</code>). As the
+	 * event can be triggered by anyone knowing its URL, the current user must be allowed to
+	 * search the value type, as checked by {@link Authorizer#checkSearch(Class)}. When
+	 * <code>rootNodes</code> is bound, only the nodes under those roots are answered for. A blank
+	 * or unknown client value has no children.
+	 * 
+	 * @param parentClientValue a {@link String} with the client value of the node.
+	 * @return a {@link JSONObject}.
+	 */
+	@OnEvent(CHILDREN_EVENT)
+	@SuppressWarnings("unchecked")
+	JSONObject children(String parentClientValue) {
+
+		final Class boundType = resources.getBoundType("value");
+		authorizer.checkSearch(boundType);
+
+		final JSONArray array = new JSONArray();
+		final JSONObject result = new JSONObject();
+		result.put("children", array);
+
+		if (InternalUtils.isBlank(parentClientValue)) {
+			return result;
+		}
+
+		if (resources.isBound("rootNodes")) {
+
+			final TreeSelectNode parent = findNode(rootNodes, parentClientValue);
+			final List<TreeSelectNode> nodes = parent != null ? parent.getChildren() : EMPTY_LIST;
+
+			for (TreeSelectNode node : nodes) {
+				array.put(toJSON(node.getValue(), node.getLabel(),
+						node.getChildren().isEmpty() == false));
+			}
+
+		}
+		else {
+
+			final Object parent = encoder.toValue(parentClientValue);
+
+			if (parent != null) {
+
+				final CompactTree tree = treeServiceSource.getSnapshot(boundType).getTree();
+				final LabelEncoder labelEncoder = labelEncoderSource.get(boundType);
+				final int node = tree.indexOf(parent);
+				final int childCount = node >= 0 ? tree.getChildCount(node) : 0;
+
+				for (int i = 0; i < childCount; i++) {
+
+					final int child = tree.getChild(node, i);
+					final Object object = tree.getObject(child);
+					array.put(toJSON(object, labelEncoder.toLabel(object),
+							tree.hasChildren(child)));
+
+				}
+
+			}
+
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * Returns the node with a given client value among some nodes and their descendants, or
+	 * <code>null</code> if there is none. It is iterative, so deep trees don't overflow the stack.
+	 */
+	@SuppressWarnings("unchecked")
+	private TreeSelectNode findNode(List<TreeSelectNode> nodes, String clientValue) {
+
+		final List<TreeSelectNode> stack = new ArrayList<TreeSelectNode>(nodes);
+
+		while (stack.isEmpty() == false) {
+
+			final TreeSelectNode node = stack.remove(stack.size() - 1);
+
+			if (node.getValue() != null && clientValue.equals(encoder.toClient(node.getValue()))) {
+				return node;
+			}
+
+			stack.addAll(node.getChildren());
+
+		}
+
+		return null;
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private JSONObject toJSON(Object object, String label, boolean hasChildren) {
+
+		final JSONObject json = new JSONObject();
+		json.put("value", encoder.toClient(object));
+		json.put("label", label);
+		json.put("children", hasChildren);
+
+		return json;
+
+	}
+
 	private void renderNoParentOption(MarkupWriter writer) {
 
 		Map<String, String> attributes = new HashMap<String, String>(1);
@@ -296,25 +501,129 @@ public class TreeSelect extends AbstractField {
 
 	}
 
-	@SuppressWarnings("unchecked")
+	/**
+	 * Renders a node and its descendants. It is iterative, so deep trees don't overflow the
+	 * stack: <code>null</code> entries in the stack mark the end of an open element.
+	 */
 	private void render(TreeSelectNode node, MarkupWriter writer, int level) {
 
-		String selectedClientValue = encoder.toClient(value);
+		final List<TreeSelectNode> stack = new ArrayList<TreeSelectNode>();
+		final List<Integer> levels = new ArrayList<Integer>();
+
+		stack.add(node);
+		levels.add(level);
+
+		while (stack.isEmpty() == false) {
+
+			final TreeSelectNode current = stack.remove(stack.size() - 1);
+			final int currentLevel = levels.remove(levels.size() - 1);
+
+			if (current == null) {
+				writer.end(); // ul or li
+				continue;
+			}
+
+			final List<TreeSelectNode> children = current.getChildren();
+
+			final boolean renderChildren =
+				renderOption(current.getValue(), current.getLabel(), current.getAttributes(),
+						children.isEmpty() == false, writer, currentLevel);
 
-		// Use the value passed up in the form submission, if available.
-		// Failing that, see if there is a current value (via the value
-		// parameter), and
-		// convert that to a client value for later comparison.
+			stack.add(null); // li
+			levels.add(currentLevel);
 
-		String thisClientValue = encoder.toClient(node.getValue());
+			if (renderChildren) {
+
+				writer.element("ul");
+				stack.add(null); // ul
+				levels.add(currentLevel);
+
+				for (int i = children.size() - 1; i >= 0; i--) {
+					stack.add(children.get(i));
+					levels.add(currentLevel + 1);
+				}
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Renders a node of a {@link CompactTree} and its descendants. It is iterative, so deep trees
+	 * don't overflow the stack: -1 entries in the stack mark the end of an open element.
+	 */
+	@SuppressWarnings("unchecked")
+	private void render(CompactTree tree, int node, LabelEncoder labelEncoder,
+			MarkupWriter writer) {
+
+		final List<Integer> stack = new ArrayList<Integer>();
+		stack.add(node);
+
+		while (stack.isEmpty() == false) {
+
+			final int current = stack.remove(stack.size() - 1);
+
+			if (current < 0) {
+				writer.end(); // ul or li
+				continue;
+			}
+
+			final Object object = tree.getObject(current);
+
+			final boolean renderChildren =
+				renderOption(object, labelEncoder.toLabel(object), null,
+						tree.hasChildren(current), writer, tree.getLevel(current));
+
+			stack.add(-1); // li
+
+			if (renderChildren) {
+
+				writer.element("ul");
+				stack.add(-1); // ul
+
+				for (int i = tree.getChildCount(current) - 1; i >= 0; i--) {
+					stack.add(tree.getChild(current, i));
+				}
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Starts the <code>&lt;li&gt;</code> element of an option and renders its label and radio
+	 * button. The element is left open for the children.
+	 * 
+	 * @return <code>true</code> if the children of the option must be rendered.
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean renderOption(Object optionValue, String label,
+			Map<String, String> attributes, boolean hasChildren, MarkupWriter writer, int level) {
+
+		String thisClientValue = encoder.toClient(optionValue);
 		boolean checked = isEqual(selectedClientValue, thisClientValue);
 
 		String clientId = getClientId();
 		String radioId = clientId + "-" + thisClientValue;
 
+		final boolean expanded =
+			expandedLevels <= 0 || level < expandedLevels
+					|| expandedClientValues.contains(thisClientValue);
+
 		writer.element("li", "class", "level" + level);
 
-		writeAttributes(node.getAttributes(), writer);
+		writeAttributes(attributes, writer);
+
+		if (expanded == false && hasChildren) {
+
+			writer.getElement().addClassName("collapsed");
+			writer.element("a", "href", "#", "class", "t-crud-tree-select-expand");
+			writer.write("+");
+			writer.end(); // a
+
+		}
 
 		if (checked) {
 			
@@ -326,26 +635,12 @@ public class TreeSelect extends AbstractField {
 
 		}
 
-		renderLabel(node, writer, radioId);
+		renderLabel(label, hasChildren, writer, radioId);
 		renderRadioButton(writer, thisClientValue, checked, radioId);
 
 		writer.end(); // input
 
-		List<TreeSelectNode> children = node.getChildren();
-
-		if (children.isEmpty() == false) {
-
-			writer.element("ul");
-
-			for (TreeSelectNode child : children) {
-				render(child, writer, level + 1);
-			}
-
-			writer.end(); // ul
-
-		}
-
-		writer.end(); // li
+		return expanded && hasChildren;
 
 	}
 
@@ -385,29 +680,24 @@ public class TreeSelect extends AbstractField {
 			writer.attributes("checked", "checked");
 		}
 
-		renderSupport.addScript(
-				"Event.observe('%s', 'click', function() { TreeSelect.handleChange('%s', '%s'); } );",  
-				radioId, radioId, clientId);
-
 	}
 
 	/**
-	 * @param node
+	 * @param label
+	 * @param hasChildren
 	 * @param writer
 	 * @param radioId
 	 */
-	private void renderLabel(TreeSelectNode node, MarkupWriter writer,
+	private void renderLabel(String label, boolean hasChildren, MarkupWriter writer,
 			String radioId) {
 
-		final boolean noChildren = node.getChildren().isEmpty();
-
 		writer.element("label", "for", radioId);
 
-		Asset asset = noChildren ? noChildrenIcon : hasChildrenIcon;
+		Asset asset = hasChildren ? hasChildrenIcon : noChildrenIcon;
 		writer.element("img", "src", asset);
 		writer.end();
 
-		writer.write(node.getLabel());
+		writer.write(label);
 
 		writer.end(); // label
 
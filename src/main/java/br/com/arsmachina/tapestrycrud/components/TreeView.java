@@ -14,8 +14,10 @@
 
 package br.com.arsmachina.tapestrycrud.components;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.tapestry5.BindingConstants;
 import org.apache.tapestry5.ComponentResources;
 import org.apache.tapestry5.Link;
 import org.apache.tapestry5.MarkupWriter;
@@ -24,15 +26,22 @@ import org.apache.tapestry5.annotations.Parameter;
 import org.apache.tapestry5.annotations.Property;
 import org.apache.tapestry5.annotations.SetupRender;
 import org.apache.tapestry5.annotations.SupportsInformalParameters;
+import org.apache.tapestry5.dom.Element;
 import org.apache.tapestry5.ioc.annotations.Inject;
+import org.apache.tapestry5.ioc.services.ThreadLocale;
 import org.apache.tapestry5.services.PageRenderLinkSource;
+import org.apache.tapestry5.services.Response;
 
 import br.com.arsmachina.tapestrycrud.Constants;
 import br.com.arsmachina.tapestrycrud.encoder.ActivationContextEncoder;
 import br.com.arsmachina.tapestrycrud.encoder.LabelEncoder;
 import br.com.arsmachina.tapestrycrud.services.ActivationContextEncoderSource;
 import br.com.arsmachina.tapestrycrud.services.LabelEncoderSource;
+import br.com.arsmachina.tapestrycrud.services.PageCache;
 import br.com.arsmachina.tapestrycrud.services.TapestryCrudModuleService;
+import br.com.arsmachina.tapestrycrud.services.TreeServiceSource;
+import br.com.arsmachina.tapestrycrud.tree.BulkSingleTypeTreeService;
+import br.com.arsmachina.tapestrycrud.tree.CompactTree;
 import br.com.arsmachina.tapestrycrud.tree.SingleTypeTreeService;
 import br.com.arsmachina.tapestrycrud.tree.TreeNode;
 
@@ -51,9 +60,16 @@ public class TreeView {
 	public static final String CSS_CLASS = "t-crud-treeview";
 
 	/**
-	 * The objects to be shown.
+	 * URL used to find out whether the session id is added to the generated links.
 	 */
-	@Parameter(required = true, allowNull = false)
+	private static final String SESSION_PROBE_URL = "/";
+
+	/**
+	 * The objects to be shown. If not provided, all the trees of the tree service type, as
+	 * cached by {@link TreeServiceSource}, are shown. It is required when the tree service
+	 * doesn't implement {@link BulkSingleTypeTreeService}.
+	 */
+	@Parameter(allowNull = false)
 	@Property
 	@SuppressWarnings("unchecked")
 	private List objects;
@@ -63,6 +79,21 @@ public class TreeView {
 	@SuppressWarnings("unchecked")
 	private SingleTypeTreeService treeService;
 
+	/**
+	 * If provided, the rendered markup is kept in the {@link PageCache} and reused by the
+	 * following renderings with the same value until an object of the tree service type is
+	 * saved or removed, so no links are generated for them. It must identify everything that
+	 * changes what the current user sees, such as the user roles. The current locale is
+	 * considered automatically and the {@link PageCache} size and maximum age apply. As the
+	 * <code>node</code> parameter is not updated when the cached markup is used, don't use this
+	 * parameter when the rendering depends on it. It cannot be used together with the
+	 * <code>objects</code> parameter. The markup is neither cached nor reused when the session id
+	 * is added to the links, as it happens for clients that don't accept cookies. The tree service
+	 * must implement {@link BulkSingleTypeTreeService}.
+	 */
+	@Parameter(defaultPrefix = BindingConstants.LITERAL)
+	private String cacheKey;
+
 	/**
 	 * Used to store the current object being rendered (for the current node).
 	 */
@@ -93,15 +124,113 @@ public class TreeView {
 	@Inject
 	private ComponentResources resources;
 
+	@Inject
+	private TreeServiceSource treeServiceSource;
+
+	@Inject
+	private PageCache pageCache;
+
+	@Inject
+	private ThreadLocale threadLocale;
+
+	@Inject
+	private Response response;
+
 	@SetupRender
-	@SuppressWarnings("unchecked")
 	public void render(MarkupWriter writer) {
+
+		if (cacheKey != null && resources.isBound("objects")) {
+			throw new IllegalArgumentException(
+					"The cacheKey parameter cannot be used with the objects parameter");
+		}
+
+		if (cacheKey == null || isSessionIdEncoded()) {
+			renderTree(writer);
+		}
+		else {
+
+			final Class<?> type = getType();
+			final String key = "TreeView:" + resources.getCompleteId() + ":"
+					+ threadLocale.getLocale() + ":" + cacheKey;
+
+			final String markup = pageCache.get(type, key);
+
+			if (markup != null) {
+				writer.writeRaw(markup);
+			}
+			else {
+
+				// obtained before rendering, so changes done meanwhile prevent caching.
+				final long version = pageCache.getVersion(type);
+				final Element element = renderTree(writer);
+
+				// a session may have been created while rendering.
+				if (isSessionIdEncoded() == false) {
+					pageCache.put(type, key, element != null ? element.toString() : "", version);
+				}
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Returns the type of the tree service, which must implement
+	 * {@link BulkSingleTypeTreeService} to provide it.
+	 * 
+	 * @return a {@link Class}.
+	 */
+	@SuppressWarnings("unchecked")
+	private Class getType() {
+
+		if (treeService instanceof BulkSingleTypeTreeService == false) {
+			throw new IllegalArgumentException("The objects parameter is required and the cacheKey "
+					+ "one cannot be used when the tree service doesn't implement "
+					+ BulkSingleTypeTreeService.class.getName());
+		}
+
+		return ((BulkSingleTypeTreeService) treeService).getType();
+
+	}
+
+	/**
+	 * Tells if the session id is added to the generated links. Markup with such links must not
+	 * be shared, as it would give the session of a user to everyone else.
+	 * 
+	 * @return a <code>boolean</code>.
+	 */
+	private boolean isSessionIdEncoded() {
+		return response.encodeURL(SESSION_PROBE_URL).equals(SESSION_PROBE_URL) == false;
+	}
+
+	/**
+	 * Renders the tree.
+	 * 
+	 * @param writer a {@link MarkupWriter}.
+	 * @return the outer <code>&lt;ul&gt;</code> {@link Element} or <code>null</code> if there
+	 * was nothing to render.
+	 */
+	@SuppressWarnings("unchecked")
+	private Element renderTree(MarkupWriter writer) {
+		
+		Element element = null;
+		List<TreeNode> nodes = null;
+		CompactTree tree = null;
+		
+		if (objects != null) {
+			nodes = treeService.buildTreeNodeList(objects);
+		}
+		else {
+			// the cached trees are rendered straight from their arrays.
+			tree = treeServiceSource.getSnapshot(getType()).getTree();
+		}
 		
-		List<TreeNode> nodes = treeService.buildTreeNodeList(objects);
+		final boolean empty = nodes != null ? nodes.isEmpty() : tree.size() == 0;
 		
-		if (nodes.isEmpty() == false) {
+		if (empty == false) {
 
-			writer.element("ul", "class", CSS_CLASS); // outer ul
+			element = writer.element("ul", "class", CSS_CLASS); // outer ul
 			
 			final String cssAttribute = resources.getInformalParameter("class", String.class);
 			if (cssAttribute != null) {
@@ -110,22 +239,115 @@ public class TreeView {
 			
 			resources.renderInformalParameters(writer);
 
-			for (TreeNode node : nodes) {
-				if (treeService.isRoot(node.getObject())) {
-					render(node, writer);
+			if (nodes != null) {
+				
+				for (TreeNode node : nodes) {
+					if (treeService.isRoot(node.getObject())) {
+						render(node, writer);
+					}
+				}
+				
+			}
+			else {
+				
+				final int rootCount = tree.getRootCount();
+				for (int i = 0; i < rootCount; i++) {
+					render(tree, tree.getRoot(i), writer);
 				}
+				
 			}
 
 			writer.end(); // outer ul
 
 		}
 
+		return element;
+
 	}
 
+	/**
+	 * Renders a node and its descendants. It is iterative, so deep trees don't overflow the
+	 * stack: <code>null</code> entries in the stack mark the end of an open element.
+	 */
 	@SuppressWarnings("unchecked")
 	private void render(TreeNode node, MarkupWriter writer) {
 
-		this.node = node.getObject();
+		final List<TreeNode> stack = new ArrayList<TreeNode>();
+		stack.add(node);
+
+		while (stack.isEmpty() == false) {
+
+			final TreeNode current = stack.remove(stack.size() - 1);
+
+			if (current == null) {
+				writer.end(); // ul or li
+				continue;
+			}
+
+			renderObject(current.getObject(), writer);
+			stack.add(null); // li
+
+			final List<TreeNode> children = current.getChildren();
+
+			if (children.isEmpty() == false) {
+
+				writer.element("ul"); // ul
+				stack.add(null); // ul
+
+				for (int i = children.size() - 1; i >= 0; i--) {
+					stack.add(children.get(i));
+				}
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Renders a node of a {@link CompactTree} and its descendants. It is iterative, so deep trees
+	 * don't overflow the stack: -1 entries in the stack mark the end of an open element.
+	 */
+	private void render(CompactTree<?> tree, int node, MarkupWriter writer) {
+
+		final List<Integer> stack = new ArrayList<Integer>();
+		stack.add(node);
+
+		while (stack.isEmpty() == false) {
+
+			final int current = stack.remove(stack.size() - 1);
+
+			if (current < 0) {
+				writer.end(); // ul or li
+				continue;
+			}
+
+			renderObject(tree.getObject(current), writer);
+			stack.add(-1); // li
+
+			if (tree.hasChildren(current)) {
+
+				writer.element("ul"); // ul
+				stack.add(-1); // ul
+
+				for (int i = tree.getChildCount(current) - 1; i >= 0; i--) {
+					stack.add(tree.getChild(current, i));
+				}
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Starts the <code>&lt;li&gt;</code> element of an object and renders its link. The
+	 * element is left open for the children.
+	 */
+	@SuppressWarnings("unchecked")
+	private void renderObject(Object object, MarkupWriter writer) {
+
+		this.node = object;
 
 		final Class<?> nodeClass = this.node.getClass();
 		final Class<?> viewPageClass = tapestryCrudModuleService.getViewPageClass(nodeClass);
@@ -142,20 +364,6 @@ public class TreeView {
 		
 		writer.end(); // a
 
-		if (node.getChildren().isEmpty() == false) {
-
-			writer.element("ul"); // ul
-
-			final List<TreeNode> children = node.getChildren();
-			for (TreeNode treeNode : children) {
-				render(treeNode, writer);
-			}
-
-			writer.end(); // ul
-
-		}
-
-		writer.end(); // li
 	}
 
 }
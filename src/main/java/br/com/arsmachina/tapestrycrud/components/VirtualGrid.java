@@ -0,0 +1,305 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.components;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.tapestry5.ComponentResources;
+import org.apache.tapestry5.MarkupWriter;
+import org.apache.tapestry5.PrimaryKeyEncoder;
+import org.apache.tapestry5.RenderSupport;
+import org.apache.tapestry5.annotations.IncludeJavaScriptLibrary;
+import org.apache.tapestry5.annotations.IncludeStylesheet;
+import org.apache.tapestry5.annotations.OnEvent;
+import org.apache.tapestry5.annotations.Parameter;
+import org.apache.tapestry5.beaneditor.BeanModel;
+import org.apache.tapestry5.beaneditor.PropertyModel;
+import org.apache.tapestry5.corelib.components.Grid;
+import org.apache.tapestry5.grid.GridDataSource;
+import org.apache.tapestry5.grid.SortConstraint;
+import org.apache.tapestry5.ioc.Messages;
+import org.apache.tapestry5.ioc.annotations.Inject;
+import org.apache.tapestry5.json.JSONArray;
+import org.apache.tapestry5.json.JSONObject;
+
+import br.com.arsmachina.authorization.Authorizer;
+import br.com.arsmachina.tapestrycrud.Constants;
+import br.com.arsmachina.tapestrycrud.encoder.ActivationContextEncoder;
+import br.com.arsmachina.tapestrycrud.services.ActivationContextEncoderSource;
+import br.com.arsmachina.tapestrycrud.services.PrimaryKeyEncoderSource;
+import br.com.arsmachina.tapestrycrud.services.RowAuthorizer;
+import br.com.arsmachina.tapestrycrud.services.TapestryCrudModuleService;
+
+/**
+ * Component that lists the objects of a {@link GridDataSource} in a scrollable table that only
+ * holds the rows around the visible ones. Instead of rendering pages on the server like
+ * {@link Grid}, it renders just the table header and a client-side script fetches windows of
+ * rows as compact JSON (primary key, display strings and view, edit and remove URLs) while the
+ * user scrolls. Rows are listed in the data source default order. In a <code>BaseListPage</code>,
+ * use <code>source="objects"</code> and <code>model="beanModel"</code>.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+@IncludeJavaScriptLibrary(Constants.JAVASCRIPT_ASSET_ROOT + "virtualgrid.js")
+@IncludeStylesheet(Constants.TAPESTRY_CRUD_CSS_ASSET)
+public class VirtualGrid {
+
+	/**
+	 * Event triggered by the client-side script to fetch a window of rows. Its context is the
+	 * index of the first row and the number of rows.
+	 */
+	public static final String ROWS_EVENT = "rows";
+
+	/**
+	 * Maximum number of rows returned by a single {@link #ROWS_EVENT} request.
+	 */
+	public static final int MAXIMUM_WINDOW_SIZE = 500;
+
+	/**
+	 * The listed objects.
+	 */
+	@Parameter(required = true, allowNull = false)
+	private GridDataSource source;
+
+	/**
+	 * The {@link BeanModel} that defines the listed properties.
+	 */
+	@Parameter(required = true, allowNull = false)
+	private BeanModel<?> model;
+
+	/**
+	 * Number of rows fetched at once.
+	 */
+	@Parameter(value = "50")
+	private int windowSize;
+
+	/**
+	 * Height of each row, in pixels.
+	 */
+	@Parameter(value = "24")
+	private int rowHeight;
+
+	/**
+	 * Number of rows visible at once, used to define the table height.
+	 */
+	@Parameter(value = "20")
+	private int visibleRows;
+
+	/**
+	 * Show the view, edit and remove links?
+	 */
+	@Parameter(value = "true")
+	private boolean actions;
+
+	@Inject
+	private ComponentResources resources;
+
+	@Inject
+	private RenderSupport renderSupport;
+
+	@Inject
+	private Messages messages;
+
+	@Inject
+	private Authorizer authorizer;
+
+	@Inject
+	private RowAuthorizer rowAuthorizer;
+
+	@Inject
+	private TapestryCrudModuleService tapestryCrudModuleService;
+
+	@Inject
+	private ActivationContextEncoderSource activationContextEncoderSource;
+
+	@Inject
+	private PrimaryKeyEncoderSource primaryKeyEncoderSource;
+
+	void beginRender(MarkupWriter writer) {
+
+		final String clientId = renderSupport.allocateClientId(resources);
+
+		writer.element("div", "id", clientId, "class", "t-crud-virtual-grid");
+
+		writer.element("table", "class", "t-data-grid t-crud-virtual-grid-header");
+		writer.element("thead");
+		writer.element("tr");
+
+		for (String propertyName : getPropertyNames()) {
+			writer.element("th");
+			writer.write(model.get(propertyName).getLabel());
+			writer.end(); // th
+		}
+
+		if (actions) {
+			writer.element("th");
+			writer.end(); // th
+		}
+
+		writer.end(); // tr
+		writer.end(); // thead
+		writer.end(); // table
+
+		writer.element("div", "class", "t-crud-virtual-grid-viewport", "style", "height: "
+				+ (visibleRows * rowHeight) + "px;");
+		writer.element("div", "class", "t-crud-virtual-grid-spacer");
+		writer.element("table", "class", "t-data-grid");
+		writer.element("tbody");
+		writer.end(); // tbody
+		writer.end(); // table
+		writer.end(); // spacer div
+		writer.end(); // viewport div
+
+		writer.end(); // outer div
+
+		final JSONObject labels = new JSONObject();
+		labels.put("view", messages.get("link.view.object"));
+		labels.put("edit", messages.get("link.edit.object"));
+		labels.put("remove", messages.get("link.remove.object"));
+
+		renderSupport.addScript("new VirtualGrid('%s', '%s', %d, %d, %d, %s);", clientId,
+				resources.createEventLink(ROWS_EVENT).toURI(), source.getAvailableRows(),
+				rowHeight, Math.min(windowSize, MAXIMUM_WINDOW_SIZE), labels);
+
+	}
+
+	/**
+	 * Returns a window of rows as a {@link JSONObject} with the total number of rows
+	 * (<code>total</code>), the index of the first returned row (<code>first</code>) and the rows
+	 * (<code>rows</code>). As the event can be triggered by anyone knowing its URL, the current
+	 * user must be allowed to search the listed entity class, as checked by
+	 * {@link Authorizer#checkSearch(Class)}.
+	 * 
+	 * @param firstIndex an <code>int</code>.
+	 * @param count an <code>int</code>.
+	 * @return a {@link JSONObject}.
+	 */
+	@OnEvent(ROWS_EVENT)
+	JSONObject rows(int firstIndex, int count) {
+
+		authorizer.checkSearch(model.getBeanType());
+
+		final int total = source.getAvailableRows();
+		final int first = Math.max(0, Math.min(firstIndex, total));
+		final int last = Math.min(total, first + Math.min(count, MAXIMUM_WINDOW_SIZE)) - 1;
+		final List<String> propertyNames = getPropertyNames();
+		final JSONArray rows = new JSONArray();
+
+		if (last >= first) {
+
+			source.prepare(first, last, Collections.<SortConstraint> emptyList());
+
+			final List<Object> objects = new ArrayList<Object>(last - first + 1);
+
+			for (int i = first; i <= last; i++) {
+				objects.add(source.getRowValue(i));
+			}
+
+			// no-op for the rows already checked by the data source
+			rowAuthorizer.prepare(objects);
+
+			for (Object object : objects) {
+				rows.put(toJSON(object, propertyNames));
+			}
+
+		}
+
+		final JSONObject result = new JSONObject();
+		result.put("total", total);
+		result.put("first", first);
+		result.put("rows", rows);
+
+		return result;
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private JSONObject toJSON(Object object, List<String> propertyNames) {
+
+		final Class clasz = object.getClass();
+		final PrimaryKeyEncoder primaryKeyEncoder = primaryKeyEncoderSource.get(clasz);
+		final Object key = primaryKeyEncoder.toKey(object);
+
+		final JSONObject row = new JSONObject();
+		row.put("key", String.valueOf(key));
+
+		final JSONArray cells = new JSONArray();
+
+		for (String propertyName : propertyNames) {
+
+			final Object value = model.get(propertyName).getConduit().get(object);
+			cells.put(value != null ? value.toString() : "");
+
+		}
+
+		row.put("cells", cells);
+
+		if (actions) {
+
+			if (rowAuthorizer.canRead(object)) {
+				row.put("view", getPageURI(tapestryCrudModuleService.getViewPageURL(clasz), object));
+			}
+
+			if (rowAuthorizer.canUpdate(object)) {
+				row.put("edit", getPageURI(tapestryCrudModuleService.getEditPageURL(clasz), object));
+			}
+
+			if (rowAuthorizer.canRemove(object)) {
+				row.put("remove",
+						resources.createEventLink(Constants.REMOVE_OBJECT_EVENT, key).toURI());
+			}
+
+		}
+
+		return row;
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private String getPageURI(String page, Object object) {
+
+		final ActivationContextEncoder encoder =
+			activationContextEncoderSource.get(object.getClass());
+
+		return resources.createPageLink(page, true, encoder.toActivationContext(object)).toURI();
+
+	}
+
+	/**
+	 * Returns the names of the listed properties: the ones in the model that have a conduit.
+	 * 
+	 * @return a {@link List} of {@link String}s.
+	 */
+	private List<String> getPropertyNames() {
+
+		final List<String> propertyNames = new ArrayList<String>();
+
+		for (String propertyName : model.getPropertyNames()) {
+
+			final PropertyModel propertyModel = model.get(propertyName);
+
+			if (propertyModel.getConduit() != null) {
+				propertyNames.add(propertyName);
+			}
+
+		}
+
+		return propertyNames;
+
+	}
+
+}
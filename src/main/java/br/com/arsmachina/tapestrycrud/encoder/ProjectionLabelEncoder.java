@@ -0,0 +1,39 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.encoder;
+
+import br.com.arsmachina.tapestrycrud.grid.ProjectionSearch;
+import br.com.arsmachina.tapestrycrud.selectmodel.DefaultSingleTypeSelectModelFactory;
+
+/**
+ * Optional interface for {@link LabelEncoder} implementations whose labels only need some
+ * properties of the objects. When the controller implements {@link ProjectionSearch},
+ * {@link DefaultSingleTypeSelectModelFactory} loads only these properties and the primary key,
+ * instead of whole objects, to build the options.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ * @param <T> the class related to this encoder.
+ */
+public interface ProjectionLabelEncoder<T> extends LabelEncoder<T> {
+
+	/**
+	 * Returns the names of the properties read by {@link #toLabel(Object)}. The primary key
+	 * property doesn't need to be included.
+	 * 
+	 * @return a {@link String} array.
+	 */
+	String[] getLabelPropertyNames();
+
+}
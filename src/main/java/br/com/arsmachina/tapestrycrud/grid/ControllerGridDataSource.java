@@ -22,10 +22,15 @@ import org.apache.tapestry5.grid.GridDataSource;
 import br.com.arsmachina.controller.Controller;
 import br.com.arsmachina.controller.ReadableController;
 import br.com.arsmachina.dao.SortCriterion;
+import br.com.arsmachina.tapestrycrud.services.RowCountCache;
 
 /**
  * {@link GridDataSource} implementation using a {@link Controller} instance, specifically its
- * {@link Controller#findAll(int, int, SortCriterion[])} method.
+ * {@link Controller#findAll(int, int, SortCriterion[])} method. If the controller also implements
+ * {@link KeysetSearch}, pages are fetched by seeking whenever a boundary key is available. If it
+ * implements {@link ProjectionSearch}, it is used when a projection is set. If it implements
+ * {@link FilterableSearch}, the listed objects can be restricted by a {@link FilterCriteria}; in
+ * this case, the rows are counted and fetched through it only.
  * 
  * @param <T> the entity class related to this controller.
  * @param <K> the type of the field that represents the entity class' primary key.
@@ -34,20 +39,150 @@ import br.com.arsmachina.dao.SortCriterion;
 public class ControllerGridDataSource<T, K extends Serializable> extends
 		PagedSearchGridDataSource<T> {
 
+	final private RowCountCache rowCountCache;
+
+	final private String filterSignature;
+
 	/**
-	 * Single construtctor of this class.
+	 * Constructor that doesn't use a {@link RowCountCache}.
 	 * 
 	 * @param controller a {@link Controller}. It cannot be <code>null</code>.
 	 */
-	@SuppressWarnings("unchecked")
 	public ControllerGridDataSource(Class<T> clasz, ReadableController<T, K> controller) {
-		super(clasz, new ReadableControllerPagedSearch(controller));
+		this(clasz, controller, null);
+	}
+
+	/**
+	 * Constructor that gets the number of available rows from a {@link RowCountCache}.
+	 * 
+	 * @param controller a {@link Controller}. It cannot be <code>null</code>.
+	 * @param rowCountCache a {@link RowCountCache}. If <code>null</code>, the rows are counted
+	 * every time {@link #getAvailableRows()} is invoked.
+	 */
+	public ControllerGridDataSource(Class<T> clasz, ReadableController<T, K> controller,
+			RowCountCache rowCountCache) {
+		this(clasz, controller, rowCountCache, null);
+	}
+
+	/**
+	 * Constructor that lists only the objects that match a {@link FilterCriteria}, provided the
+	 * controller implements {@link FilterableSearch}. Filtered row counts are not cached.
+	 * 
+	 * @param controller a {@link Controller}. It cannot be <code>null</code>.
+	 * @param rowCountCache a {@link RowCountCache}. If <code>null</code>, the rows are counted
+	 * every time {@link #getAvailableRows()} is invoked.
+	 * @param filterCriteria a {@link FilterCriteria}. If it is <code>null</code> or empty, all
+	 * objects are listed.
+	 */
+	@SuppressWarnings("unchecked")
+	public ControllerGridDataSource(Class<T> clasz, ReadableController<T, K> controller,
+			RowCountCache rowCountCache, FilterCriteria filterCriteria) {
+
+		super(clasz, createPagedSearch(controller, filterCriteria));
+
+		if (isFiltered(controller, filterCriteria)) {
+			this.rowCountCache = null;
+			filterSignature = filterCriteria.getSignature();
+		}
+		else {
+
+			this.rowCountCache = rowCountCache;
+			filterSignature = null;
+
+			if (controller instanceof ProjectionSearch) {
+				setProjectionSearch((ProjectionSearch<T>) controller);
+			}
+
+		}
+
+	}
+
+	/**
+	 * Tells if a given controller will be used with a given filter.
+	 * 
+	 * @param controller a {@link ReadableController}.
+	 * @param filterCriteria a {@link FilterCriteria} or <code>null</code>.
+	 * @return a <code>boolean</code>.
+	 */
+	private static boolean isFiltered(ReadableController<?, ?> controller,
+			FilterCriteria filterCriteria) {
+
+		return filterCriteria != null && filterCriteria.isEmpty() == false
+				&& controller instanceof FilterableSearch;
+
+	}
+
+	/**
+	 * Creates the {@link PagedSearch} that wraps a given controller, restricted by a filter when
+	 * the controller implements {@link FilterableSearch}. It searches the same objects as a
+	 * {@link ControllerGridDataSource} created with the same controller and filter.
+	 * 
+	 * @param controller a {@link ReadableController}. It cannot be null.
+	 * @param filterCriteria a {@link FilterCriteria} or <code>null</code>.
+	 * @return a {@link PagedSearch}.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T, K extends Serializable> PagedSearch<T> createPagedSearch(
+			ReadableController<T, K> controller, FilterCriteria filterCriteria) {
+
+		if (isFiltered(controller, filterCriteria)) {
+			return new FilteredPagedSearch<T>((FilterableSearch<T>) controller, filterCriteria);
+		}
+		else {
+			return createPagedSearch(controller);
+		}
+
 	}
 
-	final private static class ReadableControllerPagedSearch<T, K extends Serializable> implements
+	/**
+	 * Creates the {@link PagedSearch} that wraps a given controller. If the controller implements
+	 * {@link KeysetSearch}, the returned object implements it too.
+	 * 
+	 * @param controller a {@link ReadableController}. It cannot be null.
+	 * @return a {@link PagedSearch}.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T, K extends Serializable> PagedSearch<T> createPagedSearch(
+			ReadableController<T, K> controller) {
+
+		if (controller instanceof KeysetSearch) {
+			return new KeysetReadableControllerPagedSearch(controller);
+		}
+		else {
+			return new ReadableControllerPagedSearch<T, K>(controller);
+		}
+
+	}
+
+	/**
+	 * Adds the filter, if any, to the search key.
+	 * 
+	 * @return a {@link String}.
+	 */
+	@Override
+	protected String getSearchKey() {
+
+		final String searchKey = super.getSearchKey();
+		return filterSignature != null ? searchKey + filterSignature : searchKey;
+
+	}
+
+	@Override
+	protected int countRows() {
+
+		if (rowCountCache != null) {
+			return rowCountCache.getCount(getRowType(), getPagedSearch());
+		}
+		else {
+			return super.countRows();
+		}
+
+	}
+
+	private static class ReadableControllerPagedSearch<T, K extends Serializable> implements
 			PagedSearch<T> {
 
-		final private ReadableController<T, K> controller;
+		final protected ReadableController<T, K> controller;
 
 		/**
 		 * Single constructor of this class.
@@ -74,4 +209,41 @@ public class ControllerGridDataSource<T, K extends Serializable> extends
 
 	}
 
+	final private static class KeysetReadableControllerPagedSearch<T, K extends Serializable>
+			extends ReadableControllerPagedSearch<T, K> implements KeysetPagedSearch<T> {
+
+		final private KeysetSearch<T> keysetSearch;
+
+		/**
+		 * Single constructor of this class.
+		 * 
+		 * @param controller a {@link Controller} that implements {@link KeysetSearch}. It cannot
+		 * be null.
+		 */
+		@SuppressWarnings("unchecked")
+		public KeysetReadableControllerPagedSearch(ReadableController<T, K> controller) {
+			super(controller);
+			keysetSearch = (KeysetSearch<T>) controller;
+		}
+
+		public boolean isUniqueKey(String propertyName) {
+			return keysetSearch.isUniqueKey(propertyName);
+		}
+
+		public Object[] getKey(T object, SortCriterion... sortCriteria) {
+			return keysetSearch.getKey(object, sortCriteria);
+		}
+
+		public List<T> searchAfter(Object[] key, boolean inclusive, int maximumResults,
+				SortCriterion... sortCriteria) {
+			return keysetSearch.searchAfter(key, inclusive, maximumResults, sortCriteria);
+		}
+
+		public List<T> searchBefore(Object[] key, int maximumResults,
+				SortCriterion... sortCriteria) {
+			return keysetSearch.searchBefore(key, maximumResults, sortCriteria);
+		}
+
+	}
+
 }
@@ -0,0 +1,87 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.grid;
+
+/**
+ * Formats in which the objects of a {@link PagedSearch} can be exported by
+ * {@link PagedSearchExportStream}.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public enum ExportFormat {
+
+	/**
+	 * Comma-separated values, with a header line containing the property labels.
+	 */
+	CSV("text/csv", "csv"),
+
+	/**
+	 * An array of JSON objects, one per exported object, keyed by property name.
+	 */
+	JSON("application/json", "json");
+
+	final private String contentType;
+
+	final private String extension;
+
+	private ExportFormat(String contentType, String extension) {
+		this.contentType = contentType;
+		this.extension = extension;
+	}
+
+	/**
+	 * Returns the MIME type of this format.
+	 * 
+	 * @return a {@link String}.
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * Returns the file extension of this format.
+	 * 
+	 * @return a {@link String}.
+	 */
+	public String getExtension() {
+		return extension;
+	}
+
+	/**
+	 * Returns the format with a given extension, ignoring case.
+	 * 
+	 * @param extension a {@link String}. It cannot be null.
+	 * @return an {@link ExportFormat}.
+	 * @throws IllegalArgumentException if there's no format with the given extension.
+	 */
+	public static ExportFormat get(String extension) {
+
+		if (extension == null) {
+			throw new IllegalArgumentException("Parameter extension cannot be null");
+		}
+
+		for (ExportFormat format : values()) {
+
+			if (format.extension.equalsIgnoreCase(extension)) {
+				return format;
+			}
+
+		}
+
+		throw new IllegalArgumentException("Unknown export format: " + extension);
+
+	}
+
+}
@@ -0,0 +1,78 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.grid;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.tapestry5.StreamResponse;
+import org.apache.tapestry5.services.Response;
+
+/**
+ * {@link StreamResponse} that sends a {@link PagedSearchExportStream} to the client as a file
+ * to be downloaded.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class ExportStreamResponse implements StreamResponse {
+
+	final private PagedSearchExportStream<?> stream;
+
+	final private ExportFormat format;
+
+	final private String fileName;
+
+	/**
+	 * Single constructor of this class.
+	 * 
+	 * @param stream a {@link PagedSearchExportStream}. It cannot be null.
+	 * @param format the {@link ExportFormat} used by <code>stream</code>. It cannot be null.
+	 * @param baseName a {@link String} with the name of the downloaded file, without extension.
+	 * It cannot be null.
+	 */
+	public ExportStreamResponse(PagedSearchExportStream<?> stream, ExportFormat format,
+			String baseName) {
+
+		if (stream == null) {
+			throw new IllegalArgumentException("Parameter stream cannot be null");
+		}
+
+		if (format == null) {
+			throw new IllegalArgumentException("Parameter format cannot be null");
+		}
+
+		if (baseName == null) {
+			throw new IllegalArgumentException("Parameter baseName cannot be null");
+		}
+
+		this.stream = stream;
+		this.format = format;
+		fileName = baseName + "." + format.getExtension();
+
+	}
+
+	public String getContentType() {
+		return format.getContentType() + "; charset=UTF-8";
+	}
+
+	public InputStream getStream() throws IOException {
+		return stream;
+	}
+
+	public void prepareResponse(Response response) {
+		response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+	}
+
+}
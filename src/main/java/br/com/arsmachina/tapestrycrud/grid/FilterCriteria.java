@@ -0,0 +1,135 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.grid;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Class that holds the values used to filter the objects listed in a grid, one per property. It
+ * is passed to {@link FilterableSearch} implementations, which must apply it in the query itself:
+ * {@link String} values match the property values that contain them, ignoring case, and other
+ * values match equal property values. Only objects that match all the values are returned.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class FilterCriteria implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	final private Map<String, Object> values = new TreeMap<String, Object>();
+
+	/**
+	 * Returns the value used to filter a given property.
+	 * 
+	 * @param propertyName a {@link String}. It cannot be null.
+	 * @return an {@link Object} or <code>null</code>.
+	 */
+	public Object get(String propertyName) {
+		return values.get(propertyName);
+	}
+
+	/**
+	 * Filters a given property by a given value.
+	 * 
+	 * @param propertyName a {@link String}. It cannot be null.
+	 * @param value a {@link Serializable} value. It cannot be null.
+	 */
+	public void put(String propertyName, Object value) {
+
+		if (propertyName == null) {
+			throw new IllegalArgumentException("Parameter propertyName cannot be null");
+		}
+
+		if (value == null) {
+			throw new IllegalArgumentException("Parameter value cannot be null");
+		}
+
+		values.put(propertyName, value);
+
+	}
+
+	/**
+	 * Stops filtering a given property.
+	 * 
+	 * @param propertyName a {@link String}. It cannot be null.
+	 */
+	public void remove(String propertyName) {
+		values.remove(propertyName);
+	}
+
+	/**
+	 * Removes all the filter values.
+	 */
+	public void clear() {
+		values.clear();
+	}
+
+	/**
+	 * Tells if there's no filter value.
+	 * 
+	 * @return a <code>boolean</code>.
+	 */
+	public boolean isEmpty() {
+		return values.isEmpty();
+	}
+
+	/**
+	 * Returns the names of the filtered properties, in alphabetical order.
+	 * 
+	 * @return a {@link Set} of {@link String}s.
+	 */
+	public Set<String> getPropertyNames() {
+		return values.keySet();
+	}
+
+	/**
+	 * Returns a {@link String} that identifies the current filter values, suitable to be used
+	 * in cache keys. Property names and values are prefixed by their lengths and values by their
+	 * types, so different filters never get the same signature, whatever characters their values
+	 * contain.
+	 * 
+	 * @return a {@link String}.
+	 */
+	public String getSignature() {
+
+		final StringBuilder builder = new StringBuilder("{");
+
+		for (Map.Entry<String, Object> entry : values.entrySet()) {
+
+			final String propertyName = entry.getKey();
+			final Object value = entry.getValue();
+			final String string = value.toString();
+
+			builder.append(propertyName.length()).append(':').append(propertyName);
+			builder.append('=').append(value.getClass().getName()).append(':');
+			builder.append(string.length()).append(':').append(string).append(';');
+
+		}
+
+		builder.append('}');
+
+		return builder.toString();
+
+	}
+
+	@Override
+	public String toString() {
+		return "FilterCriteria" + values;
+	}
+
+}
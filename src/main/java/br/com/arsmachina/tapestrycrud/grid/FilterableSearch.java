@@ -0,0 +1,55 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.grid;
+
+import java.util.List;
+
+import br.com.arsmachina.controller.ReadableController;
+import br.com.arsmachina.dao.SortCriterion;
+
+/**
+ * Interface that defines a paged search that can be restricted by a {@link FilterCriteria}. The
+ * filter must be applied by the query itself, both when counting and when searching, never by
+ * discarding fetched objects. It can be implemented by {@link PagedSearch}es and by
+ * {@link ReadableController}s used by {@link ControllerGridDataSource}.
+ * 
+ * @param <T> the type of the elements returned.
+ * @author Thiago H. de Paula Figueiredo
+ */
+public interface FilterableSearch<T> {
+
+	/**
+	 * Performs the search, returning only the objects that match a filter.
+	 * 
+	 * @param filterCriteria a {@link FilterCriteria}. It cannot be null.
+	 * @param firstIndex an <code>int</code> with the index of the first object to be returned.
+	 * The first object has index 0.
+	 * @param maximumResults an <code>int</code> with the maximum number of objects to be returned.
+	 * @param sortCriteria an {@link SortCriterion} array used to define how the returned list
+	 * will be sorted.
+	 * @return a {@link List} of <code>T</code>.
+	 */
+	List<T> search(FilterCriteria filterCriteria, int firstIndex, int maximumResults,
+			SortCriterion... sortCriteria);
+
+	/**
+	 * Returns the number of objects that match a filter.
+	 * 
+	 * @param filterCriteria a {@link FilterCriteria}. It cannot be null.
+	 * @return an <code>int</code>.
+	 */
+	int count(FilterCriteria filterCriteria);
+
+}
@@ -0,0 +1,64 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.grid;
+
+import java.util.List;
+
+import br.com.arsmachina.dao.SortCriterion;
+
+/**
+ * {@link PagedSearch} that restricts a {@link FilterableSearch} to the objects that match a given
+ * {@link FilterCriteria}.
+ * 
+ * @param <T> the type of the elements returned.
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class FilteredPagedSearch<T> implements PagedSearch<T> {
+
+	final private FilterableSearch<T> filterableSearch;
+
+	final private FilterCriteria filterCriteria;
+
+	/**
+	 * Single constructor of this class.
+	 * 
+	 * @param filterableSearch a {@link FilterableSearch}. It cannot be null.
+	 * @param filterCriteria a {@link FilterCriteria}. It cannot be null.
+	 */
+	public FilteredPagedSearch(FilterableSearch<T> filterableSearch, FilterCriteria filterCriteria) {
+
+		if (filterableSearch == null) {
+			throw new IllegalArgumentException("Parameter filterableSearch cannot be null");
+		}
+
+		if (filterCriteria == null) {
+			throw new IllegalArgumentException("Parameter filterCriteria cannot be null");
+		}
+
+		this.filterableSearch = filterableSearch;
+		this.filterCriteria = filterCriteria;
+
+	}
+
+	public int count() {
+		return filterableSearch.count(filterCriteria);
+	}
+
+	public List<T> search(int firstIndex, int maximumResults, SortCriterion... sortingConstraints) {
+		return filterableSearch.search(filterCriteria, firstIndex, maximumResults,
+				sortingConstraints);
+	}
+
+}
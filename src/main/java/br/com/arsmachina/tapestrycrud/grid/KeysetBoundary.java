@@ -0,0 +1,115 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.grid;
+
+import java.io.Serializable;
+
+/**
+ * Class that remembers the boundaries of the last page served by a
+ * {@link PagedSearchGridDataSource} using a {@link KeysetSearch}: the indexes and keys of its
+ * first and last objects and the sort order used. It is meant to be persisted between requests,
+ * so the next or previous page can be fetched by seeking instead of by offset.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class KeysetBoundary implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private String sortSignature;
+
+	private int firstIndex = -1;
+
+	private int lastIndex = -1;
+
+	private Object[] firstKey;
+
+	private Object[] lastKey;
+
+	/**
+	 * Tells if this boundary was recorded with a given sort order.
+	 * 
+	 * @param sortSignature a {@link String}.
+	 * @return a <code>boolean</code>.
+	 */
+	public boolean matches(String sortSignature) {
+		return firstKey != null && this.sortSignature != null
+				&& this.sortSignature.equals(sortSignature);
+	}
+
+	/**
+	 * Records the boundaries of a page.
+	 * 
+	 * @param sortSignature a {@link String} identifying the sort order.
+	 * @param firstIndex an <code>int</code>.
+	 * @param lastIndex an <code>int</code>.
+	 * @param firstKey an {@link Object} array.
+	 * @param lastKey an {@link Object} array.
+	 */
+	public void record(String sortSignature, int firstIndex, int lastIndex, Object[] firstKey,
+			Object[] lastKey) {
+
+		this.sortSignature = sortSignature;
+		this.firstIndex = firstIndex;
+		this.lastIndex = lastIndex;
+		this.firstKey = firstKey;
+		this.lastKey = lastKey;
+
+	}
+
+	/**
+	 * Forgets the recorded boundaries.
+	 */
+	public void clear() {
+		record(null, -1, -1, null, null);
+	}
+
+	/**
+	 * Returns the value of the <code>firstIndex</code> property.
+	 * 
+	 * @return an <code>int</code>.
+	 */
+	public int getFirstIndex() {
+		return firstIndex;
+	}
+
+	/**
+	 * Returns the value of the <code>lastIndex</code> property.
+	 * 
+	 * @return an <code>int</code>.
+	 */
+	public int getLastIndex() {
+		return lastIndex;
+	}
+
+	/**
+	 * Returns the value of the <code>firstKey</code> property.
+	 * 
+	 * @return an {@link Object} array.
+	 */
+	public Object[] getFirstKey() {
+		return firstKey;
+	}
+
+	/**
+	 * Returns the value of the <code>lastKey</code> property.
+	 * 
+	 * @return an {@link Object} array.
+	 */
+	public Object[] getLastKey() {
+		return lastKey;
+	}
+
+}
@@ -0,0 +1,27 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.grid;
+
+/**
+ * A {@link PagedSearch} that can also be carried on in a keyset (seek) fashion.
+ * {@link PagedSearchGridDataSource} uses the keyset search whenever it knows the key of the
+ * page boundary and falls back to the offset one otherwise.
+ *
+ * @param <T> the type of the elements returned.
+ * @author Thiago H. de Paula Figueiredo
+ */
+public interface KeysetPagedSearch<T> extends PagedSearch<T>, KeysetSearch<T> {
+
+}
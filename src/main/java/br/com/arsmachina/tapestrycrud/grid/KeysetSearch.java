@@ -0,0 +1,76 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.grid;
+
+import java.util.List;
+
+import br.com.arsmachina.controller.ReadableController;
+import br.com.arsmachina.dao.SortCriterion;
+
+/**
+ * Interface that defines a keyset (seek) search: instead of skipping a number of objects, it
+ * returns the objects that come after or before a given key in a given sort order, so its cost
+ * does not grow with the position of the page. It can be implemented by {@link PagedSearch}es and
+ * by {@link ReadableController}s used by {@link ControllerGridDataSource}.
+ * 
+ * @param <T> the type of the elements returned.
+ * @author Thiago H. de Paula Figueiredo
+ */
+public interface KeysetSearch<T> {
+
+	/**
+	 * Tells if a given property has unique values. Keyset searches are only done when the last
+	 * sort criterion is a unique property.
+	 * 
+	 * @param propertyName a {@link String}. It cannot be null.
+	 * @return a <code>boolean</code>.
+	 */
+	boolean isUniqueKey(String propertyName);
+
+	/**
+	 * Returns the key of a given object, i.e. the values of the properties in the sort criteria,
+	 * in the same order.
+	 * 
+	 * @param object a <code>T</code>. It cannot be null.
+	 * @param sortCriteria a {@link SortCriterion} array.
+	 * @return an {@link Object} array.
+	 */
+	Object[] getKey(T object, SortCriterion... sortCriteria);
+
+	/**
+	 * Returns the objects that come after a given key.
+	 * 
+	 * @param key an {@link Object} array returned by {@link #getKey(Object, SortCriterion...)}.
+	 * @param inclusive a <code>boolean</code> defining whether the object with the given key
+	 * is returned too.
+	 * @param maximumResults an <code>int</code> with the maximum number of objects to be returned.
+	 * @param sortCriteria a {@link SortCriterion} array.
+	 * @return a {@link List} of <code>T</code>.
+	 */
+	List<T> searchAfter(Object[] key, boolean inclusive, int maximumResults,
+			SortCriterion... sortCriteria);
+
+	/**
+	 * Returns the objects that come immediately before a given key. The returned list is in the
+	 * order defined by the sort criteria, not the reverse one.
+	 * 
+	 * @param key an {@link Object} array returned by {@link #getKey(Object, SortCriterion...)}.
+	 * @param maximumResults an <code>int</code> with the maximum number of objects to be returned.
+	 * @param sortCriteria a {@link SortCriterion} array.
+	 * @return a {@link List} of <code>T</code>.
+	 */
+	List<T> searchBefore(Object[] key, int maximumResults, SortCriterion... sortCriteria);
+
+}
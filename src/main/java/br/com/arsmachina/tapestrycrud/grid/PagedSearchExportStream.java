@@ -0,0 +1,454 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.grid;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.tapestry5.PropertyConduit;
+import org.apache.tapestry5.beaneditor.BeanModel;
+import org.apache.tapestry5.beaneditor.PropertyModel;
+
+import br.com.arsmachina.dao.SortCriterion;
+
+/**
+ * {@link InputStream} that exports all the objects returned by a {@link PagedSearch} as CSV or
+ * JSON. The objects are fetched in fixed-size chunks only when the previous chunk was completely
+ * read, so the memory used doesn't depend on the number of exported objects. The exported
+ * properties are the ones in a {@link BeanModel} that have a {@link PropertyConduit}.
+ * 
+ * If the {@link PagedSearch} is a {@link KeysetSearch} and the last sort criterion is a unique
+ * property, chunks after the first one are fetched by seeking instead of by offset.
+ * 
+ * CSV cells that are not numbers and that start with <code>=</code>, <code>+</code>,
+ * <code>-</code> or <code>@</code> are prefixed with <code>'</code>, so spreadsheets don't
+ * evaluate them as formulas. In JSON, NaN and infinite numbers are written as <code>null</code>.
+ * 
+ * @param <T> the type of the exported objects.
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class PagedSearchExportStream<T> extends InputStream {
+
+	private static final String ENCODING = "UTF-8";
+
+	private static final byte[] EMPTY_BUFFER = new byte[0];
+
+	final private PagedSearch<T> pagedSearch;
+
+	final private ExportFormat format;
+
+	final private List<PropertyModel> properties = new ArrayList<PropertyModel>();
+
+	final private int chunkSize;
+
+	final private SortCriterion[] sortCriteria;
+
+	final private KeysetSearch<T> keysetSearch;
+
+	final private ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+	final private Writer writer;
+
+	private byte[] buffer = EMPTY_BUFFER;
+
+	private int position;
+
+	private int nextIndex;
+
+	private Object[] lastKey;
+
+	private boolean started;
+
+	private boolean finished;
+
+	/**
+	 * Single constructor of this class.
+	 * 
+	 * @param pagedSearch a {@link PagedSearch}. It cannot be null.
+	 * @param beanModel a {@link BeanModel} defining the exported properties. It cannot be null.
+	 * @param format an {@link ExportFormat}. It cannot be null.
+	 * @param chunkSize an <code>int</code> with the number of objects fetched at once. It must be
+	 * greater than zero.
+	 * @param uniqueKey a <code>boolean</code> telling if the last sort criterion is a unique
+	 * property, so chunks can be fetched by seeking when <code>pagedSearch</code> is a
+	 * {@link KeysetSearch}.
+	 * @param sortCriteria a {@link SortCriterion} array defining the exported objects order.
+	 */
+	@SuppressWarnings("unchecked")
+	public PagedSearchExportStream(PagedSearch<T> pagedSearch, BeanModel<T> beanModel,
+			ExportFormat format, int chunkSize, boolean uniqueKey, SortCriterion... sortCriteria) {
+
+		if (pagedSearch == null) {
+			throw new IllegalArgumentException("Parameter pagedSearch cannot be null");
+		}
+
+		if (beanModel == null) {
+			throw new IllegalArgumentException("Parameter beanModel cannot be null");
+		}
+
+		if (format == null) {
+			throw new IllegalArgumentException("Parameter format cannot be null");
+		}
+
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("Parameter chunkSize must be greater than 0");
+		}
+
+		this.pagedSearch = pagedSearch;
+		this.format = format;
+		this.chunkSize = chunkSize;
+		this.sortCriteria = sortCriteria;
+
+		if (uniqueKey && pagedSearch instanceof KeysetSearch) {
+			keysetSearch = (KeysetSearch<T>) pagedSearch;
+		}
+		else {
+			keysetSearch = null;
+		}
+
+		for (String propertyName : (List<String>) beanModel.getPropertyNames()) {
+
+			final PropertyModel propertyModel = beanModel.get(propertyName);
+
+			// pseudo-properties, such as the action links one, have no conduit.
+			if (propertyModel.getConduit() != null) {
+				properties.add(propertyModel);
+			}
+
+		}
+
+		try {
+			writer = new OutputStreamWriter(bytes, ENCODING);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+
+	}
+
+	/**
+	 * Invoked after an object is exported, before the next chunk is fetched. Override it to
+	 * detach or evict the object from its persistence context, so exported objects can be garbage
+	 * collected. This implementation does nothing.
+	 * 
+	 * @param object a <code>T</code>.
+	 */
+	protected void exported(T object) {
+	}
+
+	@Override
+	public int read() throws IOException {
+
+		if (position >= buffer.length && fill() == false) {
+			return -1;
+		}
+
+		return buffer[position++] & 0xff;
+
+	}
+
+	@Override
+	public int read(byte[] destination, int offset, int length) throws IOException {
+
+		if (length == 0) {
+			return 0;
+		}
+
+		if (position >= buffer.length && fill() == false) {
+			return -1;
+		}
+
+		final int count = Math.min(length, buffer.length - position);
+		System.arraycopy(buffer, position, destination, offset, count);
+		position += count;
+
+		return count;
+
+	}
+
+	@Override
+	public int available() {
+		return buffer.length - position;
+	}
+
+	/**
+	 * Fetches and formats the next chunk of objects.
+	 * 
+	 * @return <code>false</code> if there's nothing left to be read.
+	 * @throws IOException
+	 */
+	private boolean fill() throws IOException {
+
+		while (position >= buffer.length && finished == false) {
+
+			bytes.reset();
+
+			if (started == false) {
+				writeHeader();
+				started = true;
+			}
+
+			final List<T> chunk = fetchChunk();
+
+			for (T object : chunk) {
+				writeObject(object);
+				nextIndex++;
+			}
+
+			// a short chunk is the last one
+			if (chunk.size() < chunkSize) {
+				writeFooter();
+				finished = true;
+			}
+			else if (keysetSearch != null) {
+				lastKey = keysetSearch.getKey(chunk.get(chunk.size() - 1), sortCriteria);
+			}
+
+			for (T object : chunk) {
+				exported(object);
+			}
+
+			writer.flush();
+			buffer = bytes.toByteArray();
+			position = 0;
+
+		}
+
+		return position < buffer.length;
+
+	}
+
+	private List<T> fetchChunk() {
+
+		List<T> chunk;
+
+		if (lastKey != null) {
+			chunk = keysetSearch.searchAfter(lastKey, false, chunkSize, sortCriteria);
+		}
+		else {
+			chunk = pagedSearch.search(nextIndex, chunkSize, sortCriteria);
+		}
+
+		return chunk;
+
+	}
+
+	private void writeHeader() throws IOException {
+
+		if (format == ExportFormat.CSV) {
+
+			boolean first = true;
+
+			for (PropertyModel property : properties) {
+
+				if (first == false) {
+					writer.write(',');
+				}
+
+				writeCsvValue(property.getLabel());
+				first = false;
+
+			}
+
+			writer.write("\r\n");
+
+		}
+		else {
+			writer.write('[');
+		}
+
+	}
+
+	private void writeFooter() throws IOException {
+
+		if (format == ExportFormat.JSON) {
+			writer.write("]");
+		}
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private void writeObject(T object) throws IOException {
+
+		boolean first = true;
+
+		if (format == ExportFormat.CSV) {
+
+			for (PropertyModel property : properties) {
+
+				if (first == false) {
+					writer.write(',');
+				}
+
+				final Object value = property.getConduit().get(object);
+
+				// numbers are never formulas, so negative ones are kept as they are.
+				if (value instanceof Number) {
+					writeCsvCell(value.toString());
+				}
+				else {
+					writeCsvValue(value != null ? value.toString() : "");
+				}
+
+				first = false;
+
+			}
+
+			writer.write("\r\n");
+
+		}
+		else {
+
+			if (nextIndex > 0) {
+				writer.write(',');
+			}
+
+			writer.write('{');
+
+			for (PropertyModel property : properties) {
+
+				if (first == false) {
+					writer.write(',');
+				}
+
+				writeJsonString(property.getPropertyName());
+				writer.write(':');
+				writeJsonValue(property.getConduit().get(object));
+				first = false;
+
+			}
+
+			writer.write('}');
+
+		}
+
+	}
+
+	private void writeCsvValue(String value) throws IOException {
+
+		if (value.length() > 0 && isFormulaStart(value.charAt(0))) {
+			writeCsvCell("'" + value);
+		}
+		else {
+			writeCsvCell(value);
+		}
+
+	}
+
+	private void writeCsvCell(String value) throws IOException {
+
+		if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+				|| value.indexOf('\r') >= 0) {
+
+			writer.write('"');
+			writer.write(value.replace("\"", "\"\""));
+			writer.write('"');
+
+		}
+		else {
+			writer.write(value);
+		}
+
+	}
+
+	private void writeJsonValue(Object value) throws IOException {
+
+		if (value == null) {
+			writer.write("null");
+		}
+		else if (isNotFinite(value)) {
+			writer.write("null");
+		}
+		else if (value instanceof Number || value instanceof Boolean) {
+			writer.write(value.toString());
+		}
+		else {
+			writeJsonString(value.toString());
+		}
+
+	}
+
+	private static boolean isFormulaStart(char c) {
+		return c == '=' || c == '+' || c == '-' || c == '@';
+	}
+
+	private static boolean isNotFinite(Object value) {
+
+		if (value instanceof Double) {
+			final Double number = (Double) value;
+			return number.isNaN() || number.isInfinite();
+		}
+		else if (value instanceof Float) {
+			final Float number = (Float) value;
+			return number.isNaN() || number.isInfinite();
+		}
+
+		return false;
+
+	}
+
+	private void writeJsonString(String value) throws IOException {
+
+		writer.write('"');
+
+		for (int i = 0; i < value.length(); i++) {
+
+			final char c = value.charAt(i);
+
+			switch (c) {
+
+				case '"':
+					writer.write("\\\"");
+					break;
+
+				case '\\':
+					writer.write("\\\\");
+					break;
+
+				case '\n':
+					writer.write("\\n");
+					break;
+
+				case '\r':
+					writer.write("\\r");
+					break;
+
+				case '\t':
+					writer.write("\\t");
+					break;
+
+				default:
+
+					if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+						writer.write(String.format("\\u%04x", (int) c));
+					}
+					else {
+						writer.write(c);
+					}
+
+			}
+
+		}
+
+		writer.write('"');
+
+	}
+
+}
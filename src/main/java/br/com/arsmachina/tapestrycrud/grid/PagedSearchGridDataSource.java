@@ -16,6 +16,7 @@ package br.com.arsmachina.tapestrycrud.grid;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import org.apache.tapestry5.grid.ColumnSort;
 import org.apache.tapestry5.grid.GridDataSource;
@@ -23,6 +24,9 @@ import org.apache.tapestry5.grid.SortConstraint;
 
 import br.com.arsmachina.controller.Controller;
 import br.com.arsmachina.dao.SortCriterion;
+import br.com.arsmachina.tapestrycrud.services.GridPrefetcher;
+import br.com.arsmachina.tapestrycrud.services.PageCache;
+import br.com.arsmachina.tapestrycrud.services.RowAuthorizer;
 
 /**
  * {@link GridDataSource} implementation using a {@link Controller} instance, specifically its
@@ -43,12 +47,30 @@ public class PagedSearchGridDataSource<T> implements GridDataSource {
 
 	private int firstIndex;
 
+	private KeysetBoundary keysetBoundary;
+
+	private GridPrefetcher prefetcher;
+
+	private int total = -1;
+
+	private PageCache pageCache;
+
+	private long pageCacheVersion;
+
+	private ProjectionSearch<T> projectionSearch;
+
+	private String[] projection;
+
+	private RowAuthorizer rowAuthorizer;
+
 	/**
-	 * Single construtctor of this class.
+	 * Single construtctor of this class. If <code>pagedSearch</code> is also a
+	 * {@link ProjectionSearch}, it is used when a projection is set.
 	 * 
 	 * @param clasz the type of the returned objects. It cannot be null.
 	 * @param pagedSearch a {@link Controller}. It cannot be null.
 	 */
+	@SuppressWarnings("unchecked")
 	public PagedSearchGridDataSource(Class<T> clasz, PagedSearch<T> pagedSearch) {
 
 		if (pagedSearch == null) {
@@ -58,12 +80,63 @@ public class PagedSearchGridDataSource<T> implements GridDataSource {
 		this.pagedSearch = pagedSearch;
 		entityClass = clasz;
 
+		if (pagedSearch instanceof ProjectionSearch) {
+			projectionSearch = (ProjectionSearch<T>) pagedSearch;
+		}
+
 		assert pagedSearch != null;
 		assert entityClass != null;
 
 	}
 
+	/**
+	 * Returns the total number of rows. If it is in the {@link PageCache}, no count is done.
+	 * Once known, the number of rows is kept, so later pages don't count them again.
+	 * 
+	 * @return an <code>int</code>.
+	 */
 	public int getAvailableRows() {
+
+		int rows = total;
+
+		if (rows < 0) {
+
+			if (pageCache != null) {
+
+				final String key = getSearchKey();
+				final Integer count = pageCache.get(entityClass, key);
+
+				if (count != null) {
+					rows = count;
+				}
+				else {
+
+					final long version = pageCache.getVersion(entityClass);
+					rows = countRows();
+					pageCache.put(entityClass, key, rows, version);
+
+				}
+
+			}
+			else {
+				rows = countRows();
+			}
+
+			total = rows;
+
+		}
+
+		return rows;
+
+	}
+
+	/**
+	 * Counts the rows when their number is not known yet. This implementation invokes
+	 * {@link PagedSearch#count()}.
+	 * 
+	 * @return an <code>int</code>.
+	 */
+	protected int countRows() {
 		return pagedSearch.count();
 	}
 
@@ -72,6 +145,90 @@ public class PagedSearchGridDataSource<T> implements GridDataSource {
 		return entityClass;
 	}
 
+	/**
+	 * Defines where the boundaries of the served pages are remembered. When it is set and the
+	 * {@link PagedSearch} is a {@link KeysetSearch}, pages adjacent to the last served one are
+	 * fetched by seeking from its boundary keys instead of by offset, provided the last sort
+	 * criterion is a unique key.
+	 * 
+	 * @param keysetBoundary a {@link KeysetBoundary} or <code>null</code>.
+	 */
+	public void setKeysetBoundary(KeysetBoundary keysetBoundary) {
+		this.keysetBoundary = keysetBoundary;
+	}
+
+	/**
+	 * Defines the {@link GridPrefetcher} used to read the next page ahead. When it is set, each
+	 * page is served from the prefetched pages if possible and, after that, the next page is
+	 * fetched in background using the same sort order. As prefetched objects are loaded in
+	 * another thread, only use it when the displayed properties don't need lazy loading.
+	 * 
+	 * @param prefetcher a {@link GridPrefetcher} or <code>null</code>.
+	 */
+	public void setPrefetcher(GridPrefetcher prefetcher) {
+		this.prefetcher = prefetcher;
+	}
+
+	/**
+	 * Defines the {@link PageCache} used to share pages and row counts between requests. Cached
+	 * objects are used by many threads at once, so only use it when the displayed properties
+	 * don't need lazy loading.
+	 * 
+	 * @param pageCache a {@link PageCache} or <code>null</code>.
+	 */
+	public void setPageCache(PageCache pageCache) {
+		this.pageCache = pageCache;
+	}
+
+	/**
+	 * Defines the {@link RowAuthorizer} that checks the permissions of all the rows of each
+	 * prepared page at once.
+	 * 
+	 * @param rowAuthorizer a {@link RowAuthorizer} or <code>null</code>.
+	 */
+	public void setRowAuthorizer(RowAuthorizer rowAuthorizer) {
+		this.rowAuthorizer = rowAuthorizer;
+	}
+
+	/**
+	 * Defines the {@link ProjectionSearch} used when a projection is set.
+	 * 
+	 * @param projectionSearch a {@link ProjectionSearch} or <code>null</code>.
+	 */
+	public void setProjectionSearch(ProjectionSearch<T> projectionSearch) {
+		this.projectionSearch = projectionSearch;
+	}
+
+	/**
+	 * Defines the properties loaded in the served objects. When it is set and there's a
+	 * {@link ProjectionSearch}, pages are fetched by offset through it and contain lightweight
+	 * objects with only these properties set, so it must include every property read from the
+	 * rows, including the primary key. Keyset searches are not used in this case.
+	 * 
+	 * @param propertyNames a {@link String} array or <code>null</code>.
+	 */
+	public void setProjection(String... propertyNames) {
+		projection = propertyNames;
+	}
+
+	/**
+	 * Tells if the pages are fetched through the {@link ProjectionSearch}.
+	 * 
+	 * @return a <code>boolean</code>.
+	 */
+	private boolean isProjected() {
+		return projection != null && projectionSearch != null;
+	}
+
+	/**
+	 * Returns the {@link PagedSearch} used by this data source.
+	 * 
+	 * @return a {@link PagedSearch}.
+	 */
+	protected final PagedSearch<T> getPagedSearch() {
+		return pagedSearch;
+	}
+
 	public Object getRowValue(int index) {
 		final int position = index - firstIndex;
 		return list.get(position);
@@ -85,7 +242,298 @@ public class PagedSearchGridDataSource<T> implements GridDataSource {
 		sortCriteria = convertSortConstraintToSortCriterion(sortConstraints);
 		
 		final int maximumResults = (endIndex - firstIndex) + 1;
-		list = pagedSearch.search(firstIndex, maximumResults, sortCriteria);
+		final String sortSignature = getSortSignature(sortConstraints);
+		final boolean keyset = isProjected() == false && isKeysetSearchPossible(sortConstraints);
+
+		final String pageKey = getPageKey(firstIndex, maximumResults, sortSignature);
+
+		list = null;
+
+		if (pageCache != null) {
+			list = pageCache.get(entityClass, pageKey);
+			pageCacheVersion = pageCache.getVersion(entityClass);
+		}
+
+		if (list == null && prefetcher != null) {
+			list = prefetcher.take(entityClass, pageKey);
+		}
+
+		if (list == null) {
+
+			if (keyset) {
+				list = keysetSearch(firstIndex, maximumResults, sortSignature, sortCriteria);
+			}
+			else {
+				list = offsetSearch(firstIndex, maximumResults, sortCriteria);
+			}
+
+			// prefetched pages aren't cached, as they may predate changes by other sessions
+			if (pageCache != null) {
+				pageCache.put(entityClass, pageKey, list, pageCacheVersion);
+			}
+
+		}
+
+		if (keyset) {
+			recordKeysetBoundary(firstIndex, sortSignature, sortCriteria);
+		}
+
+		if (rowAuthorizer != null) {
+			rowAuthorizer.prepare(list);
+		}
+
+		// a short page is the last one
+		if (prefetcher != null && list.size() == maximumResults) {
+			prefetchNextPage(firstIndex + maximumResults, maximumResults, sortSignature,
+					sortCriteria, keyset);
+		}
+
+	}
+
+	/**
+	 * Returns a {@link String} that identifies the search of this data source for the
+	 * {@link PageCache}. This implementation uses the {@link PagedSearch} class and the
+	 * projection, if any. Subclasses whose searches have parameters must override this method
+	 * and add them.
+	 * 
+	 * @return a {@link String}.
+	 */
+	protected String getSearchKey() {
+
+		StringBuilder builder = new StringBuilder(pagedSearch.getClass().getName());
+
+		if (isProjected()) {
+
+			builder.append('[');
+
+			for (String propertyName : projection) {
+				builder.append(propertyName).append(',');
+			}
+
+			builder.append(']');
+
+		}
+
+		return builder.toString();
+
+	}
+
+	/**
+	 * Returns a {@link String} that identifies a page of this data source for the
+	 * {@link GridPrefetcher} and the {@link PageCache}: the search key, the page range and the
+	 * sort order.
+	 * 
+	 * @param firstIndex an <code>int</code>.
+	 * @param maximumResults an <code>int</code>.
+	 * @param sortSignature a {@link String}.
+	 * @return a {@link String}.
+	 */
+	private String getPageKey(int firstIndex, int maximumResults, String sortSignature) {
+		return getSearchKey() + ":" + firstIndex + ":" + maximumResults + ":" + sortSignature;
+	}
+
+	/**
+	 * Schedules the fetch of the page following the current one, seeking from the key of the
+	 * last row of the current page when possible.
+	 * 
+	 * @param nextIndex an <code>int</code> with the index of the first row of the next page.
+	 * @param maximumResults an <code>int</code>.
+	 * @param sortSignature a {@link String}.
+	 * @param sortCriteria a {@link SortCriterion} array.
+	 * @param keyset a <code>boolean</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	private void prefetchNextPage(final int nextIndex, final int maximumResults,
+			String sortSignature, final SortCriterion[] sortCriteria, boolean keyset) {
+
+		final Object[] lastKey;
+
+		if (keyset) {
+			lastKey = ((KeysetSearch<T>) pagedSearch).getKey(list.get(list.size() - 1),
+					sortCriteria);
+		}
+		else {
+			lastKey = null;
+		}
+
+		prefetcher.prefetch(entityClass, getPageKey(nextIndex, maximumResults,
+				sortSignature), new Callable<List<T>>() {
+
+			public List<T> call() throws Exception {
+
+				if (lastKey != null) {
+					return ((KeysetSearch<T>) pagedSearch).searchAfter(lastKey, false,
+							maximumResults, sortCriteria);
+				}
+				else if (isProjected()) {
+					return projectionSearch.searchProjection(projection, nextIndex,
+							maximumResults, sortCriteria);
+				}
+				else {
+					return pagedSearch.search(nextIndex, maximumResults, sortCriteria);
+				}
+
+			}
+
+		});
+
+	}
+
+	/**
+	 * Tells if the objects can be fetched using a {@link KeysetSearch}.
+	 * 
+	 * @param sortConstraints a {@link List} of {@link SortConstraint}.
+	 * @return a <code>boolean</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean isKeysetSearchPossible(List<SortConstraint> sortConstraints) {
+
+		boolean possible = false;
+
+		if (keysetBoundary != null && pagedSearch instanceof KeysetSearch) {
+
+			String lastProperty = null;
+
+			for (SortConstraint sortConstraint : sortConstraints) {
+
+				if (sortConstraint.getColumnSort() != ColumnSort.UNSORTED) {
+					lastProperty = sortConstraint.getPropertyModel().getPropertyName();
+				}
+
+			}
+
+			possible = lastProperty != null
+					&& ((KeysetSearch<T>) pagedSearch).isUniqueKey(lastProperty);
+
+		}
+
+		return possible;
+
+	}
+
+	/**
+	 * Fetches a page seeking from the remembered boundary keys when the requested page is
+	 * adjacent to the last served one. Otherwise, it falls back to an offset search.
+	 * 
+	 * @param firstIndex an <code>int</code>.
+	 * @param maximumResults an <code>int</code>.
+	 * @param sortSignature a {@link String}.
+	 * @param sortCriteria a {@link SortCriterion} array.
+	 * @return a {@link List} of <code>T</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	private List<T> keysetSearch(int firstIndex, int maximumResults, String sortSignature,
+			SortCriterion[] sortCriteria) {
+
+		final KeysetSearch<T> keysetSearch = (KeysetSearch<T>) pagedSearch;
+		List<T> result = null;
+
+		if (keysetBoundary.matches(sortSignature)) {
+
+			// next page
+			if (firstIndex == keysetBoundary.getLastIndex() + 1) {
+				result = keysetSearch.searchAfter(keysetBoundary.getLastKey(), false,
+						maximumResults, sortCriteria);
+			}
+			// same page
+			else if (firstIndex == keysetBoundary.getFirstIndex()) {
+				result = keysetSearch.searchAfter(keysetBoundary.getFirstKey(), true,
+						maximumResults, sortCriteria);
+			}
+			// previous page
+			else if (firstIndex + maximumResults == keysetBoundary.getFirstIndex()) {
+				result = keysetSearch.searchBefore(keysetBoundary.getFirstKey(), maximumResults,
+						sortCriteria);
+			}
+
+		}
+
+		// no seek key available for the requested page
+		if (result == null) {
+			result = offsetSearch(firstIndex, maximumResults, sortCriteria);
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * Fetches a page by offset, through the {@link ProjectionSearch} if there's a projection.
+	 * 
+	 * @param firstIndex an <code>int</code>.
+	 * @param maximumResults an <code>int</code>.
+	 * @param sortCriteria a {@link SortCriterion} array.
+	 * @return a {@link List} of <code>T</code>.
+	 */
+	private List<T> offsetSearch(int firstIndex, int maximumResults, SortCriterion[] sortCriteria) {
+
+		List<T> result;
+
+		if (isProjected()) {
+			result = projectionSearch.searchProjection(projection, firstIndex, maximumResults,
+					sortCriteria);
+		}
+		else {
+			result = pagedSearch.search(firstIndex, maximumResults, sortCriteria);
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * Remembers the boundaries of the current page.
+	 * 
+	 * @param firstIndex an <code>int</code>.
+	 * @param sortSignature a {@link String}.
+	 * @param sortCriteria a {@link SortCriterion} array.
+	 */
+	@SuppressWarnings("unchecked")
+	private void recordKeysetBoundary(int firstIndex, String sortSignature,
+			SortCriterion[] sortCriteria) {
+
+		final KeysetSearch<T> keysetSearch = (KeysetSearch<T>) pagedSearch;
+
+		if (list.isEmpty()) {
+			keysetBoundary.clear();
+		}
+		else {
+
+			final Object[] firstKey = keysetSearch.getKey(list.get(0), sortCriteria);
+			final Object[] lastKey = keysetSearch.getKey(list.get(list.size() - 1),
+					sortCriteria);
+
+			keysetBoundary.record(sortSignature, firstIndex, firstIndex + list.size() - 1,
+					firstKey, lastKey);
+
+		}
+
+	}
+
+	/**
+	 * Returns a {@link String} that identifies a sort order.
+	 * 
+	 * @param sortConstraints a {@link List} of {@link SortConstraint}.
+	 * @return a {@link String}.
+	 */
+	private static String getSortSignature(List<SortConstraint> sortConstraints) {
+
+		StringBuilder builder = new StringBuilder();
+
+		for (SortConstraint sortConstraint : sortConstraints) {
+
+			final ColumnSort columnSort = sortConstraint.getColumnSort();
+
+			if (columnSort != ColumnSort.UNSORTED) {
+
+				builder.append(sortConstraint.getPropertyModel().getPropertyName());
+				builder.append(columnSort == ColumnSort.ASCENDING ? " asc," : " desc,");
+
+			}
+
+		}
+
+		return builder.toString();
 
 	}
 
@@ -117,7 +565,7 @@ public class PagedSearchGridDataSource<T> implements GridDataSource {
 	
 			}
 			
-			sortCriteria = list.toArray(new SortCriterion[sortConstraints.size()]);
+			sortCriteria = list.toArray(new SortCriterion[list.size()]);
 			
 		}
 		else {
@@ -32,23 +32,29 @@ import org.apache.tapestry5.ioc.Messages;
 import org.apache.tapestry5.ioc.MethodAdvice;
 import org.apache.tapestry5.ioc.ObjectLocator;
 import org.apache.tapestry5.ioc.OrderedConfiguration;
+import org.apache.tapestry5.ioc.ScopeConstants;
 import org.apache.tapestry5.ioc.ServiceBinder;
 import org.apache.tapestry5.ioc.annotations.Inject;
+import org.apache.tapestry5.ioc.annotations.Scope;
 import org.apache.tapestry5.ioc.annotations.Symbol;
 import org.apache.tapestry5.ioc.services.AspectDecorator;
 import org.apache.tapestry5.ioc.services.AspectInterceptorBuilder;
 import org.apache.tapestry5.ioc.services.ChainBuilder;
 import org.apache.tapestry5.ioc.services.ClassNameLocator;
+import org.apache.tapestry5.ioc.services.PerthreadManager;
+import org.apache.tapestry5.ioc.services.RegistryShutdownHub;
 import org.apache.tapestry5.ioc.services.TypeCoercer;
 import org.apache.tapestry5.services.BeanBlockContribution;
 import org.apache.tapestry5.services.BeanModelSource;
 import org.apache.tapestry5.services.DataTypeAnalyzer;
 import org.apache.tapestry5.services.LibraryMapping;
+import org.apache.tapestry5.services.Request;
 import org.apache.tapestry5.services.ValueEncoderFactory;
 import org.apache.tapestry5.services.ValueEncoderSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import br.com.arsmachina.authorization.Authorizer;
 import br.com.arsmachina.controller.Controller;
 import br.com.arsmachina.module.DefaultModule;
 import br.com.arsmachina.module.Module;
@@ -71,23 +77,37 @@ import br.com.arsmachina.tapestrycrud.selectmodel.SelectModelFactory;
 import br.com.arsmachina.tapestrycrud.selectmodel.SingleTypeSelectModelFactory;
 import br.com.arsmachina.tapestrycrud.selectmodel.impl.SelectModelFactoryImpl;
 import br.com.arsmachina.tapestrycrud.services.ActivationContextEncoderSource;
+import br.com.arsmachina.tapestrycrud.services.BatchAuthorizer;
 import br.com.arsmachina.tapestrycrud.services.BeanModelCustomizerSource;
 import br.com.arsmachina.tapestrycrud.services.EncoderSource;
+import br.com.arsmachina.tapestrycrud.services.EntityChangeListener;
+import br.com.arsmachina.tapestrycrud.services.EntityPageDescriptorSource;
 import br.com.arsmachina.tapestrycrud.services.FormValidationSupport;
+import br.com.arsmachina.tapestrycrud.services.GridPrefetcher;
 import br.com.arsmachina.tapestrycrud.services.LabelEncoderSource;
+import br.com.arsmachina.tapestrycrud.services.PageCache;
 import br.com.arsmachina.tapestrycrud.services.PageUtil;
 import br.com.arsmachina.tapestrycrud.services.PrimaryKeyEncoderSource;
+import br.com.arsmachina.tapestrycrud.services.RowAuthorizer;
+import br.com.arsmachina.tapestrycrud.services.RowCountCache;
+import br.com.arsmachina.tapestrycrud.services.SelectModelCache;
 import br.com.arsmachina.tapestrycrud.services.TapestryCrudModuleFactory;
 import br.com.arsmachina.tapestrycrud.services.TapestryCrudModuleService;
 import br.com.arsmachina.tapestrycrud.services.TreeServiceSource;
 import br.com.arsmachina.tapestrycrud.services.impl.ActivationContextEncoderSourceImpl;
 import br.com.arsmachina.tapestrycrud.services.impl.BeanModelCustomizerSourceImpl;
 import br.com.arsmachina.tapestrycrud.services.impl.EncoderSourceImpl;
+import br.com.arsmachina.tapestrycrud.services.impl.EntityPageDescriptorSourceImpl;
 import br.com.arsmachina.tapestrycrud.services.impl.FormValidationSupportImpl;
+import br.com.arsmachina.tapestrycrud.services.impl.GridPrefetcherImpl;
 import br.com.arsmachina.tapestrycrud.services.impl.LabelEncoderSourceImpl;
+import br.com.arsmachina.tapestrycrud.services.impl.PageCacheImpl;
 import br.com.arsmachina.tapestrycrud.services.impl.PageUtilImpl;
 import br.com.arsmachina.tapestrycrud.services.impl.PrimaryKeyEncoderSourceImpl;
 import br.com.arsmachina.tapestrycrud.services.impl.PrimaryKeyEncoderValueEncoder;
+import br.com.arsmachina.tapestrycrud.services.impl.RowAuthorizerImpl;
+import br.com.arsmachina.tapestrycrud.services.impl.RowCountCacheImpl;
+import br.com.arsmachina.tapestrycrud.services.impl.SelectModelCacheImpl;
 import br.com.arsmachina.tapestrycrud.services.impl.TapestryCrudModuleFactoryImpl;
 import br.com.arsmachina.tapestrycrud.services.impl.TapestryCrudModuleServiceImpl;
 import br.com.arsmachina.tapestrycrud.services.impl.TreeServiceSourceImpl;
@@ -118,6 +138,85 @@ public class TapestryCrudIoCModule {
 	final public static String TAPESTRY_CRUD_ASSET_PREFIX =
 		"tapestry-crud/" + TAPESTRY_CRUD_VERSION;
 
+	/**
+	 * Symbol that defines the maximum time, in milliseconds, an entity class row count is cached
+	 * by {@link RowCountCache} before being recounted. Zero disables the cache.
+	 */
+	final public static String ROW_COUNT_CACHE_MAXIMUM_AGE_SYMBOL =
+		"tapestry-crud.row-count-cache.maximum-age";
+
+	/**
+	 * Symbol that defines the number of threads used by {@link GridPrefetcher} to read grid
+	 * pages ahead.
+	 */
+	final public static String GRID_PREFETCH_THREADS_SYMBOL =
+		"tapestry-crud.grid-prefetch.threads";
+
+	/**
+	 * Symbol that defines the maximum number of grid pages read ahead kept per session by
+	 * {@link GridPrefetcher}. Zero disables read-ahead.
+	 */
+	final public static String GRID_PREFETCH_BUFFER_SIZE_SYMBOL =
+		"tapestry-crud.grid-prefetch.buffer-size";
+
+	/**
+	 * Symbol that defines the maximum time, in milliseconds, a grid page read ahead by
+	 * {@link GridPrefetcher} is kept before being discarded.
+	 */
+	final public static String GRID_PREFETCH_MAXIMUM_AGE_SYMBOL =
+		"tapestry-crud.grid-prefetch.maximum-age";
+
+	/**
+	 * Symbol that defines the maximum number of pages and row counts kept by {@link PageCache}.
+	 * Zero disables the cache.
+	 */
+	final public static String PAGE_CACHE_SIZE_SYMBOL = "tapestry-crud.page-cache.size";
+
+	/**
+	 * Symbol that defines the maximum time, in milliseconds, a page or row count is kept by
+	 * {@link PageCache}.
+	 */
+	final public static String PAGE_CACHE_MAXIMUM_AGE_SYMBOL =
+		"tapestry-crud.page-cache.maximum-age";
+
+	/**
+	 * Symbol that defines the number of objects fetched at once when a listing page exports
+	 * its objects.
+	 */
+	final public static String EXPORT_CHUNK_SIZE_SYMBOL = "tapestry-crud.export.chunk-size";
+
+	/**
+	 * Symbol that defines the default maximum time, in milliseconds, the {@link SelectModel}
+	 * with all the objects of an entity class is cached by {@link SelectModelCache}. Zero
+	 * disables the cache for the entity classes whose {@link TapestryCrudModule} doesn't define
+	 * it.
+	 */
+	final public static String SELECT_MODEL_CACHE_MAXIMUM_AGE_SYMBOL =
+		"tapestry-crud.select-model-cache.maximum-age";
+
+	/**
+	 * Symbol that defines the maximum number of options of a {@link SelectModel} cached by
+	 * {@link SelectModelCache}. Larger models are not cached.
+	 */
+	final public static String SELECT_MODEL_CACHE_MAXIMUM_SIZE_SYMBOL =
+		"tapestry-crud.select-model-cache.maximum-size";
+
+	/**
+	 * Symbol that defines whether the cacheable {@link SelectModel}s are created when the
+	 * registry starts up.
+	 */
+	final public static String SELECT_MODEL_CACHE_WARM_UP_SYMBOL =
+		"tapestry-crud.select-model-cache.warm-up";
+
+	/**
+	 * Symbol that defines the number of objects above which the properties of an entity type
+	 * are edited with the <code>EntityAutocomplete</code> component instead of a
+	 * <code>Select</code>. Only entity classes whose controllers implement
+	 * <code>LabelSearch</code> are considered. Zero disables it.
+	 */
+	final public static String ENTITY_AUTOCOMPLETE_THRESHOLD_SYMBOL =
+		"tapestry-crud.entity-autocomplete.threshold";
+
 	final private static Logger LOGGER =
 		LoggerFactory.getLogger(TapestryCrudIoCModule.class);
 
@@ -135,6 +234,208 @@ public class TapestryCrudIoCModule {
 
 	}
 
+	/**
+	 * Contributes the default values of the Tapestry CRUD symbols.
+	 * 
+	 * @param configuration a {@link MappedConfiguration}.
+	 */
+	public static void contributeFactoryDefaults(
+			MappedConfiguration<String, String> configuration) {
+
+		configuration.add(ROW_COUNT_CACHE_MAXIMUM_AGE_SYMBOL, "60000");
+		configuration.add(GRID_PREFETCH_THREADS_SYMBOL, "2");
+		configuration.add(GRID_PREFETCH_BUFFER_SIZE_SYMBOL, "2");
+		configuration.add(GRID_PREFETCH_MAXIMUM_AGE_SYMBOL, "30000");
+		configuration.add(PAGE_CACHE_SIZE_SYMBOL, "500");
+		configuration.add(PAGE_CACHE_MAXIMUM_AGE_SYMBOL, "300000");
+		configuration.add(EXPORT_CHUNK_SIZE_SYMBOL, "500");
+		configuration.add(SELECT_MODEL_CACHE_MAXIMUM_AGE_SYMBOL, "0");
+		configuration.add(SELECT_MODEL_CACHE_MAXIMUM_SIZE_SYMBOL, "1000");
+		configuration.add(SELECT_MODEL_CACHE_WARM_UP_SYMBOL, "false");
+		configuration.add(ENTITY_AUTOCOMPLETE_THRESHOLD_SYMBOL, "1000");
+
+	}
+
+	/**
+	 * Builds the {@link RowCountCache} service.
+	 * 
+	 * @param maximumAge a <code>long</code>.
+	 * @return a {@link RowCountCache}.
+	 */
+	public static RowCountCache buildRowCountCache(
+			@Inject @Symbol(ROW_COUNT_CACHE_MAXIMUM_AGE_SYMBOL) long maximumAge) {
+
+		return new RowCountCacheImpl(maximumAge);
+
+	}
+
+	/**
+	 * Builds the {@link GridPrefetcher} service.
+	 * 
+	 * @param request a {@link Request}.
+	 * @param perthreadManager a {@link PerthreadManager}.
+	 * @param registryShutdownHub a {@link RegistryShutdownHub}.
+	 * @param threads an <code>int</code>.
+	 * @param bufferSize an <code>int</code>.
+	 * @param maximumAge a <code>long</code>.
+	 * @return a {@link GridPrefetcher}.
+	 */
+	public static GridPrefetcher buildGridPrefetcher(Request request,
+			PerthreadManager perthreadManager, RegistryShutdownHub registryShutdownHub,
+			@Inject @Symbol(GRID_PREFETCH_THREADS_SYMBOL) int threads,
+			@Inject @Symbol(GRID_PREFETCH_BUFFER_SIZE_SYMBOL) int bufferSize,
+			@Inject @Symbol(GRID_PREFETCH_MAXIMUM_AGE_SYMBOL) long maximumAge) {
+
+		return new GridPrefetcherImpl(request, perthreadManager, registryShutdownHub, threads,
+				bufferSize, maximumAge);
+
+	}
+
+	/**
+	 * Builds the {@link PageCache} service.
+	 * 
+	 * @param tapestryCrudModuleService a {@link TapestryCrudModuleService}.
+	 * @param size an <code>int</code>.
+	 * @param maximumAge a <code>long</code>.
+	 * @return a {@link PageCache}.
+	 */
+	public static PageCache buildPageCache(TapestryCrudModuleService tapestryCrudModuleService,
+			@Inject @Symbol(PAGE_CACHE_SIZE_SYMBOL) int size,
+			@Inject @Symbol(PAGE_CACHE_MAXIMUM_AGE_SYMBOL) long maximumAge) {
+
+		return new PageCacheImpl(tapestryCrudModuleService, size, maximumAge);
+
+	}
+
+	/**
+	 * Builds the {@link SelectModelCache} service.
+	 * 
+	 * @param tapestryCrudModuleService a {@link TapestryCrudModuleService}.
+	 * @param maximumSize an <code>int</code>.
+	 * @param maximumAge a <code>long</code>.
+	 * @return a {@link SelectModelCache}.
+	 */
+	public static SelectModelCache buildSelectModelCache(
+			TapestryCrudModuleService tapestryCrudModuleService,
+			@Inject @Symbol(SELECT_MODEL_CACHE_MAXIMUM_SIZE_SYMBOL) int maximumSize,
+			@Inject @Symbol(SELECT_MODEL_CACHE_MAXIMUM_AGE_SYMBOL) long maximumAge) {
+
+		return new SelectModelCacheImpl(tapestryCrudModuleService, maximumSize, maximumAge);
+
+	}
+
+	/**
+	 * Builds the {@link RowAuthorizer} service. As it memoizes decisions for the current request
+	 * only, it is per-thread. Its configuration contains the {@link BatchAuthorizer}s used to
+	 * check whole grid pages at once. It is empty by default.
+	 * 
+	 * @param authorizer an {@link Authorizer}.
+	 * @param batchAuthorizers a {@link Collection} of {@link BatchAuthorizer}s.
+	 * @return a {@link RowAuthorizer}.
+	 */
+	@Scope(ScopeConstants.PERTHREAD)
+	public static RowAuthorizer buildRowAuthorizer(Authorizer authorizer,
+			Collection<BatchAuthorizer> batchAuthorizers) {
+		return new RowAuthorizerImpl(authorizer, batchAuthorizers);
+	}
+
+	/**
+	 * Builds the {@link EntityChangeListener} service, which invokes all the contributed
+	 * listeners.
+	 * 
+	 * @param contributions a {@link List} of {@link EntityChangeListener}.
+	 * @param chainBuilder a {@link ChainBuilder}.
+	 * @return an {@link EntityChangeListener}.
+	 */
+	public static EntityChangeListener buildEntityChangeListener(
+			final List<EntityChangeListener> contributions,
+			ChainBuilder chainBuilder) {
+
+		return chainBuilder.build(EntityChangeListener.class, contributions);
+
+	}
+
+	/**
+	 * Contributes the {@link RowCountCache}, the {@link GridPrefetcher}, the {@link PageCache},
+	 * the {@link TreeServiceSource} and the {@link SelectModelCache} to the
+	 * {@link EntityChangeListener} service, so cached counts are updated and stale pages, trees
+	 * and select models are discarded when objects are saved or removed.
+	 * 
+	 * @param configuration an {@link OrderedConfiguration}.
+	 * @param rowCountCache a {@link RowCountCache}.
+	 * @param gridPrefetcher a {@link GridPrefetcher}.
+	 * @param pageCache a {@link PageCache}.
+	 * @param treeServiceSource a {@link TreeServiceSource}.
+	 * @param selectModelCache a {@link SelectModelCache}.
+	 */
+	public static void contributeEntityChangeListener(
+			OrderedConfiguration<EntityChangeListener> configuration,
+			RowCountCache rowCountCache, GridPrefetcher gridPrefetcher, PageCache pageCache,
+			TreeServiceSource treeServiceSource, SelectModelCache selectModelCache) {
+
+		configuration.add("RowCountCache", rowCountCache);
+		configuration.add("GridPrefetcher", gridPrefetcher);
+		configuration.add("PageCache", pageCache);
+		configuration.add("TreeServiceSource", treeServiceSource);
+		configuration.add("SelectModelCache", selectModelCache);
+
+	}
+
+	/**
+	 * Creates the cacheable {@link SelectModel}s when the registry starts up if the
+	 * {@link #SELECT_MODEL_CACHE_WARM_UP_SYMBOL} symbol is <code>true</code>.
+	 * 
+	 * @param configuration an {@link OrderedConfiguration}.
+	 * @param selectModelFactory a {@link SelectModelFactory}.
+	 * @param selectModelCache a {@link SelectModelCache}.
+	 * @param entitySource an {@link EntitySource}.
+	 * @param controllerSource a {@link ControllerSource}.
+	 * @param labelEncoderSource a {@link LabelEncoderSource}.
+	 * @param perthreadManager a {@link PerthreadManager}.
+	 * @param warmUp a <code>boolean</code>.
+	 */
+	public static void contributeRegistryStartup(OrderedConfiguration<Runnable> configuration,
+			final SelectModelFactory selectModelFactory, final SelectModelCache selectModelCache,
+			final EntitySource entitySource, final ControllerSource controllerSource,
+			final LabelEncoderSource labelEncoderSource, final PerthreadManager perthreadManager,
+			@Inject @Symbol(SELECT_MODEL_CACHE_WARM_UP_SYMBOL) boolean warmUp) {
+
+		if (warmUp) {
+
+			configuration.add("SelectModelCacheWarmUp", new Runnable() {
+
+				public void run() {
+
+					try {
+
+						for (Class<?> entityClass : entitySource.getEntityClasses()) {
+
+							// the same types contributeSelectModelFactory() registers.
+							if (selectModelCache.isEnabled(entityClass)
+									&& controllerSource.get(entityClass) != null
+									&& labelEncoderSource.get(entityClass) != null) {
+								selectModelFactory.create(entityClass);
+							}
+
+						}
+
+					}
+					catch (RuntimeException e) {
+						LOGGER.error("Exception warming up the select model cache", e);
+					}
+					finally {
+						// releases the per-thread resources, such as the Hibernate session.
+						perthreadManager.cleanup();
+					}
+
+				}
+
+			});
+
+		}
+
+	}
+
 	/**
 	 * Decoratesthe {@link BeanModelSource} to apply the customizations
 	 * implemented by {@link BeanModelCustomizer}s.
@@ -230,13 +531,17 @@ public class TapestryCrudIoCModule {
 	 * Builds the {@link TreeServiceSource} service.
 	 * 
 	 * @param contributions a {@link Map}.
+	 * @param controllerSource a {@link ControllerSource}.
+	 * @param primaryKeyEncoderSource a {@link PrimaryKeyEncoderSource}.
 	 * @return a {@link TreeServiceSource}.
 	 */
 	@SuppressWarnings("unchecked")
 	public static TreeServiceSource buildTreeServiceSource(
-			Map<Class, SingleTypeTreeService> contributions) {
+			Map<Class, SingleTypeTreeService> contributions, ControllerSource controllerSource,
+			PrimaryKeyEncoderSource primaryKeyEncoderSource) {
 
-		return new TreeServiceSourceImpl(contributions);
+		return new TreeServiceSourceImpl(contributions, controllerSource,
+				primaryKeyEncoderSource);
 
 	}
 
@@ -392,6 +697,26 @@ public class TapestryCrudIoCModule {
 
 	}
 
+	/**
+	 * Builds the {@link EntityPageDescriptorSource} service.
+	 * 
+	 * @param controllerSource a {@link ControllerSource}.
+	 * @param primaryKeyTypeService a {@link PrimaryKeyTypeService}.
+	 * @param primaryKeyEncoderSource a {@link PrimaryKeyEncoderSource}.
+	 * @param activationContextEncoderSource an {@link ActivationContextEncoderSource}.
+	 * @return an {@link EntityPageDescriptorSource}.
+	 */
+	public static EntityPageDescriptorSource buildEntityPageDescriptorSource(
+			ControllerSource controllerSource,
+			PrimaryKeyTypeService primaryKeyTypeService,
+			PrimaryKeyEncoderSource primaryKeyEncoderSource,
+			ActivationContextEncoderSource activationContextEncoderSource) {
+
+		return new EntityPageDescriptorSourceImpl(controllerSource, primaryKeyTypeService,
+				primaryKeyEncoderSource, activationContextEncoderSource);
+
+	}
+
 	/**
 	 * Builds the {@link LabelSource} service.
 	 * 
@@ -439,12 +764,16 @@ public class TapestryCrudIoCModule {
 	 * Builds the {@link SelectModelFactory} service.
 	 * 
 	 * @param contributions a {@link Map<Class, SingleTypeSelectModelFactory>}.
+	 * @param selectModelCache a {@link SelectModelCache}.
 	 * @return a {@link SelectModelFactory}.
 	 */
 	@SuppressWarnings("unchecked")
 	public static SelectModelFactory buildSelectModelFactory(
-			Map<Class, SingleTypeSelectModelFactory> contributions) {
-		return new SelectModelFactoryImpl(contributions);
+			Map<Class, SingleTypeSelectModelFactory> contributions,
+			SelectModelCache selectModelCache) {
+
+		return new SelectModelFactoryImpl(contributions, selectModelCache);
+
 	}
 
 	/**
@@ -521,7 +850,7 @@ public class TapestryCrudIoCModule {
 	public static void contributeSelectModelFactory(
 			MappedConfiguration<Class, SingleTypeSelectModelFactory> contributions,
 			ControllerSource controllerSource, EntitySource entitySource,
-			LabelEncoderSource labelEncoderSource) {
+			LabelEncoderSource labelEncoderSource, PrimaryKeyTypeService primaryKeyTypeService) {
 
 		final Set<Class<?>> entityClasses = entitySource.getEntityClasses();
 
@@ -534,7 +863,8 @@ public class TapestryCrudIoCModule {
 
 				SingleTypeSelectModelFactory stsmf =
 					new DefaultSingleTypeSelectModelFactory(controller,
-							labelEncoder);
+							labelEncoder,
+							primaryKeyTypeService.getPrimaryKeyPropertyName(entityClass));
 
 				contributions.add(entityClass, stsmf);
 
@@ -832,6 +1162,12 @@ public class TapestryCrudIoCModule {
 		configuration.add(new BeanBlockContribution(Constants.ENTITY_DATA_TYPE,
 				Constants.BEAN_MODEL_BLOCKS_PAGE, "viewEntity", false));
 
+		configuration.add(new BeanBlockContribution(Constants.LARGE_ENTITY_DATA_TYPE,
+				Constants.BEAN_MODEL_BLOCKS_PAGE, "editLargeEntity", true));
+
+		configuration.add(new BeanBlockContribution(Constants.LARGE_ENTITY_DATA_TYPE,
+				Constants.BEAN_MODEL_BLOCKS_PAGE, "viewEntity", false));
+
 	}
 	
 	/**
@@ -15,7 +15,11 @@
 package br.com.arsmachina.tapestrycrud.mixins;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.tapestry5.Asset;
 import org.apache.tapestry5.BindingConstants;
@@ -34,8 +38,9 @@ import org.apache.tapestry5.ioc.annotations.Inject;
 
 import br.com.arsmachina.tapestrycrud.Constants;
 import br.com.arsmachina.tapestrycrud.services.TreeServiceSource;
+import br.com.arsmachina.tapestrycrud.tree.BulkSingleTypeTreeService;
+import br.com.arsmachina.tapestrycrud.tree.CompactTree;
 import br.com.arsmachina.tapestrycrud.tree.SingleTypeTreeService;
-import br.com.arsmachina.tapestrycrud.tree.TreeNode;
 
 /**
  * Mixin that provides a tree table-like functionality to {@link Grid}s. If you need to
@@ -56,6 +61,13 @@ public class TreeGrid {
 	@Parameter(allowNull = false)
 	@SuppressWarnings("unchecked")
 	private SingleTypeTreeService treeService;
+
+	/**
+	 * Defines whether the tree nodes are taken from the snapshot cached by
+	 * {@link TreeServiceSource} instead of being built on each render.
+	 */
+	@Parameter(value = "false")
+	private boolean cached;
 	
 	@Parameter(defaultPrefix = BindingConstants.ASSET, value = Constants.NO_CHILDREN_NODE_IMAGE)
 	private Asset noChildrenIcon;
@@ -100,7 +112,10 @@ public class TreeGrid {
 
 	/**
 	 * Generates the JavaScript code that will add CSS classes to the grid's
-	 * rows.
+	 * rows. Only the rows of the current page are read from the data source. The level of each
+	 * row is computed from its parent chain, shared by all the rows of the page, and whether it
+	 * has children is checked for all the rows at once, so no subtree is ever built and the cost
+	 * depends on the rows shown only.
 	 */
 	@AfterRender
 	@SuppressWarnings("unchecked")
@@ -117,35 +132,80 @@ public class TreeGrid {
 		
 			final Element element = writer.getElement();
 			final Element table = firstChild("table", "t-data-grid", element);
-			final List<Element> tableChildren = childElements(table);
+			final List<Element> tableChildren = table != null ? childElements(table) : null;
 			
-			if (tableChildren.size() > 0) {
+			if (tableChildren != null && tableChildren.size() > 1) {
 			
 				final Element tbody = tableChildren.get(1);
 				final List<Element> rows = childElements(tbody);
 	
 				final GridDataSource dataSource = grid.getDataSource();
-				int rowNumber = dataSource.getAvailableRows();
-				List<Object> objects = new ArrayList<Object>();
+				final int firstIndex = (grid.getCurrentPage() - 1) * grid.getRowsPerPage();
+				final int rowNumber =
+					Math.min(rows.size(), dataSource.getAvailableRows() - firstIndex);
+				
+				List<Object> objects = new ArrayList<Object>(rowNumber);
+				
+				for (int i = 0; i < rowNumber; i++) {
+					objects.add(dataSource.getRowValue(firstIndex + i));
+				}
+				
+				final RowNode[] nodes = new RowNode[rowNumber];
+				
+				if (cached) {
+					
+					final Class beanType = grid.getDataModel().getBeanType();
+					final CompactTree tree = treeServiceSource.getSnapshot(beanType).getTree();
+					
+					for (int i = 0; i < rowNumber; i++) {
+						
+						final int node = tree.indexOf(objects.get(i));
+						
+						if (node >= 0) {
+							nodes[i] = new RowNode(tree.getLevel(node), tree.hasChildren(node));
+						}
+						
+					}
+					
+				}
+				
+				// the rows that are not in the cached trees, if any.
+				final List<Object> pending = new ArrayList<Object>(rowNumber);
+				final List<Integer> positions = new ArrayList<Integer>(rowNumber);
 				
 				for (int i = 0; i < rowNumber; i++) {
-					objects.add(dataSource.getRowValue(i));
+					
+					if (nodes[i] == null) {
+						pending.add(objects.get(i));
+						positions.add(i);
+					}
+					
 				}
 				
-				List<TreeNode<?>> treeNodes = treeService.buildTreeNodeList(objects);
+				if (pending.isEmpty() == false) {
+					
+					final boolean[] hasChildren = hasChildren(pending);
+					final Map<Object, Integer> levels = new HashMap<Object, Integer>();
+					
+					for (int i = 0; i < pending.size(); i++) {
+						nodes[positions.get(i)] =
+							new RowNode(getLevel(pending.get(i), levels), hasChildren[i]);
+					}
+					
+				}
 				
 				for (int i = 0; i < rowNumber; i++) {
 					
-					Object object = dataSource.getRowValue(i);
 					Element tr = rows.get(i);
 					Element firstTd = childElements(tr).get(0);
 					
-					final TreeNode node = treeService.find(object, treeNodes);
-					String level = "level" + node.getLevel();
+					RowNode node = nodes[i];
+					
+					String level = "level" + node.level;
 					
 					firstTd.addClassName(level);
 					
-					Asset asset = node.getChildren().size() == 0 ? noChildrenIcon : hasChildrenIcon;
+					Asset asset = node.hasChildren ? hasChildrenIcon : noChildrenIcon;
 					firstTd.elementAt(0, "img", "src", asset.toClientURL());
 					
 				}
@@ -155,6 +215,72 @@ public class TreeGrid {
 		}
 
 	}
+
+	/**
+	 * Tells which of some objects have children, all at once if the tree service implements
+	 * {@link BulkSingleTypeTreeService}. Otherwise, the tree node of each object is built.
+	 * 
+	 * @param objects a {@link List}.
+	 * @return a <code>boolean</code> array.
+	 */
+	@SuppressWarnings("unchecked")
+	private boolean[] hasChildren(List<Object> objects) {
+
+		if (treeService instanceof BulkSingleTypeTreeService) {
+			return ((BulkSingleTypeTreeService) treeService).hasChildren(objects);
+		}
+
+		final boolean[] result = new boolean[objects.size()];
+
+		for (int i = 0; i < result.length; i++) {
+			result[i] = treeService.buildTreeNode(objects.get(i)).getChildren().isEmpty() == false;
+		}
+
+		return result;
+
+	}
+
+	/**
+	 * Returns the level of a given object in its tree, walking up its parent chain only until
+	 * an object whose level is already known. Root objects have level 1.
+	 * 
+	 * @param object an {@link Object}.
+	 * @param levels a {@link Map} with the levels already computed for the current page. The
+	 * levels of all the objects in the walked chain are added to it.
+	 * @return an <code>int</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	private int getLevel(Object object, Map<Object, Integer> levels) {
+
+		final List<Object> chain = new ArrayList<Object>();
+		final Set<Object> visited = new HashSet<Object>();
+		Integer known = null;
+		Object current = object;
+
+		while (current != null) {
+
+			known = levels.get(current);
+
+			// a corrupt hierarchy may have cycles.
+			if (known != null || visited.add(current) == false) {
+				break;
+			}
+
+			chain.add(current);
+			current = treeService.isRoot(current) ? null : treeService.getParent(current);
+
+		}
+
+		int level = known != null ? known : 0;
+
+		for (int i = chain.size() - 1; i >= 0; i--) {
+			level++;
+			levels.put(chain.get(i), level);
+		}
+
+		return levels.get(object);
+
+	}
 	
 	private Element firstChild(String tag, Element element) {
 
@@ -206,4 +332,20 @@ public class TreeGrid {
 
 	}
 
+	/**
+	 * The level of a row object and whether it has children.
+	 */
+	final private static class RowNode {
+
+		final private int level;
+
+		final private boolean hasChildren;
+
+		RowNode(int level, boolean hasChildren) {
+			this.level = level;
+			this.hasChildren = hasChildren;
+		}
+
+	}
+
 }
@@ -0,0 +1,46 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.module;
+
+/**
+ * Optional interface that {@link TapestryCrudModule} implementations can also implement to
+ * define how the objects of their entity classes are cached. Modules that don't implement it
+ * get the default values: no page cache and the
+ * <code>tapestry-crud.select-model-cache.maximum-age</code> symbol value for select models.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public interface CacheableTapestryCrudModule {
+
+	/**
+	 * Tells if the listing pages of a given entity class can be cached and shared between
+	 * requests by the <code>PageCache</code> service.
+	 * 
+	 * @param entityClass a {@link Class}. It cannot be null.
+	 * @return a <code>boolean</code>.
+	 */
+	boolean isPageCacheEnabled(Class<?> entityClass);
+
+	/**
+	 * Returns the maximum time, in milliseconds, the <code>SelectModel</code> with all the
+	 * objects of a given entity class is cached by the <code>SelectModelCache</code>.
+	 * 
+	 * @param entityClass a {@link Class}. It cannot be null.
+	 * @return a <code>long</code>. Zero disables the cache and a negative value means the
+	 * <code>tapestry-crud.select-model-cache.maximum-age</code> symbol value is used.
+	 */
+	long getSelectModelCacheMaximumAge(Class<?> entityClass);
+
+}
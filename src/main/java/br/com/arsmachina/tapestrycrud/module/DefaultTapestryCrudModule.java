@@ -32,7 +32,8 @@ import br.com.arsmachina.tapestrycrud.tree.SingleTypeTreeService;
  * 
  * @author Thiago H. de Paula Figueiredo
  */
-public class DefaultTapestryCrudModule implements TapestryCrudModule {
+public class DefaultTapestryCrudModule implements TapestryCrudModule,
+		CacheableTapestryCrudModule {
 	
 	final private Module module;
 
@@ -340,6 +341,29 @@ public class DefaultTapestryCrudModule implements TapestryCrudModule {
 		return getClass(getViewPageClassName(entityClass));
 	}
 
+	/**
+	 * Returns <code>false</code>, as cached pages are shared between users and may be stale
+	 * when objects are changed outside the CRUD pages. Override this method to enable the page
+	 * cache for reference entity classes.
+	 * 
+	 * @param entityClass a {@link Class}.
+	 * @return <code>false</code>.
+	 */
+	public boolean isPageCacheEnabled(Class<?> entityClass) {
+		return false;
+	}
+
+	/**
+	 * Returns -1, so the <code>tapestry-crud.select-model-cache.maximum-age</code> symbol value
+	 * is used. Override this method to define it for each entity class.
+	 * 
+	 * @param entityClass a {@link Class}.
+	 * @return -1.
+	 */
+	public long getSelectModelCacheMaximumAge(Class<?> entityClass) {
+		return -1;
+	}
+
 	@SuppressWarnings("unchecked")
 	public <T> Class<? extends BeanModelCustomizer<T>> getBeanModelCustomizerClass(
 			Class<T> entityClass) {
@@ -32,13 +32,15 @@ import org.apache.tapestry5.corelib.components.Select;
 import org.apache.tapestry5.ioc.annotations.Inject;
 import org.apache.tapestry5.services.PropertyEditContext;
 import org.apache.tapestry5.services.PropertyOutputContext;
+import org.apache.tapestry5.services.Request;
 import org.apache.tapestry5.services.ValueEncoderSource;
 
-import br.com.arsmachina.authorization.Authorizer;
 import br.com.arsmachina.tapestrycrud.components.ActionLinks;
+import br.com.arsmachina.tapestrycrud.components.EntityAutocomplete;
 import br.com.arsmachina.tapestrycrud.encoder.LabelEncoder;
 import br.com.arsmachina.tapestrycrud.selectmodel.SelectModelFactory;
 import br.com.arsmachina.tapestrycrud.services.LabelEncoderSource;
+import br.com.arsmachina.tapestrycrud.services.RowAuthorizer;
 import br.com.arsmachina.tapestrycrud.services.TapestryCrudModuleService;
 
 /**
@@ -74,11 +76,14 @@ public class BeanModelBlocks {
 	private PropertyEditContext editContext;
 
 	@Inject
-	private Authorizer authorizer;
+	private RowAuthorizer rowAuthorizer;
 
 	@Inject
 	private TapestryCrudModuleService tapestryCrudModuleService;
 
+	@Inject
+	private Request request;
+
 	@Parameter(defaultPrefix = BindingConstants.ASSET, value = ActionLinks.DEFAULT_EDIT_ICON_ASSET)
 	@Property
 	@SuppressWarnings("unused")
@@ -89,13 +94,14 @@ public class BeanModelBlocks {
 	private Boolean canEdit;
 
 	/**
-	 * Redirects to the root page if some user requests this pseudo-page.
+	 * Redirects to the root page if some user requests this pseudo-page. AJAX requests, such as
+	 * the {@link EntityAutocomplete} searches, are not redirected.
 	 * 
-	 * @return the empty string.
+	 * @return the empty string or <code>null</code>.
 	 */
 	@OnEvent(EventConstants.ACTIVATE)
 	public String redirectToIndex() {
-		return "";
+		return request.isXHR() ? null : "";
 	}
 
 	@Component(parameters = { "value=editContext.propertyValue",
@@ -104,6 +110,12 @@ public class BeanModelBlocks {
 			"encoder=prop:entityEncoder" })
 	private Select entityField;
 
+	@Component(parameters = { "value=editContext.propertyValue",
+			"label=prop:editContext.label", "type=prop:editContext.propertyType",
+			"clientId=prop:editContext.propertyId",
+			"validate=prop:largeEntityFieldValidator" })
+	private EntityAutocomplete largeEntityField;
+
 	/**
 	 * Returns the entity converted in a user-presentable string.
 	 * 
@@ -131,12 +143,15 @@ public class BeanModelBlocks {
         return editContext.getValidator(entityField);
     }
 
+	@SuppressWarnings("unchecked")
+	public FieldValidator getLargeEntityFieldValidator() {
+		return editContext.getValidator(largeEntityField);
+	}
+
 
 	public boolean isEntityEditable() {
 
-		final Object entity = getEntity();
-		return authorizer.canUpdate(entity.getClass())
-				&& authorizer.canUpdate(entity);
+		return rowAuthorizer.canUpdate(getEntity());
 
 	}
 
@@ -177,9 +192,7 @@ public class BeanModelBlocks {
 	public boolean isCanView() {
 
 		Object object = getEntity();
-		canView =
-			object != null && authorizer.canRead(object.getClass())
-					&& authorizer.canRead(object);
+		canView = object != null && rowAuthorizer.canRead(object);
 
 		return canView;
 
@@ -193,9 +206,7 @@ public class BeanModelBlocks {
 	public boolean isCanEdit() {
 
 		Object object = getEntity();
-		canEdit =
-			object != null && authorizer.canUpdate(object.getClass())
-					&& authorizer.canUpdate(object);
+		canEdit = object != null && rowAuthorizer.canUpdate(object);
 		
 		return canEdit;
 
@@ -22,10 +22,16 @@ import org.apache.tapestry5.SelectModel;
 
 import br.com.arsmachina.controller.Controller;
 import br.com.arsmachina.tapestrycrud.encoder.LabelEncoder;
+import br.com.arsmachina.tapestrycrud.encoder.ProjectionLabelEncoder;
+import br.com.arsmachina.tapestrycrud.grid.ProjectionSearch;
 
 /**
  * Default {@link SingleTypeSelectModelFactory} implementation for entity classes. It uses
- * {@link Controller#}
+ * {@link Controller#findAll()} to get all the objects. If the label encoder implements
+ * {@link ProjectionLabelEncoder} and the controller implements {@link ProjectionSearch}, only the
+ * primary key and the label properties are loaded instead. The option values are then
+ * lightweight objects, which are only meant to be converted to client values: the submitted ones
+ * are resolved to whole objects by the <code>ValueEncoder</code> of the entity class.
  * 
  * @author Thiago H. de Paula Figueiredo
  * @param <T> the type related to this factory.
@@ -36,14 +42,29 @@ public class DefaultSingleTypeSelectModelFactory<T> implements SingleTypeSelectM
 
 	private LabelEncoder<T> labelEncoder;
 
+	private String[] projectedPropertyNames;
+
 	/**
-	 * Single constructor of this class.
+	 * Constructor that always loads whole objects.
 	 * 
 	 * @param controller a {@link Controller}. It cannot be null.
 	 * @param encoder a {@link LabelEncoder}. It cannot be null.
 	 */
 	public DefaultSingleTypeSelectModelFactory(Controller<T, ?> controller,
 			LabelEncoder<T> labelEncoder) {
+		this(controller, labelEncoder, null);
+	}
+
+	/**
+	 * Constructor that loads only the primary key and the label properties when possible.
+	 * 
+	 * @param controller a {@link Controller}. It cannot be null.
+	 * @param encoder a {@link LabelEncoder}. It cannot be null.
+	 * @param primaryKeyPropertyName a {@link String} with the name of the primary key property.
+	 * If it is <code>null</code>, whole objects are always loaded.
+	 */
+	public DefaultSingleTypeSelectModelFactory(Controller<T, ?> controller,
+			LabelEncoder<T> labelEncoder, String primaryKeyPropertyName) {
 
 		if (controller == null) {
 			throw new IllegalArgumentException("Parameter controller cannot be null");
@@ -56,12 +77,38 @@ public class DefaultSingleTypeSelectModelFactory<T> implements SingleTypeSelectM
 		this.controller = controller;
 		this.labelEncoder = labelEncoder;
 
+		if (primaryKeyPropertyName != null && controller instanceof ProjectionSearch
+				&& labelEncoder instanceof ProjectionLabelEncoder) {
+
+			final String[] labelPropertyNames =
+				((ProjectionLabelEncoder<T>) labelEncoder).getLabelPropertyNames();
+
+			projectedPropertyNames = new String[labelPropertyNames.length + 1];
+			projectedPropertyNames[0] = primaryKeyPropertyName;
+			System.arraycopy(labelPropertyNames, 0, projectedPropertyNames, 1,
+					labelPropertyNames.length);
+
+		}
+
 	}
 
+	@SuppressWarnings("unchecked")
 	public SelectModel create(List<T> objects) {
 
 		if (objects == null) {
-			objects = controller.findAll();
+
+			if (projectedPropertyNames != null) {
+
+				final ProjectionSearch<T> projectionSearch = (ProjectionSearch<T>) controller;
+				objects =
+					projectionSearch.searchProjection(projectedPropertyNames, 0,
+							Integer.MAX_VALUE);
+
+			}
+			else {
+				objects = controller.findAll();
+			}
+
 		}
 
 		List<OptionModel> options = new ArrayList<OptionModel>();
@@ -0,0 +1,44 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.selectmodel;
+
+import java.util.List;
+
+import br.com.arsmachina.controller.ReadableController;
+import br.com.arsmachina.tapestrycrud.components.EntityAutocomplete;
+import br.com.arsmachina.tapestrycrud.encoder.LabelEncoder;
+
+/**
+ * Interface that defines a search of objects by the beginning of their labels, as returned by
+ * their {@link LabelEncoder}. It is implemented by {@link ReadableController}s and used by the
+ * {@link EntityAutocomplete} component, so the search must be done by the query itself and
+ * return at most the requested number of objects.
+ * 
+ * @param <T> the type of the elements returned.
+ * @author Thiago H. de Paula Figueiredo
+ */
+public interface LabelSearch<T> {
+
+	/**
+	 * Returns the objects whose labels start with a given prefix, ignoring case, sorted by their
+	 * labels.
+	 * 
+	 * @param prefix a {@link String}. It cannot be null.
+	 * @param maximumResults an <code>int</code> with the maximum number of objects to be returned.
+	 * @return a {@link List} of <code>T</code>.
+	 */
+	List<T> searchByLabel(String prefix, int maximumResults);
+
+}
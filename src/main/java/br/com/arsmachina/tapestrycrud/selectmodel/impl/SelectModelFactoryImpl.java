@@ -17,18 +17,17 @@ package br.com.arsmachina.tapestrycrud.selectmodel.impl;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.tapestry5.Link;
 import org.apache.tapestry5.SelectModel;
 import org.apache.tapestry5.ioc.util.StrategyRegistry;
 
-import br.com.arsmachina.module.service.ControllerSource;
 import br.com.arsmachina.tapestrycrud.selectmodel.SelectModelFactory;
 import br.com.arsmachina.tapestrycrud.selectmodel.SingleTypeSelectModelFactory;
-import br.com.arsmachina.tapestrycrud.services.EncoderSource;
+import br.com.arsmachina.tapestrycrud.services.SelectModelCache;
 
 /**
  * Default {@link SelectModelFactory} implementation. It delegates all its methods for
- * {@link SelectModelFactory} instances.
+ * {@link SelectModelFactory} instances and keeps the models with all the instances of each type
+ * in a {@link SelectModelCache}.
  * 
  * @author Thiago H. de Paula Figueiredo
  * @see SelectModel
@@ -40,17 +39,30 @@ public class SelectModelFactoryImpl implements SelectModelFactory {
 	@SuppressWarnings("unchecked")
 	final private StrategyRegistry<SingleTypeSelectModelFactory> registry;
 
+	final private SelectModelCache selectModelCache;
+
 	/**
 	 * Single constructor.
 	 * 
-	 * @param registrations a {@link Map}&lt;{@link Class}, {@link Link}{@link SingleTypeSelectModelFactory}&gt;.
+	 * @param registrations a {@link Map}&lt;{@link Class}, {@link SingleTypeSelectModelFactory}&gt;.
 	 * It cannot be null.
-	 * @param controllerSource a {@link ControllerSource}. It cannot be null.
-	 * @param encoderSource an {@link EncoderSource}. It cannot be null.
+	 * @param selectModelCache a {@link SelectModelCache}. It cannot be null.
 	 */
 	@SuppressWarnings("unchecked")
-	public SelectModelFactoryImpl(Map<Class, SingleTypeSelectModelFactory> registrations) {
+	public SelectModelFactoryImpl(Map<Class, SingleTypeSelectModelFactory> registrations,
+			SelectModelCache selectModelCache) {
+
+		if (registrations == null) {
+			throw new IllegalArgumentException("Parameter registrations cannot be null");
+		}
+
+		if (selectModelCache == null) {
+			throw new IllegalArgumentException("Parameter selectModelCache cannot be null");
+		}
+
 		registry = StrategyRegistry.newInstance(SingleTypeSelectModelFactory.class, registrations);
+		this.selectModelCache = selectModelCache;
+
 	}
 
 	/**
@@ -65,7 +77,24 @@ public class SelectModelFactoryImpl implements SelectModelFactory {
 	 * java.util.List)
 	 */
 	public <T> SelectModel create(Class<T> clasz, List<T> objects) {
-		return get(clasz).create(objects);
+
+		if (objects != null || selectModelCache.isEnabled(clasz) == false) {
+			return get(clasz).create(objects);
+		}
+
+		SelectModel model = selectModelCache.get(clasz);
+
+		if (model == null) {
+
+			// obtained before the objects are read, so changes done meanwhile prevent caching.
+			final long version = selectModelCache.getVersion(clasz);
+			model = get(clasz).create(null);
+			selectModelCache.put(clasz, model, version);
+
+		}
+
+		return model;
+
 	}
 
 	@SuppressWarnings("unchecked")
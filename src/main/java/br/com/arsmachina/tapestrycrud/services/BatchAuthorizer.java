@@ -0,0 +1,57 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.services;
+
+import java.util.List;
+
+import br.com.arsmachina.authorization.Authorizer;
+
+/**
+ * Interface for objects that can decide the permissions of many objects at once, for example
+ * with a single query, complementing the {@link Authorizer}. Implementations are contributed to
+ * the {@link RowAuthorizer} service, which uses them to check all the rows of a grid page in one
+ * call. When more than one is contributed, a permission is granted only if all of them grant it.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public interface BatchAuthorizer {
+
+	/**
+	 * Read permission bit.
+	 */
+	int READ = 1;
+
+	/**
+	 * Update permission bit.
+	 */
+	int UPDATE = 2;
+
+	/**
+	 * Remove permission bit.
+	 */
+	int REMOVE = 4;
+
+	/**
+	 * Returns the permissions of the current user on some objects. Class-level permissions are
+	 * checked separately and don't need to be considered here.
+	 * 
+	 * @param objects a {@link List} of objects. It cannot be null.
+	 * @return an <code>int</code> array with the same size and order of <code>objects</code>.
+	 * Each element is a combination of the {@link #READ}, {@link #UPDATE} and {@link #REMOVE}
+	 * bits.
+	 */
+	int[] getPermissions(List<?> objects);
+
+}
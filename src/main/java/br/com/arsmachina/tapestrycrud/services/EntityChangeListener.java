@@ -0,0 +1,50 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.services;
+
+import br.com.arsmachina.tapestrycrud.base.BaseEditPage;
+import br.com.arsmachina.tapestrycrud.base.BasePage;
+
+/**
+ * Interface that defines a listener of entity object changes done through the CRUD pages. The
+ * <code>EntityChangeListener</code> service is a chain of all the contributed listeners and is
+ * invoked by {@link BaseEditPage} after a successful save or update and by {@link BasePage} after
+ * a successful removal.
+ *
+ * @author Thiago H. de Paula Figueiredo
+ */
+public interface EntityChangeListener {
+
+	/**
+	 * Notifies that an object was saved or updated.
+	 *
+	 * @param <T> the entity type.
+	 * @param entityClass the entity {@link Class}. It cannot be null.
+	 * @param object a <code>T</code>. It cannot be null.
+	 * @param inserted a <code>boolean</code>. <code>true</code> if the object was not persistent
+	 * before being saved, <code>false</code> if it was just updated.
+	 */
+	<T> void objectSaved(Class<T> entityClass, T object, boolean inserted);
+
+	/**
+	 * Notifies that an object was removed.
+	 *
+	 * @param <T> the entity type.
+	 * @param entityClass the entity {@link Class}. It cannot be null.
+	 * @param object a <code>T</code>. It cannot be null.
+	 */
+	<T> void objectRemoved(Class<T> entityClass, T object);
+
+}
@@ -0,0 +1,51 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.services;
+
+import java.io.Serializable;
+
+import br.com.arsmachina.tapestrycrud.base.BasePage;
+import br.com.arsmachina.tapestrycrud.base.EntityPageDescriptor;
+
+/**
+ * Service that provides the {@link EntityPageDescriptor} of each entity class. Each descriptor
+ * is created only once and shared by all the page instances of its entity class.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public interface EntityPageDescriptorSource {
+
+	/**
+	 * Returns the {@link EntityPageDescriptor} of a given entity class.
+	 * 
+	 * @param <T> the entity class.
+	 * @param <K> the type of the class' primary key property.
+	 * @param entityClass a {@link Class}. It cannot be null.
+	 * @return an {@link EntityPageDescriptor}.
+	 */
+	<T, K extends Serializable> EntityPageDescriptor<T, K> get(Class<T> entityClass);
+
+	/**
+	 * Returns the {@link EntityPageDescriptor} of the entity class of a given page class, which
+	 * is the first type argument of its {@link BasePage} superclass.
+	 * 
+	 * @param <T> the entity class.
+	 * @param <K> the type of the class' primary key property.
+	 * @param pageClass a {@link Class}. It cannot be null.
+	 * @return an {@link EntityPageDescriptor}.
+	 */
+	<T, K extends Serializable> EntityPageDescriptor<T, K> getForPage(Class<?> pageClass);
+
+}
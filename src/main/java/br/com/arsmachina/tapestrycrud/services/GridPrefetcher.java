@@ -0,0 +1,55 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.services;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import br.com.arsmachina.tapestrycrud.grid.PagedSearchGridDataSource;
+
+/**
+ * Service that fetches grid pages in background threads and keeps them in a small per-session
+ * buffer until they are requested. It is used by {@link PagedSearchGridDataSource} to read the
+ * next page ahead while the user is looking at the current one. Buffered pages of an entity class
+ * are discarded when an object of that class is saved or removed in the same session.
+ *
+ * @author Thiago H. de Paula Figueiredo
+ */
+public interface GridPrefetcher extends EntityChangeListener {
+
+	/**
+	 * Schedules a search to be run in background and its result buffered in the current
+	 * session.
+	 *
+	 * @param <T> the type of the searched objects.
+	 * @param entityClass the {@link Class} of the searched objects. It cannot be null.
+	 * @param key a {@link String} that identifies the search and the page. It cannot be null.
+	 * @param search a {@link Callable} that runs the search. It cannot be null.
+	 */
+	<T> void prefetch(Class<?> entityClass, String key, Callable<List<T>> search);
+
+	/**
+	 * Removes a page from the current session buffer and returns it. If the page was not
+	 * prefetched, it is still being fetched or its fetch failed, this method returns
+	 * <code>null</code>.
+	 *
+	 * @param <T> the type of the searched objects.
+	 * @param entityClass the {@link Class} of the searched objects. It cannot be null.
+	 * @param key a {@link String} that identifies the search and the page. It cannot be null.
+	 * @return a {@link List} of <code>T</code> or <code>null</code>.
+	 */
+	<T> List<T> take(Class<?> entityClass, String key);
+
+}
@@ -0,0 +1,83 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.services;
+
+import br.com.arsmachina.tapestrycrud.grid.PagedSearchGridDataSource;
+import br.com.arsmachina.tapestrycrud.module.TapestryCrudModule;
+
+/**
+ * Service that caches grid pages and row counts across requests and users. It is used by
+ * {@link PagedSearchGridDataSource} for the entity classes whose {@link TapestryCrudModule}
+ * enables it. It keeps a bounded number of entries, discarding the least recently used ones, and
+ * all the entries of an entity class are discarded when an object of that class is saved or
+ * removed.
+ *
+ * @author Thiago H. de Paula Figueiredo
+ */
+public interface PageCache extends EntityChangeListener {
+
+	/**
+	 * Tells if pages of a given entity class can be cached.
+	 *
+	 * @param entityClass a {@link Class}. It cannot be null.
+	 * @return a <code>boolean</code>.
+	 */
+	boolean isEnabled(Class<?> entityClass);
+
+	/**
+	 * Returns a cached value.
+	 *
+	 * @param <V> the type of the value.
+	 * @param entityClass a {@link Class}. It cannot be null.
+	 * @param key a {@link String} that identifies the value. It cannot be null.
+	 * @return a <code>V</code> or <code>null</code> if there's no fresh cached value.
+	 */
+	<V> V get(Class<?> entityClass, String key);
+
+	/**
+	 * Returns the current version of the cached values of a given entity class. It changes
+	 * every time they are invalidated.
+	 *
+	 * @param entityClass a {@link Class}. It cannot be null.
+	 * @return a <code>long</code>.
+	 */
+	long getVersion(Class<?> entityClass);
+
+	/**
+	 * Caches a value unless the values of its entity class were invalidated since the given
+	 * version was obtained, which means the value may be stale.
+	 *
+	 * @param entityClass a {@link Class}. It cannot be null.
+	 * @param key a {@link String} that identifies the value. It cannot be null.
+	 * @param value an {@link Object}. It cannot be null.
+	 * @param version a <code>long</code> obtained through {@link #getVersion(Class)} before the
+	 * value was fetched.
+	 */
+	void put(Class<?> entityClass, String key, Object value, long version);
+
+	/**
+	 * Discards all the cached values of a given entity class. Use it when objects are changed
+	 * outside the CRUD pages.
+	 *
+	 * @param entityClass a {@link Class}. It cannot be null.
+	 */
+	void invalidate(Class<?> entityClass);
+
+	/**
+	 * Discards all cached values.
+	 */
+	void invalidateAll();
+
+}
@@ -0,0 +1,65 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.services;
+
+import java.util.List;
+
+import br.com.arsmachina.authorization.Authorizer;
+import br.com.arsmachina.tapestrycrud.grid.PagedSearchGridDataSource;
+
+/**
+ * Per-thread service that memoizes {@link Authorizer} decisions about objects during a request.
+ * {@link PagedSearchGridDataSource} passes each prepared page to {@link #prepare(List)}, so all
+ * its rows are checked at once, and the components that render per-row links read the decisions
+ * from here. Each method also checks the corresponding class-level permission.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public interface RowAuthorizer {
+
+	/**
+	 * Checks the read, update and remove permissions of some objects at once, invoking each
+	 * contributed {@link BatchAuthorizer} only once. If there is none, this method does nothing
+	 * and each permission is checked through the {@link Authorizer} when it is asked for.
+	 * 
+	 * @param objects a {@link List} of objects. It cannot be null.
+	 */
+	void prepare(List<?> objects);
+
+	/**
+	 * Can the current user read a given object?
+	 * 
+	 * @param object an {@link Object}. It cannot be null.
+	 * @return a <code>boolean</code>.
+	 */
+	boolean canRead(Object object);
+
+	/**
+	 * Can the current user update a given object?
+	 * 
+	 * @param object an {@link Object}. It cannot be null.
+	 * @return a <code>boolean</code>.
+	 */
+	boolean canUpdate(Object object);
+
+	/**
+	 * Can the current user remove a given object?
+	 * 
+	 * @param object an {@link Object}. It cannot be null.
+	 * @return a <code>boolean</code>.
+	 */
+	boolean canRemove(Object object);
+
+}
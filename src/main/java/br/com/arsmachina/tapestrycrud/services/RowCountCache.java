@@ -0,0 +1,61 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.services;
+
+import br.com.arsmachina.tapestrycrud.grid.ControllerGridDataSource;
+import br.com.arsmachina.tapestrycrud.grid.PagedSearch;
+
+/**
+ * Service that caches the total number of objects of each entity class, as used by
+ * {@link ControllerGridDataSource}. Cached counts are incremented and decremented in place when
+ * objects are saved or removed through the CRUD pages and are recounted when they are older than
+ * the configured maximum age.
+ *
+ * @author Thiago H. de Paula Figueiredo
+ */
+public interface RowCountCache extends EntityChangeListener {
+
+	/**
+	 * Returns the number of objects of a given entity class. If there is no cached count or it is
+	 * stale, <code>search.count()</code> is invoked and its result cached.
+	 *
+	 * @param entityClass a {@link Class}. It cannot be null.
+	 * @param search a {@link PagedSearch} used to count the objects. It cannot be null.
+	 * @return an <code>int</code>.
+	 */
+	int getCount(Class<?> entityClass, PagedSearch<?> search);
+
+	/**
+	 * Stores a freshly computed count for a given entity class.
+	 *
+	 * @param entityClass a {@link Class}. It cannot be null.
+	 * @param count an <code>int</code>.
+	 */
+	void setCount(Class<?> entityClass, int count);
+
+	/**
+	 * Discards the cached count of a given entity class, forcing it to be recounted next time it
+	 * is requested. Use it when objects are changed outside the CRUD pages.
+	 *
+	 * @param entityClass a {@link Class}. It cannot be null.
+	 */
+	void refresh(Class<?> entityClass);
+
+	/**
+	 * Discards all cached counts.
+	 */
+	void refreshAll();
+
+}
@@ -0,0 +1,76 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.services;
+
+import org.apache.tapestry5.SelectModel;
+
+import br.com.arsmachina.tapestrycrud.module.CacheableTapestryCrudModule;
+import br.com.arsmachina.tapestrycrud.selectmodel.SelectModelFactory;
+
+/**
+ * Service that caches the {@link SelectModel}s with all the instances of a type, created by
+ * {@link SelectModelFactory}, and shares them between requests. The maximum time a model is
+ * cached is defined by {@link CacheableTapestryCrudModule#getSelectModelCacheMaximumAge(Class)}.
+ * The model of a type is discarded when an object of that type is saved or removed.
+ *
+ * @author Thiago H. de Paula Figueiredo
+ */
+public interface SelectModelCache extends EntityChangeListener {
+
+	/**
+	 * Tells if the model of a given type can be cached.
+	 *
+	 * @param clasz a {@link Class}. It cannot be null.
+	 * @return a <code>boolean</code>.
+	 */
+	boolean isEnabled(Class<?> clasz);
+
+	/**
+	 * Returns the cached model of a given type.
+	 *
+	 * @param clasz a {@link Class}. It cannot be null.
+	 * @return a {@link SelectModel} or <code>null</code> if there's no fresh cached model.
+	 */
+	SelectModel get(Class<?> clasz);
+
+	/**
+	 * Returns the current version of the cached model of a given type. It changes every time
+	 * the model is invalidated.
+	 *
+	 * @param clasz a {@link Class}. It cannot be null.
+	 * @return a <code>long</code>.
+	 */
+	long getVersion(Class<?> clasz);
+
+	/**
+	 * Caches the model of a given type unless it is too large or it was invalidated since the
+	 * given version was obtained, which means the model may be stale.
+	 *
+	 * @param clasz a {@link Class}. It cannot be null.
+	 * @param model a {@link SelectModel}. It cannot be null.
+	 * @param version a <code>long</code> obtained through {@link #getVersion(Class)} before the
+	 * objects of the model were read.
+	 */
+	void put(Class<?> clasz, SelectModel model, long version);
+
+	/**
+	 * Discards the cached model of a given type and of its subclasses and superclasses. Use it
+	 * when objects are changed outside the CRUD pages.
+	 *
+	 * @param clasz a {@link Class}. It cannot be null.
+	 */
+	void invalidate(Class<?> clasz);
+
+}
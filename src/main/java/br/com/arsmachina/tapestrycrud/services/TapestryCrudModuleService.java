@@ -181,4 +181,24 @@ public interface TapestryCrudModuleService {
 	 */
 	Class<?> getViewPageClass(Class<?> entityClass);
 	
+	/**
+	 * Tells if the listing pages of a given entity class can be cached by the
+	 * {@link PageCache}. Entity classes that don't belong to any module are not cached.
+	 * 
+	 * @param entityClass a {@link Class}. It cannot be null.
+	 * @return a <code>boolean</code>.
+	 */
+	boolean isPageCacheEnabled(Class<?> entityClass);
+	
+	/**
+	 * Returns the maximum time, in milliseconds, the <code>SelectModel</code> with all the
+	 * objects of a given entity class is cached. Entity classes that don't belong to any module
+	 * use the default value.
+	 * 
+	 * @param entityClass a {@link Class}. It cannot be null.
+	 * @return a <code>long</code>. Zero disables the cache and a negative value means the default
+	 * value is used.
+	 */
+	long getSelectModelCacheMaximumAge(Class<?> entityClass);
+	
 }
@@ -14,14 +14,19 @@
 
 package br.com.arsmachina.tapestrycrud.services;
 
+import br.com.arsmachina.tapestrycrud.tree.BulkSingleTypeTreeService;
 import br.com.arsmachina.tapestrycrud.tree.SingleTypeTreeService;
+import br.com.arsmachina.tapestrycrud.tree.TreeCacheStatistics;
+import br.com.arsmachina.tapestrycrud.tree.TreeSnapshot;
 
 /**
- * Service that provides {@link SingleTypeTreeService}s.
+ * Service that provides {@link SingleTypeTreeService}s. It also caches an immutable
+ * {@link TreeSnapshot} with all the trees of each entity class, which is discarded when an object
+ * of that class is saved or removed through the CRUD pages and rebuilt when it is requested again.
  * 
  * @author Thiago H. de Paula Figueiredo
  */
-public interface TreeServiceSource {
+public interface TreeServiceSource extends EntityChangeListener {
 
 	/**
 	 * Returns the {@link SingleTypeTreeService} of a given type.
@@ -31,5 +36,37 @@ public interface TreeServiceSource {
 	 * @return an {@link SingleTypeTreeService}.
 	 */
 	<T> SingleTypeTreeService<T> get(Class<T> clasz);
+
+	/**
+	 * Returns the cached snapshot of all the trees of a given type, building it if needed. All
+	 * the objects are fetched in a single query through the type's controller and linked using
+	 * {@link BulkSingleTypeTreeService#buildCompactTree(java.util.List)} or, if the tree service
+	 * doesn't implement {@link BulkSingleTypeTreeService}, by their parents as returned by
+	 * {@link SingleTypeTreeService#getParent(Object)}. Objects are looked up in
+	 * the snapshot by primary key, so instances loaded in any session can be used, provided the
+	 * type has a <code>PrimaryKeyEncoder</code>. Otherwise, the type must implement
+	 * <code>equals()</code> and <code>hashCode()</code> by primary key.
+	 * 
+	 * @param <T> a type.
+	 * @param clasz a {@link Class}. It cannot be null.
+	 * @return a {@link TreeSnapshot}.
+	 */
+	<T> TreeSnapshot<T> getSnapshot(Class<T> clasz);
+
+	/**
+	 * Discards the cached snapshot of a given type. Use it when objects are changed outside the
+	 * CRUD pages.
+	 * 
+	 * @param clasz a {@link Class}. It cannot be null.
+	 */
+	void invalidate(Class<?> clasz);
+
+	/**
+	 * Returns the snapshot cache statistics of a given type.
+	 * 
+	 * @param clasz a {@link Class}. It cannot be null.
+	 * @return a {@link TreeCacheStatistics}.
+	 */
+	TreeCacheStatistics getStatistics(Class<?> clasz);
 	
 }
@@ -14,8 +14,9 @@
 
 package br.com.arsmachina.tapestrycrud.services.impl;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.tapestry5.PrimaryKeyEncoder;
 import org.apache.tapestry5.ioc.util.StrategyRegistry;
@@ -27,12 +28,18 @@ import br.com.arsmachina.tapestrycrud.services.EncoderSource;
 import br.com.arsmachina.tapestrycrud.services.PrimaryKeyEncoderSource;
 
 /**
- * {@link ActivationContextEncoderSource} implementation.
+ * {@link ActivationContextEncoderSource} implementation. Each class is resolved only once and its
+ * encoder, or the lack of one, is cached, so lookups don't lock after the first one.
  * 
  * @author Thiago H. de Paula Figueiredo
  */
 public class ActivationContextEncoderSourceImpl implements ActivationContextEncoderSource {
 
+	/**
+	 * Cached for the classes without an encoder.
+	 */
+	final private static Object NO_ENCODER = new Object();
+
 	@SuppressWarnings("unchecked")
 	final private StrategyRegistry<ActivationContextEncoder> registry;
 
@@ -43,7 +50,7 @@ public class ActivationContextEncoderSourceImpl implements ActivationContextEnco
 	final private PrimaryKeyTypeService primaryKeyTypeService;
 
 	@SuppressWarnings("unchecked")
-	final private Map<Class, ActivationContextEncoder> additionalEncoders = new HashMap<Class, ActivationContextEncoder>();
+	final private ConcurrentMap<Class, Object> encoders = new ConcurrentHashMap<Class, Object>();
 
 	/**
 	 * Single constructor.
@@ -79,39 +86,70 @@ public class ActivationContextEncoderSourceImpl implements ActivationContextEnco
 	@SuppressWarnings("unchecked")
 	public <T> ActivationContextEncoder<T> get(Class<T> clasz) {
 
-		ActivationContextEncoder<T> encoder = registry.get(clasz);
+		Object cached = encoders.get(clasz);
 
-		if (encoder == null) {
-			encoder = encoderSource.get(clasz);
-		}
+		if (cached == null) {
 
-		if (encoder == null) {
+			// only the first lookup of each class gets here.
+			synchronized (encoders) {
+
+				cached = encoders.get(clasz);
+
+				if (cached == null) {
+
+					cached = resolve(clasz);
+
+					if (cached == null) {
+						cached = NO_ENCODER;
+					}
+
+					encoders.put(clasz, cached);
 
-			encoder = additionalEncoders.get(clasz);
-			
-			if (encoder == null) {
-				
-				PrimaryKeyEncoder<?, T> primaryKeyEncoder = primaryKeyEncoderSource.get(clasz);
-				
-				if (primaryKeyEncoder != null) {
-					
-					Class primaryKeyType = primaryKeyTypeService.getPrimaryKeyType(clasz);
-					encoder = 
-						new PrimaryKeyEncoderActivationContextEncoder(primaryKeyEncoder, primaryKeyType);
-					
-					additionalEncoders.put(clasz, encoder);
-					
 				}
-				
+
 			}
-			
+
 		}
 
-		if (encoder == null) {
+		if (cached == NO_ENCODER) {
 			throw new IllegalArgumentException(
 					"There is no ActivationContextEncoder configured for class " + clasz.getName());
 		}
 
+		return (ActivationContextEncoder<T>) cached;
+
+	}
+
+	/**
+	 * Looks for the encoder of a given class in the registry, then in the {@link EncoderSource}
+	 * and then creates one using the {@link PrimaryKeyEncoder} of the class.
+	 * 
+	 * @param clasz a {@link Class}.
+	 * @return an {@link ActivationContextEncoder} or <code>null</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	private ActivationContextEncoder resolve(Class clasz) {
+
+		ActivationContextEncoder encoder = registry.get(clasz);
+
+		if (encoder == null) {
+			encoder = encoderSource.get(clasz);
+		}
+
+		if (encoder == null) {
+
+			PrimaryKeyEncoder primaryKeyEncoder = primaryKeyEncoderSource.get(clasz);
+
+			if (primaryKeyEncoder != null) {
+
+				Class primaryKeyType = primaryKeyTypeService.getPrimaryKeyType(clasz);
+				encoder =
+					new PrimaryKeyEncoderActivationContextEncoder(primaryKeyEncoder, primaryKeyType);
+
+			}
+
+		}
+
 		return encoder;
 
 	}
@@ -14,10 +14,9 @@
 
 package br.com.arsmachina.tapestrycrud.services.impl;
 
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.tapestry5.ioc.ObjectLocator;
 import org.apache.tapestry5.ioc.util.StrategyRegistry;
@@ -30,7 +29,9 @@ import br.com.arsmachina.tapestrycrud.services.BeanModelCustomizerSource;
 import br.com.arsmachina.tapestrycrud.services.TapestryCrudModuleService;
 
 /**
- * {@link BeanModelCustomizerSource} implementation.
+ * {@link BeanModelCustomizerSource} implementation. Each class is resolved only once and its
+ * customizer, or the dummy one if it has none, is cached, so lookups don't lock after the first
+ * one.
  * 
  * @author Thiago H. de Paula Figueiredo
  */
@@ -46,10 +47,7 @@ public class BeanModelCustomizerSourceImpl implements BeanModelCustomizerSource
 	final private StrategyRegistry<BeanModelCustomizer> registry;
 	
 	@SuppressWarnings("unchecked")
-	final private Map<Class, BeanModelCustomizer> additional;
-	
-	@SuppressWarnings("unchecked")
-	final private Set<Class> noMatch;
+	final private ConcurrentMap<Class, BeanModelCustomizer> customizers;
 	
 	final private TapestryCrudModuleService tapestryCrudModuleService;
 	
@@ -72,25 +70,50 @@ public class BeanModelCustomizerSourceImpl implements BeanModelCustomizerSource
 		this.objectLocator = objectLocator;
 
 		registry = StrategyRegistry.newInstance(BeanModelCustomizer.class, registrations, true);
-		additional = new HashMap<Class, BeanModelCustomizer>();
-		noMatch = new HashSet<Class>();
+		customizers = new ConcurrentHashMap<Class, BeanModelCustomizer>();
 
 	}
 
 	@SuppressWarnings("unchecked")
 	public <T> BeanModelCustomizer<T> get(Class<T> clasz) {
 
+		BeanModelCustomizer customizer = customizers.get(clasz);
+
+		if (customizer == null) {
+
+			// only the first lookup of each class gets here.
+			synchronized (customizers) {
+
+				customizer = customizers.get(clasz);
+
+				if (customizer == null) {
+					customizer = resolve(clasz);
+					customizers.put(clasz, customizer);
+				}
+
+			}
+
+		}
+
+		return customizer;
+
+	}
+
+	/**
+	 * Looks for the customizer of a given class in the registry and then in its
+	 * <code>TapestryCrudModule</code>.
+	 * 
+	 * @param clasz a {@link Class}.
+	 * @return a {@link BeanModelCustomizer}. If none is found, the dummy one is returned.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> BeanModelCustomizer<T> resolve(Class<T> clasz) {
+
 		// we try the registered ones first
 		BeanModelCustomizer customizer = registry.get(clasz);
 		
-		// the additional ones (created by this class) second
+		// then the one defined by the module, created by this class
 		if (customizer == null) {
-			customizer = additional.get(clasz);
-		}
-		
-		// customizer still not found, but the class insn't in the list of ones that don't have
-		// a customizer
-		if (customizer == null && noMatch.contains(clasz) == false) {
 			
 			Class<? extends BeanModelCustomizer<T>> customizerClass = 
 				tapestryCrudModuleService.getBeanModelCustomizerClass(clasz);
@@ -98,7 +121,6 @@ public class BeanModelCustomizerSourceImpl implements BeanModelCustomizerSource
 			if (customizerClass != null) {
 				
 				customizer = objectLocator.autobuild(customizerClass);
-				additional.put(clasz, customizer);
 				
 				if (LOGGER.isDebugEnabled()) {
 	
@@ -114,10 +136,6 @@ public class BeanModelCustomizerSourceImpl implements BeanModelCustomizerSource
 				}
 				
 			}
-			// we couldn't find a customizer for this class by any means
-			else {
-				noMatch.add(clasz);
-			}
 			
 		}
 		
@@ -130,4 +148,4 @@ public class BeanModelCustomizerSourceImpl implements BeanModelCustomizerSource
 		
 	}
 
-}
\ No newline at end of file
+}
\ No newline at end of file
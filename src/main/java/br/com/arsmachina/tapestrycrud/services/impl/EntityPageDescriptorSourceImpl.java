@@ -0,0 +1,170 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.services.impl;
+
+import java.io.Serializable;
+import java.lang.reflect.ParameterizedType;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.tapestry5.PrimaryKeyEncoder;
+
+import br.com.arsmachina.controller.Controller;
+import br.com.arsmachina.module.service.ControllerSource;
+import br.com.arsmachina.module.service.PrimaryKeyTypeService;
+import br.com.arsmachina.tapestrycrud.base.EntityPageDescriptor;
+import br.com.arsmachina.tapestrycrud.encoder.ActivationContextEncoder;
+import br.com.arsmachina.tapestrycrud.services.ActivationContextEncoderSource;
+import br.com.arsmachina.tapestrycrud.services.EntityPageDescriptorSource;
+import br.com.arsmachina.tapestrycrud.services.PrimaryKeyEncoderSource;
+
+/**
+ * {@link EntityPageDescriptorSource} implementation.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class EntityPageDescriptorSourceImpl implements EntityPageDescriptorSource {
+
+	@SuppressWarnings("unchecked")
+	final private ConcurrentMap<Class, EntityPageDescriptor> descriptors =
+		new ConcurrentHashMap<Class, EntityPageDescriptor>();
+
+	@SuppressWarnings("unchecked")
+	final private ConcurrentMap<Class, EntityPageDescriptor> pageDescriptors =
+		new ConcurrentHashMap<Class, EntityPageDescriptor>();
+
+	final private ControllerSource controllerSource;
+
+	final private PrimaryKeyTypeService primaryKeyTypeService;
+
+	final private PrimaryKeyEncoderSource primaryKeyEncoderSource;
+
+	final private ActivationContextEncoderSource activationContextEncoderSource;
+
+	/**
+	 * Single constructor of this class.
+	 * 
+	 * @param controllerSource a {@link ControllerSource}. It cannot be null.
+	 * @param primaryKeyTypeService a {@link PrimaryKeyTypeService}. It cannot be null.
+	 * @param primaryKeyEncoderSource a {@link PrimaryKeyEncoderSource}. It cannot be null.
+	 * @param activationContextEncoderSource an {@link ActivationContextEncoderSource}. It
+	 * cannot be null.
+	 */
+	public EntityPageDescriptorSourceImpl(ControllerSource controllerSource,
+			PrimaryKeyTypeService primaryKeyTypeService,
+			PrimaryKeyEncoderSource primaryKeyEncoderSource,
+			ActivationContextEncoderSource activationContextEncoderSource) {
+
+		if (controllerSource == null) {
+			throw new IllegalArgumentException("Parameter controllerSource cannot be null");
+		}
+
+		if (primaryKeyTypeService == null) {
+			throw new IllegalArgumentException("Parameter primaryKeyTypeService cannot be null");
+		}
+
+		if (primaryKeyEncoderSource == null) {
+			throw new IllegalArgumentException("Parameter primaryKeyEncoderSource cannot be null");
+		}
+
+		if (activationContextEncoderSource == null) {
+			throw new IllegalArgumentException(
+					"Parameter activationContextEncoderSource cannot be null");
+		}
+
+		this.controllerSource = controllerSource;
+		this.primaryKeyTypeService = primaryKeyTypeService;
+		this.primaryKeyEncoderSource = primaryKeyEncoderSource;
+		this.activationContextEncoderSource = activationContextEncoderSource;
+
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T, K extends Serializable> EntityPageDescriptor<T, K> get(Class<T> entityClass) {
+
+		if (entityClass == null) {
+			throw new IllegalArgumentException("Parameter entityClass cannot be null");
+		}
+
+		EntityPageDescriptor<T, K> descriptor = descriptors.get(entityClass);
+
+		if (descriptor == null) {
+
+			// only the first lookup of each class gets here.
+			synchronized (descriptors) {
+
+				descriptor = descriptors.get(entityClass);
+
+				if (descriptor == null) {
+					descriptor = create(entityClass);
+					descriptors.put(entityClass, descriptor);
+				}
+
+			}
+
+		}
+
+		return descriptor;
+
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T, K extends Serializable> EntityPageDescriptor<T, K> getForPage(Class<?> pageClass) {
+
+		if (pageClass == null) {
+			throw new IllegalArgumentException("Parameter pageClass cannot be null");
+		}
+
+		EntityPageDescriptor<T, K> descriptor = pageDescriptors.get(pageClass);
+
+		if (descriptor == null) {
+
+			final ParameterizedType parameterizedType =
+				(ParameterizedType) pageClass.getGenericSuperclass();
+			final Class<T> entityClass = (Class<T>) parameterizedType.getActualTypeArguments()[0];
+
+			descriptor = get(entityClass);
+			pageDescriptors.put(pageClass, descriptor);
+
+		}
+
+		return descriptor;
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T, K extends Serializable> EntityPageDescriptor<T, K> create(Class<T> entityClass) {
+
+		final Class<K> primaryKeyClass = primaryKeyTypeService.getPrimaryKeyType(entityClass);
+		final Controller<T, K> controller = controllerSource.get(entityClass);
+		final PrimaryKeyEncoder<K, T> primaryKeyEncoder =
+			(PrimaryKeyEncoder<K, T>) primaryKeyEncoderSource.get(entityClass);
+
+		ActivationContextEncoder<T> activationContextEncoder;
+
+		// only the editing pages need it and the other pages work without it.
+		try {
+			activationContextEncoder = activationContextEncoderSource.get(entityClass);
+		}
+		catch (IllegalArgumentException e) {
+			activationContextEncoder = null;
+		}
+
+		return new EntityPageDescriptor<T, K>(entityClass, primaryKeyClass, controller,
+				primaryKeyEncoder, activationContextEncoder);
+
+	}
+
+}
@@ -0,0 +1,370 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.services.impl;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tapestry5.ioc.services.PerthreadManager;
+import org.apache.tapestry5.ioc.services.RegistryShutdownHub;
+import org.apache.tapestry5.ioc.services.RegistryShutdownListener;
+import org.apache.tapestry5.services.Request;
+import org.apache.tapestry5.services.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import br.com.arsmachina.tapestrycrud.services.GridPrefetcher;
+
+/**
+ * {@link GridPrefetcher} implementation. The searches are run by a fixed-size thread pool with a
+ * bounded queue: searches that don't fit in the queue are just not prefetched.
+ *
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class GridPrefetcherImpl implements GridPrefetcher {
+
+	/**
+	 * Name of the session attribute that holds the prefetched pages.
+	 */
+	final public static String SESSION_ATTRIBUTE = "tapestry-crud.grid-prefetch-buffer";
+
+	final private static int QUEUE_SIZE = 100;
+
+	final private static Logger LOGGER = LoggerFactory.getLogger(GridPrefetcherImpl.class);
+
+	final private Request request;
+
+	final private PerthreadManager perthreadManager;
+
+	final private ThreadPoolExecutor executor;
+
+	final private int bufferSize;
+
+	final private long maximumAge;
+
+	/**
+	 * Single constructor of this class.
+	 *
+	 * @param request a {@link Request}. It cannot be null.
+	 * @param perthreadManager a {@link PerthreadManager}. It cannot be null.
+	 * @param registryShutdownHub a {@link RegistryShutdownHub}. It cannot be null.
+	 * @param threads an <code>int</code> with the number of threads used to fetch pages.
+	 * @param bufferSize an <code>int</code> with the maximum number of pages buffered per
+	 * session.
+	 * @param maximumAge a <code>long</code> with the maximum time, in milliseconds, a page is
+	 * kept in the buffer.
+	 */
+	public GridPrefetcherImpl(Request request, PerthreadManager perthreadManager,
+			RegistryShutdownHub registryShutdownHub, int threads, int bufferSize, long maximumAge) {
+
+		if (request == null) {
+			throw new IllegalArgumentException("Parameter request cannot be null");
+		}
+
+		if (perthreadManager == null) {
+			throw new IllegalArgumentException("Parameter perthreadManager cannot be null");
+		}
+
+		if (registryShutdownHub == null) {
+			throw new IllegalArgumentException("Parameter registryShutdownHub cannot be null");
+		}
+
+		if (threads <= 0) {
+			throw new IllegalArgumentException("Parameter threads must be greater than 0");
+		}
+
+		this.request = request;
+		this.perthreadManager = perthreadManager;
+		this.bufferSize = bufferSize;
+		this.maximumAge = maximumAge;
+
+		executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), new PrefetchThreadFactory(),
+				new CancelPolicy());
+
+		registryShutdownHub.addRegistryShutdownListener(new RegistryShutdownListener() {
+
+			public void registryDidShutdown() {
+				executor.shutdownNow();
+			}
+
+		});
+
+	}
+
+	public <T> void prefetch(Class<?> entityClass, String key, final Callable<List<T>> search) {
+
+		if (bufferSize <= 0) {
+			return;
+		}
+
+		FutureTask<List<T>> task = new FutureTask<List<T>>(new Callable<List<T>>() {
+
+			public List<T> call() throws Exception {
+
+				try {
+					return search.call();
+				}
+				finally {
+					// releases per-thread resources, such as database sessions.
+					perthreadManager.cleanup();
+				}
+
+			}
+
+		});
+
+		getBuffer(true).put(getBufferKey(entityClass, key), new Entry(task));
+		executor.execute(task);
+
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> List<T> take(Class<?> entityClass, String key) {
+
+		List<T> result = null;
+		final Buffer buffer = getBuffer(false);
+
+		if (buffer != null) {
+
+			final Entry entry = buffer.remove(getBufferKey(entityClass, key));
+
+			if (entry != null && entry.isOlderThan(maximumAge) == false) {
+
+				// we don't wait for unfinished fetches: the page is fetched again instead.
+				if (entry.future.isDone() == false) {
+					entry.future.cancel(false);
+				}
+				else if (entry.future.isCancelled() == false) {
+
+					try {
+						result = (List<T>) entry.future.get();
+					}
+					catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					catch (ExecutionException e) {
+						LOGGER.warn("Exception prefetching grid page " + key, e.getCause());
+					}
+
+				}
+
+			}
+
+		}
+
+		return result;
+
+	}
+
+	public <T> void objectSaved(Class<T> entityClass, T object, boolean inserted) {
+		discard(entityClass);
+	}
+
+	public <T> void objectRemoved(Class<T> entityClass, T object) {
+		discard(entityClass);
+	}
+
+	/**
+	 * Discards all the pages of a given entity class buffered for the current session.
+	 *
+	 * @param entityClass a {@link Class}.
+	 */
+	private void discard(Class<?> entityClass) {
+
+		final Buffer buffer = getBuffer(false);
+
+		if (buffer != null) {
+			buffer.removeAll(entityClass.getName() + ":");
+		}
+
+	}
+
+	private static String getBufferKey(Class<?> entityClass, String key) {
+		return entityClass.getName() + ":" + key;
+	}
+
+	/**
+	 * Returns the buffer of the current session.
+	 *
+	 * @param create a <code>boolean</code> defining whether the buffer (and the session) will be
+	 * created if it doesn't exist.
+	 * @return a {@link Buffer} or <code>null</code>.
+	 */
+	private Buffer getBuffer(boolean create) {
+
+		Buffer buffer = null;
+		final Session session = request.getSession(create);
+
+		if (session != null) {
+
+			buffer = (Buffer) session.getAttribute(SESSION_ATTRIBUTE);
+
+			if (buffer == null && create) {
+				buffer = new Buffer(bufferSize);
+				session.setAttribute(SESSION_ATTRIBUTE, buffer);
+			}
+
+		}
+
+		return buffer;
+
+	}
+
+	/**
+	 * A prefetched (or being prefetched) page and the moment its fetch was scheduled.
+	 */
+	final private static class Entry {
+
+		final private Future<?> future;
+
+		final private long timestamp = System.currentTimeMillis();
+
+		Entry(Future<?> future) {
+			this.future = future;
+		}
+
+		boolean isOlderThan(long age) {
+			return System.currentTimeMillis() - timestamp > age;
+		}
+
+	}
+
+	/**
+	 * The per-session buffer, which discards its least recently used pages when full. It is not
+	 * replicated with the session.
+	 */
+	final private static class Buffer implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		final private int size;
+
+		private transient Map<String, Entry> entries;
+
+		Buffer(int size) {
+			this.size = size;
+		}
+
+		@SuppressWarnings("serial")
+		private Map<String, Entry> getEntries() {
+
+			if (entries == null) {
+
+				entries = new LinkedHashMap<String, Entry>(size + 1, 0.75f, true) {
+
+					@Override
+					protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+
+						final boolean remove = size() > size;
+
+						if (remove) {
+							eldest.getValue().future.cancel(false);
+						}
+
+						return remove;
+
+					}
+
+				};
+
+			}
+
+			return entries;
+
+		}
+
+		synchronized void put(String key, Entry entry) {
+
+			final Entry previous = getEntries().put(key, entry);
+
+			if (previous != null) {
+				previous.future.cancel(false);
+			}
+
+		}
+
+		synchronized Entry remove(String key) {
+			return getEntries().remove(key);
+		}
+
+		synchronized void removeAll(String prefix) {
+
+			final Iterator<Map.Entry<String, Entry>> iterator =
+				getEntries().entrySet().iterator();
+
+			while (iterator.hasNext()) {
+
+				final Map.Entry<String, Entry> entry = iterator.next();
+
+				if (entry.getKey().startsWith(prefix)) {
+					entry.getValue().future.cancel(false);
+					iterator.remove();
+				}
+
+			}
+
+		}
+
+	}
+
+	/**
+	 * Creates daemon threads, so prefetching never prevents the JVM from exiting.
+	 */
+	final private static class PrefetchThreadFactory implements ThreadFactory {
+
+		final private AtomicInteger count = new AtomicInteger();
+
+		public Thread newThread(Runnable runnable) {
+
+			Thread thread =
+				new Thread(runnable, "tapestry-crud-grid-prefetch-" + count.incrementAndGet());
+			thread.setDaemon(true);
+
+			return thread;
+
+		}
+
+	}
+
+	/**
+	 * Cancels the searches that don't fit in the queue, so nobody waits for them.
+	 */
+	final private static class CancelPolicy implements RejectedExecutionHandler {
+
+		public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+
+			if (runnable instanceof Future) {
+				((Future<?>) runnable).cancel(false);
+			}
+
+		}
+
+	}
+
+}
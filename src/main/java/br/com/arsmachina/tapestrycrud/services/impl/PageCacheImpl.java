@@ -0,0 +1,211 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.services.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import br.com.arsmachina.tapestrycrud.services.PageCache;
+import br.com.arsmachina.tapestrycrud.services.TapestryCrudModuleService;
+
+/**
+ * {@link PageCache} implementation.
+ *
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class PageCacheImpl implements PageCache {
+
+	final private TapestryCrudModuleService tapestryCrudModuleService;
+
+	final private ConcurrentMap<Class<?>, AtomicLong> versions =
+		new ConcurrentHashMap<Class<?>, AtomicLong>();
+
+	final private Map<String, Entry> entries;
+
+	final private long maximumAge;
+
+	/**
+	 * Single constructor of this class.
+	 *
+	 * @param tapestryCrudModuleService a {@link TapestryCrudModuleService}. It cannot be null.
+	 * @param size an <code>int</code> with the maximum number of cached values. If it is zero or
+	 * negative, nothing is cached.
+	 * @param maximumAge a <code>long</code> with the maximum time, in milliseconds, a value is
+	 * cached.
+	 */
+	@SuppressWarnings("serial")
+	public PageCacheImpl(TapestryCrudModuleService tapestryCrudModuleService, final int size,
+			long maximumAge) {
+
+		if (tapestryCrudModuleService == null) {
+			throw new IllegalArgumentException(
+					"Parameter tapestryCrudModuleService cannot be null");
+		}
+
+		this.tapestryCrudModuleService = tapestryCrudModuleService;
+		this.maximumAge = maximumAge;
+
+		entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > size;
+			}
+
+		};
+
+	}
+
+	public boolean isEnabled(Class<?> entityClass) {
+		return tapestryCrudModuleService.isPageCacheEnabled(entityClass);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <V> V get(Class<?> entityClass, String key) {
+
+		Object value = null;
+		final String entryKey = getEntryKey(entityClass, key);
+
+		synchronized (entries) {
+
+			final Entry entry = entries.get(entryKey);
+
+			if (entry != null) {
+
+				if (entry.isOlderThan(maximumAge)) {
+					entries.remove(entryKey);
+				}
+				else {
+					value = entry.value;
+				}
+
+			}
+
+		}
+
+		return (V) value;
+
+	}
+
+	public long getVersion(Class<?> entityClass) {
+		return getVersionCounter(entityClass).get();
+	}
+
+	public void put(Class<?> entityClass, String key, Object value, long version) {
+
+		if (value == null) {
+			throw new IllegalArgumentException("Parameter value cannot be null");
+		}
+
+		final AtomicLong counter = getVersionCounter(entityClass);
+
+		synchronized (entries) {
+
+			// invalidations also synchronize on entries, so the check is reliable here.
+			if (counter.get() == version) {
+				entries.put(getEntryKey(entityClass, key), new Entry(value));
+			}
+
+		}
+
+	}
+
+	public void invalidate(Class<?> entityClass) {
+
+		final String prefix = entityClass.getName() + ":";
+
+		synchronized (entries) {
+
+			getVersionCounter(entityClass).incrementAndGet();
+
+			final Iterator<String> iterator = entries.keySet().iterator();
+
+			while (iterator.hasNext()) {
+
+				if (iterator.next().startsWith(prefix)) {
+					iterator.remove();
+				}
+
+			}
+
+		}
+
+	}
+
+	public void invalidateAll() {
+
+		synchronized (entries) {
+
+			for (AtomicLong counter : versions.values()) {
+				counter.incrementAndGet();
+			}
+
+			entries.clear();
+
+		}
+
+	}
+
+	public <T> void objectSaved(Class<T> entityClass, T object, boolean inserted) {
+		invalidate(entityClass);
+	}
+
+	public <T> void objectRemoved(Class<T> entityClass, T object) {
+		invalidate(entityClass);
+	}
+
+	private AtomicLong getVersionCounter(Class<?> entityClass) {
+
+		AtomicLong counter = versions.get(entityClass);
+
+		if (counter == null) {
+
+			versions.putIfAbsent(entityClass, new AtomicLong());
+			counter = versions.get(entityClass);
+
+		}
+
+		return counter;
+
+	}
+
+	private static String getEntryKey(Class<?> entityClass, String key) {
+		return entityClass.getName() + ":" + key;
+	}
+
+	/**
+	 * A cached value and the moment it was cached.
+	 */
+	final private static class Entry {
+
+		final private Object value;
+
+		final private long timestamp = System.currentTimeMillis();
+
+		Entry(Object value) {
+			this.value = value;
+		}
+
+		boolean isOlderThan(long age) {
+			return System.currentTimeMillis() - timestamp > age;
+		}
+
+	}
+
+}
@@ -15,8 +15,9 @@
 package br.com.arsmachina.tapestrycrud.services.impl;
 
 import java.io.Serializable;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.tapestry5.PrimaryKeyEncoder;
 import org.apache.tapestry5.ioc.util.StrategyRegistry;
@@ -26,11 +27,17 @@ import br.com.arsmachina.tapestrycrud.services.EncoderSource;
 import br.com.arsmachina.tapestrycrud.services.PrimaryKeyEncoderSource;
 
 /**
- * {@link PrimaryKeyEncoderSource} implementation.
+ * {@link PrimaryKeyEncoderSource} implementation. Each class is resolved only once and its
+ * encoder, or the lack of one, is cached, so lookups don't lock after the first one.
  * 
  * @author Thiago H. de Paula Figueiredo
  */
 public class PrimaryKeyEncoderSourceImpl implements PrimaryKeyEncoderSource {
+
+	/**
+	 * Cached for the classes without an encoder.
+	 */
+	final private static Object NO_ENCODER = new Object();
 	
 	@SuppressWarnings("unchecked")
 	final private StrategyRegistry<PrimaryKeyEncoder> registry;
@@ -40,7 +47,7 @@ public class PrimaryKeyEncoderSourceImpl implements PrimaryKeyEncoderSource {
 	final private PrimaryKeyEncoderFactory primaryKeyEncoderFactory;
 	
 	@SuppressWarnings("unchecked")
-	final private Map<Class, PrimaryKeyEncoder> additionalEncoders = new HashMap<Class, PrimaryKeyEncoder>();
+	final private ConcurrentMap<Class, Object> encoders = new ConcurrentHashMap<Class, Object>();
 	
 	/**
 	 * Single constructor.
@@ -78,28 +85,34 @@ public class PrimaryKeyEncoderSourceImpl implements PrimaryKeyEncoderSource {
 	@SuppressWarnings("unchecked")
 	public <T, K extends Serializable> PrimaryKeyEncoder<K, T> get(Class<T> clasz) {
 
-		PrimaryKeyEncoder<K, T> encoder = registry.get(clasz);
+		Object cached = encoders.get(clasz);
 
-		if (encoder == null) {
-			encoder = encoderSource.get(clasz);
-		}
+		if (cached == null) {
+
+			// only the first lookup of each class gets here.
+			synchronized (encoders) {
+
+				cached = encoders.get(clasz);
+
+				if (cached == null) {
+
+					cached = resolve(clasz);
+					
+					if (cached == null) {
+						cached = NO_ENCODER;
+					}
+
+					encoders.put(clasz, cached);
 
-		if (encoder == null) {
-			
-			encoder = additionalEncoders.get(clasz);
-			
-			if (encoder == null) {
-				
-				encoder = primaryKeyEncoderFactory.build(clasz);
-				
-				if (encoder != null) {
-					additionalEncoders.put(clasz, encoder);
 				}
-				
+
 			}
-			
+
 		}
 
+		final PrimaryKeyEncoder<K, T> encoder =
+			cached != NO_ENCODER ? (PrimaryKeyEncoder<K, T>) cached : null;
+
 //		if (encoder == null) {
 //			throw new IllegalArgumentException(
 //					"There is no PrimaryKeyEncoder configured for class " + clasz.getName());
@@ -108,6 +121,30 @@ public class PrimaryKeyEncoderSourceImpl implements PrimaryKeyEncoderSource {
 		return encoder;
 
 	}
+
+	/**
+	 * Looks for the encoder of a given class in the registry, then in the {@link EncoderSource}
+	 * and then creates one using the {@link PrimaryKeyEncoderFactory}.
+	 * 
+	 * @param clasz a {@link Class}.
+	 * @return a {@link PrimaryKeyEncoder} or <code>null</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	private PrimaryKeyEncoder resolve(Class clasz) {
+
+		PrimaryKeyEncoder encoder = registry.get(clasz);
+
+		if (encoder == null) {
+			encoder = encoderSource.get(clasz);
+		}
+
+		if (encoder == null) {
+			encoder = primaryKeyEncoderFactory.build(clasz);
+		}
+
+		return encoder;
+
+	}
 	
 
 }
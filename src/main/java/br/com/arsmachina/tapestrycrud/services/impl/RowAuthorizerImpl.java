@@ -0,0 +1,247 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.services.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import br.com.arsmachina.authorization.Authorizer;
+import br.com.arsmachina.tapestrycrud.services.BatchAuthorizer;
+import br.com.arsmachina.tapestrycrud.services.RowAuthorizer;
+
+/**
+ * {@link RowAuthorizer} implementation. It is meant to be used in the per-thread scope, so it is
+ * not thread-safe. Objects are compared by identity.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class RowAuthorizerImpl implements RowAuthorizer {
+
+	final private static int ALL = BatchAuthorizer.READ | BatchAuthorizer.UPDATE
+			| BatchAuthorizer.REMOVE;
+
+	final private Authorizer authorizer;
+
+	final private BatchAuthorizer[] batchAuthorizers;
+
+	final private Map<Object, Decision> objectDecisions = new IdentityHashMap<Object, Decision>();
+
+	final private Map<Class<?>, Decision> classDecisions = new HashMap<Class<?>, Decision>();
+
+	/**
+	 * Single constructor of this class.
+	 * 
+	 * @param authorizer an {@link Authorizer}. It cannot be null.
+	 * @param batchAuthorizers a {@link Collection} of {@link BatchAuthorizer}s. It cannot be
+	 * null. If it is empty, each permission is checked through the {@link Authorizer} only when
+	 * it is asked for.
+	 */
+	public RowAuthorizerImpl(Authorizer authorizer, Collection<BatchAuthorizer> batchAuthorizers) {
+
+		if (authorizer == null) {
+			throw new IllegalArgumentException("Parameter authorizer cannot be null");
+		}
+
+		if (batchAuthorizers == null) {
+			throw new IllegalArgumentException("Parameter batchAuthorizers cannot be null");
+		}
+
+		this.authorizer = authorizer;
+		this.batchAuthorizers =
+			batchAuthorizers.toArray(new BatchAuthorizer[batchAuthorizers.size()]);
+
+	}
+
+	public void prepare(List<?> objects) {
+
+		if (objects == null) {
+			throw new IllegalArgumentException("Parameter objects cannot be null");
+		}
+
+		// without a batch authorizer, nothing is gained by checking the objects in advance.
+		if (batchAuthorizers.length == 0) {
+			return;
+		}
+
+		final List<Object> pending = new ArrayList<Object>(objects.size());
+
+		for (Object object : objects) {
+
+			if (object != null && isKnown(object) == false) {
+				pending.add(object);
+			}
+
+		}
+
+		if (pending.isEmpty() == false) {
+
+			final int[] granted = new int[pending.size()];
+
+			for (int i = 0; i < granted.length; i++) {
+				granted[i] = ALL;
+			}
+
+			// a permission is granted only if every batch authorizer grants it.
+			for (BatchAuthorizer batchAuthorizer : batchAuthorizers) {
+
+				final int[] permissions = batchAuthorizer.getPermissions(pending);
+
+				for (int i = 0; i < granted.length; i++) {
+					granted[i] &= permissions[i];
+				}
+
+			}
+
+			for (int i = 0; i < granted.length; i++) {
+				objectDecisions.put(pending.get(i), new Decision(ALL, granted[i]));
+			}
+
+		}
+
+	}
+
+	public boolean canRead(Object object) {
+		return isAllowed(object, BatchAuthorizer.READ);
+	}
+
+	public boolean canUpdate(Object object) {
+		return isAllowed(object, BatchAuthorizer.UPDATE);
+	}
+
+	public boolean canRemove(Object object) {
+		return isAllowed(object, BatchAuthorizer.REMOVE);
+	}
+
+	private boolean isKnown(Object object) {
+
+		final Decision decision = objectDecisions.get(object);
+		return decision != null && decision.known == ALL;
+
+	}
+
+	private boolean isAllowed(Object object, int permission) {
+
+		if (object == null) {
+			throw new IllegalArgumentException("Parameter object cannot be null");
+		}
+
+		return getClassDecision(object.getClass(), permission)
+				&& getDecision(object, permission);
+
+	}
+
+	private boolean getDecision(Object object, int permission) {
+
+		Decision decision = objectDecisions.get(object);
+
+		if (decision == null) {
+			decision = new Decision(0, 0);
+			objectDecisions.put(object, decision);
+		}
+
+		if ((decision.known & permission) == 0) {
+
+			final boolean allowed;
+
+			switch (permission) {
+
+				case BatchAuthorizer.READ:
+					allowed = authorizer.canRead(object);
+					break;
+
+				case BatchAuthorizer.UPDATE:
+					allowed = authorizer.canUpdate(object);
+					break;
+
+				default:
+					allowed = authorizer.canRemove(object);
+
+			}
+
+			decision.set(permission, allowed);
+
+		}
+
+		return (decision.granted & permission) != 0;
+
+	}
+
+	private boolean getClassDecision(Class<?> clasz, int permission) {
+
+		Decision decision = classDecisions.get(clasz);
+
+		if (decision == null) {
+			decision = new Decision(0, 0);
+			classDecisions.put(clasz, decision);
+		}
+
+		if ((decision.known & permission) == 0) {
+
+			final boolean allowed;
+
+			switch (permission) {
+
+				case BatchAuthorizer.READ:
+					allowed = authorizer.canRead(clasz);
+					break;
+
+				case BatchAuthorizer.UPDATE:
+					allowed = authorizer.canUpdate(clasz);
+					break;
+
+				default:
+					allowed = authorizer.canRemove(clasz);
+
+			}
+
+			decision.set(permission, allowed);
+
+		}
+
+		return (decision.granted & permission) != 0;
+
+	}
+
+	/**
+	 * The permissions already checked (<code>known</code>) and the granted ones.
+	 */
+	final private static class Decision {
+
+		private int known;
+
+		private int granted;
+
+		Decision(int known, int granted) {
+			this.known = known;
+			this.granted = granted;
+		}
+
+		void set(int permission, boolean allowed) {
+
+			known |= permission;
+
+			if (allowed) {
+				granted |= permission;
+			}
+
+		}
+
+	}
+
+}
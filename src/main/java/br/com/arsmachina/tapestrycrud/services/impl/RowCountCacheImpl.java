@@ -0,0 +1,131 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.services.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import br.com.arsmachina.tapestrycrud.grid.PagedSearch;
+import br.com.arsmachina.tapestrycrud.services.RowCountCache;
+
+/**
+ * {@link RowCountCache} implementation.
+ *
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class RowCountCacheImpl implements RowCountCache {
+
+	final private ConcurrentMap<Class<?>, Entry> entries =
+		new ConcurrentHashMap<Class<?>, Entry>();
+
+	final private long maximumAge;
+
+	/**
+	 * Single constructor of this class.
+	 *
+	 * @param maximumAge a <code>long</code> with the maximum time, in milliseconds, a count is
+	 * used before being recounted. If it is zero or negative, no count is cached.
+	 */
+	public RowCountCacheImpl(long maximumAge) {
+		this.maximumAge = maximumAge;
+	}
+
+	public int getCount(Class<?> entityClass, PagedSearch<?> search) {
+
+		if (search == null) {
+			throw new IllegalArgumentException("Parameter search cannot be null");
+		}
+
+		if (maximumAge <= 0) {
+			return search.count();
+		}
+
+		Entry entry = entries.get(entityClass);
+
+		if (entry == null || entry.isOlderThan(maximumAge)) {
+			entry = new Entry(search.count());
+			entries.put(entityClass, entry);
+		}
+
+		return entry.count.get();
+
+	}
+
+	public void setCount(Class<?> entityClass, int count) {
+
+		if (maximumAge > 0) {
+			entries.put(entityClass, new Entry(count));
+		}
+
+	}
+
+	public void refresh(Class<?> entityClass) {
+		entries.remove(entityClass);
+	}
+
+	public void refreshAll() {
+		entries.clear();
+	}
+
+	public <T> void objectSaved(Class<T> entityClass, T object, boolean inserted) {
+
+		if (inserted) {
+
+			final Entry entry = entries.get(entityClass);
+
+			if (entry != null) {
+				entry.count.incrementAndGet();
+			}
+
+		}
+
+	}
+
+	public <T> void objectRemoved(Class<T> entityClass, T object) {
+
+		final Entry entry = entries.get(entityClass);
+
+		if (entry != null) {
+
+			// a concurrent removal could have already been counted by a fresh count.
+			if (entry.count.decrementAndGet() < 0) {
+				entries.remove(entityClass);
+			}
+
+		}
+
+	}
+
+	/**
+	 * A cached count and the moment it was taken.
+	 */
+	final private static class Entry {
+
+		final private AtomicInteger count;
+
+		final private long timestamp = System.currentTimeMillis();
+
+		Entry(int count) {
+			this.count = new AtomicInteger(count);
+		}
+
+		boolean isOlderThan(long age) {
+			return System.currentTimeMillis() - timestamp > age;
+		}
+
+	}
+
+}
@@ -0,0 +1,205 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.services.impl;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.tapestry5.SelectModel;
+
+import br.com.arsmachina.tapestrycrud.services.SelectModelCache;
+import br.com.arsmachina.tapestrycrud.services.TapestryCrudModuleService;
+
+/**
+ * {@link SelectModelCache} implementation.
+ *
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class SelectModelCacheImpl implements SelectModelCache {
+
+	final private TapestryCrudModuleService tapestryCrudModuleService;
+
+	final private ConcurrentMap<Class<?>, Entry> entries = new ConcurrentHashMap<Class<?>, Entry>();
+
+	final private ConcurrentMap<Class<?>, AtomicLong> versions =
+		new ConcurrentHashMap<Class<?>, AtomicLong>();
+
+	final private int maximumSize;
+
+	final private long maximumAge;
+
+	/**
+	 * Single constructor of this class.
+	 *
+	 * @param tapestryCrudModuleService a {@link TapestryCrudModuleService}. It cannot be null.
+	 * @param maximumSize an <code>int</code> with the maximum number of options of a cached
+	 * model. Larger models are not cached.
+	 * @param maximumAge a <code>long</code> with the default maximum time, in milliseconds, a
+	 * model is cached. If it is zero or negative, models are only cached for the types whose
+	 * module defines it.
+	 */
+	public SelectModelCacheImpl(TapestryCrudModuleService tapestryCrudModuleService,
+			int maximumSize, long maximumAge) {
+
+		if (tapestryCrudModuleService == null) {
+			throw new IllegalArgumentException(
+					"Parameter tapestryCrudModuleService cannot be null");
+		}
+
+		this.tapestryCrudModuleService = tapestryCrudModuleService;
+		this.maximumSize = maximumSize;
+		this.maximumAge = maximumAge;
+
+	}
+
+	public boolean isEnabled(Class<?> clasz) {
+		return getMaximumAge(clasz) > 0;
+	}
+
+	public SelectModel get(Class<?> clasz) {
+
+		final long age = getMaximumAge(clasz);
+
+		if (age <= 0) {
+			return null;
+		}
+
+		final Entry entry = entries.get(clasz);
+
+		if (entry != null && entry.isOlderThan(age) == false) {
+			return entry.model;
+		}
+
+		return null;
+
+	}
+
+	public long getVersion(Class<?> clasz) {
+		return getVersionCounter(clasz).get();
+	}
+
+	public void put(Class<?> clasz, SelectModel model, long version) {
+
+		if (model == null) {
+			throw new IllegalArgumentException("Parameter model cannot be null");
+		}
+
+		if (isEnabled(clasz) == false || model.getOptions() == null
+				|| model.getOptions().size() > maximumSize) {
+			return;
+		}
+
+		final AtomicLong counter = getVersionCounter(clasz);
+
+		synchronized (entries) {
+
+			// invalidations also synchronize on entries, so the check is reliable here.
+			if (counter.get() == version) {
+				entries.put(clasz, new Entry(model));
+			}
+
+		}
+
+	}
+
+	public void invalidate(Class<?> clasz) {
+
+		if (clasz == null) {
+			throw new IllegalArgumentException("Parameter clasz cannot be null");
+		}
+
+		synchronized (entries) {
+
+			getVersionCounter(clasz).incrementAndGet();
+
+			for (Map.Entry<Class<?>, AtomicLong> version : versions.entrySet()) {
+
+				if (isRelated(version.getKey(), clasz)) {
+					version.getValue().incrementAndGet();
+				}
+
+			}
+
+			final Iterator<Class<?>> iterator = entries.keySet().iterator();
+
+			while (iterator.hasNext()) {
+
+				if (isRelated(iterator.next(), clasz)) {
+					iterator.remove();
+				}
+
+			}
+
+		}
+
+	}
+
+	public <T> void objectSaved(Class<T> entityClass, T object, boolean inserted) {
+		invalidate(entityClass);
+	}
+
+	public <T> void objectRemoved(Class<T> entityClass, T object) {
+		invalidate(entityClass);
+	}
+
+	private long getMaximumAge(Class<?> clasz) {
+
+		final long age = tapestryCrudModuleService.getSelectModelCacheMaximumAge(clasz);
+		return age < 0 ? maximumAge : age;
+
+	}
+
+	private AtomicLong getVersionCounter(Class<?> clasz) {
+
+		AtomicLong counter = versions.get(clasz);
+
+		if (counter == null) {
+
+			versions.putIfAbsent(clasz, new AtomicLong());
+			counter = versions.get(clasz);
+
+		}
+
+		return counter;
+
+	}
+
+	private static boolean isRelated(Class<?> first, Class<?> second) {
+		return first.isAssignableFrom(second) || second.isAssignableFrom(first);
+	}
+
+	/**
+	 * A cached model and the moment it was cached.
+	 */
+	final private static class Entry {
+
+		final private SelectModel model;
+
+		final private long timestamp = System.currentTimeMillis();
+
+		Entry(SelectModel model) {
+			this.model = model;
+		}
+
+		boolean isOlderThan(long age) {
+			return System.currentTimeMillis() - timestamp > age;
+		}
+
+	}
+
+}
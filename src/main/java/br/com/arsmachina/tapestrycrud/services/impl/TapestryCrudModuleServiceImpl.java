@@ -17,6 +17,8 @@ package br.com.arsmachina.tapestrycrud.services.impl;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.tapestry5.PrimaryKeyEncoder;
 
@@ -25,11 +27,15 @@ import br.com.arsmachina.tapestrycrud.beanmodel.BeanModelCustomizer;
 import br.com.arsmachina.tapestrycrud.encoder.ActivationContextEncoder;
 import br.com.arsmachina.tapestrycrud.encoder.Encoder;
 import br.com.arsmachina.tapestrycrud.encoder.LabelEncoder;
+import br.com.arsmachina.tapestrycrud.module.CacheableTapestryCrudModule;
 import br.com.arsmachina.tapestrycrud.module.TapestryCrudModule;
 import br.com.arsmachina.tapestrycrud.services.TapestryCrudModuleService;
 
 /**
- * Default {@link ModuleService} implementation.
+ * Default {@link ModuleService} implementation. Everything it returns about an entity class is
+ * read from its modules only once, when this object is created, and kept in an immutable
+ * {@link Route}, so each lookup is a single hash probe. Other classes, such as proxies, get
+ * their routes when they are first looked up.
  * 
  * @author Thiago H. de Paula Figueiredo
  */
@@ -40,6 +46,8 @@ public class TapestryCrudModuleServiceImpl implements TapestryCrudModuleService
 
 	final private Set<Class<?>> entityClasses = new HashSet<Class<?>>();
 
+	final private ConcurrentMap<Class<?>, Route> routes = new ConcurrentHashMap<Class<?>, Route>();
+
 	/**
 	 * Single constructor of this class.
 	 * 
@@ -55,6 +63,7 @@ public class TapestryCrudModuleServiceImpl implements TapestryCrudModuleService
 
 		this.modules = Collections.unmodifiableSet(modules);
 		fillEntityClasses();
+		fillRoutes();
 
 	}
 
@@ -62,284 +71,268 @@ public class TapestryCrudModuleServiceImpl implements TapestryCrudModuleService
 		return modules;
 	}
 
+	@SuppressWarnings("unchecked")
 	public <T> Class<? extends ActivationContextEncoder<T>> getActivationContextEncoderClass(
 			Class<T> entityClass) {
 
-		Class<? extends ActivationContextEncoder<T>> encoder = null;
-
-		for (TapestryCrudModule module : modules) {
-
-			encoder = module.getActivationContextEncoderClass(entityClass);
-
-			if (encoder != null) {
-				break;
-			}
-
-		}
-
-		return encoder;
+		return getRoute(entityClass).activationContextEncoderClass;
 
 	}
 
+	@SuppressWarnings("unchecked")
 	public <T> Class<? extends Encoder<T, ?>> getEncoderClass(
 			Class<T> entityClass) {
 
-		Class<? extends Encoder<T, ?>> encoder = null;
-
-		for (TapestryCrudModule module : modules) {
-
-			encoder = module.getEncoderClass(entityClass);
-
-			if (encoder != null) {
-				break;
-			}
-
-		}
-
-		return encoder;
+		return getRoute(entityClass).encoderClass;
 
 	}
 
+	@SuppressWarnings("unchecked")
 	public <T> Class<? extends LabelEncoder<T>> getLabelEncoderClass(
 			Class<T> entityClass) {
 
-		Class<? extends LabelEncoder<T>> encoder = null;
-
-		for (TapestryCrudModule module : modules) {
-
-			encoder = module.getLabelEncoderClass(entityClass);
-
-			if (encoder != null) {
-				break;
-			}
-
-		}
-
-		return encoder;
+		return getRoute(entityClass).labelEncoderClass;
 
 	}
 
+	@SuppressWarnings("unchecked")
 	public <T> Class<? extends PrimaryKeyEncoder<?, T>> getPrimaryKeyEncoderClass(
 			Class<T> entityClass) {
 
-		Class<? extends PrimaryKeyEncoder<?, T>> encoder = null;
-
-		for (TapestryCrudModule module : modules) {
-
-			encoder = module.getPrimaryKeyEncoderClass(entityClass);
-
-			if (encoder != null) {
-				break;
-			}
-
-		}
-
-		return encoder;
+		return getRoute(entityClass).primaryKeyEncoderClass;
 
 	}
 
 	public String getEditPageClassName(Class<?> entityClass) {
-
-		String className = null;
-
-		for (TapestryCrudModule module : getModules()) {
-
-			if (module.contains(entityClass)) {
-				className = module.getEditPageClassName(entityClass);
-				break;
-			}
-
-		}
-
-		return className;
-
+		return getRoute(entityClass).editPageClassName;
 	}
 
 	public String getEditPageURL(Class<?> entityClass) {
+		return getRoute(entityClass).editPageURL;
+	}
 
-		String url = null;
+	public String getListPageURL(Class<?> entityClass) {
+		return getRoute(entityClass).listPageURL;
+	}
 
-		for (TapestryCrudModule module : getModules()) {
+	public String getViewPageURL(Class<?> entityClass) {
+		return getRoute(entityClass).viewPageURL;
+	}
 
-			if (module.contains(entityClass)) {
-				url = module.getEditPageURL(entityClass);
-				break;
-			}
+	public String getListPageClassName(Class<?> entityClass) {
+		return getRoute(entityClass).listPageClassName;
+	}
 
-		}
+	public String getViewPageClassName(Class<?> entityClass) {
+		return getRoute(entityClass).viewPageClassName;
+	}
 
-		return url;
+	public Class<?> getEditPageClass(Class<?> entityClass) {
+		return getRoute(entityClass).editPageClass;
+	}
 
+	public Class<?> getListPageClass(Class<?> entityClass) {
+		return getRoute(entityClass).listPageClass;
 	}
 
-	public String getListPageURL(Class<?> entityClass) {
+	public Class<?> getViewPageClass(Class<?> entityClass) {
+		return getRoute(entityClass).viewPageClass;
+	}
 
-		String url = null;
+	public boolean isPageCacheEnabled(Class<?> entityClass) {
+		return getRoute(entityClass).pageCacheEnabled;
+	}
 
-		for (TapestryCrudModule module : getModules()) {
+	public long getSelectModelCacheMaximumAge(Class<?> entityClass) {
+		return getRoute(entityClass).selectModelCacheMaximumAge;
+	}
 
-			if (module.contains(entityClass)) {
-				url = module.getListPageURL(entityClass);
-				break;
-			}
+	@SuppressWarnings("unchecked")
+	public <T> Class<? extends BeanModelCustomizer<T>> getBeanModelCustomizerClass(
+			Class<T> entityClass) {
 
-		}
+		return getRoute(entityClass).beanModelCustomizerClass;
 
-		return url;
+	}
 
+	public Set<Class<?>> getEntityClasses() {
+		return entityClasses;
 	}
 
-	public String getViewPageURL(Class<?> entityClass) {
+	public boolean contains(Class<?> entityClass) {
+		return getEntityClasses().contains(entityClass);
+	}
+
+	public TapestryCrudModule getModule(Class<?> entityClass) {
+		return getRoute(entityClass).module;
+	}
 
-		String url = null;
+	private void fillEntityClasses() {
 
-		for (TapestryCrudModule module : getModules()) {
+		for (TapestryCrudModule module : modules) {
 
-			if (module.contains(entityClass)) {
-				url = module.getViewPageURL(entityClass);
-				break;
-			}
+			final Set<Class<?>> moduleEntityClasses = module.getEntityClasses();
+			entityClasses.addAll(moduleEntityClasses);
 
 		}
 
-		return url;
-
 	}
 
-	public String getListPageClassName(Class<?> entityClass) {
-
-		String className = null;
-
-		for (TapestryCrudModule module : getModules()) {
-
-			if (module.contains(entityClass)) {
-				className = module.getListPageClassName(entityClass);
-				break;
-			}
+	private void fillRoutes() {
 
+		for (Class<?> entityClass : entityClasses) {
+			routes.put(entityClass, new Route(entityClass, modules));
 		}
 
-		return className;
-
 	}
 
-	public String getViewPageClassName(Class<?> entityClass) {
+	private Route getRoute(Class<?> entityClass) {
 
-		String className = null;
+		Route route = routes.get(entityClass);
 
-		for (TapestryCrudModule module : getModules()) {
+		if (route == null) {
 
-			if (module.contains(entityClass)) {
-				className = module.getViewPageClassName(entityClass);
-				break;
-			}
+			routes.putIfAbsent(entityClass, new Route(entityClass, modules));
+			route = routes.get(entityClass);
 
 		}
 
-		return className;
+		return route;
 
 	}
 
-	public Class<?> getEditPageClass(Class<?> entityClass) {
+	/**
+	 * Everything this service returns about a given class. Missing page and encoder classes
+	 * are recorded as <code>null</code>, so they are not looked for again.
+	 */
+	@SuppressWarnings("unchecked")
+	final private static class Route {
 
-		Class<?> clasz = null;
+		final private TapestryCrudModule module;
 
-		for (TapestryCrudModule module : getModules()) {
+		final private Class activationContextEncoderClass;
 
-			if (module.contains(entityClass)) {
-				clasz = module.getEditPageClass(entityClass);
-				break;
-			}
+		final private Class encoderClass;
 
-		}
+		final private Class labelEncoderClass;
 
-		return clasz;
+		final private Class primaryKeyEncoderClass;
 
-	}
+		final private Class beanModelCustomizerClass;
 
-	public Class<?> getListPageClass(Class<?> entityClass) {
+		final private String editPageClassName;
 
-		Class<?> clasz = null;
+		final private String listPageClassName;
 
-		for (TapestryCrudModule module : getModules()) {
+		final private String viewPageClassName;
 
-			if (module.contains(entityClass)) {
-				clasz = module.getListPageClass(entityClass);
-				break;
-			}
+		final private String editPageURL;
 
-		}
+		final private String listPageURL;
 
-		return clasz;
+		final private String viewPageURL;
 
-	}
+		final private Class<?> editPageClass;
 
-	public Class<?> getViewPageClass(Class<?> entityClass) {
+		final private Class<?> listPageClass;
 
-		Class<?> clasz = null;
+		final private Class<?> viewPageClass;
 
-		for (TapestryCrudModule module : getModules()) {
+		final private boolean pageCacheEnabled;
 
-			if (module.contains(entityClass)) {
-				clasz = module.getViewPageClass(entityClass);
-				break;
-			}
+		final private long selectModelCacheMaximumAge;
 
-		}
+		Route(Class entityClass, Set<TapestryCrudModule> modules) {
 
-		return clasz;
+			Class activationContextEncoderClass = null;
+			Class encoderClass = null;
+			Class labelEncoderClass = null;
+			Class primaryKeyEncoderClass = null;
 
-	}
+			// the encoders are looked for in all modules, not just the owner one.
+			for (TapestryCrudModule candidate : modules) {
 
-	public <T> Class<? extends BeanModelCustomizer<T>> getBeanModelCustomizerClass(
-			Class<T> entityClass) {
+				if (activationContextEncoderClass == null) {
+					activationContextEncoderClass =
+						candidate.getActivationContextEncoderClass(entityClass);
+				}
 
-		Class<? extends BeanModelCustomizer<T>> clasz = null;
+				if (encoderClass == null) {
+					encoderClass = candidate.getEncoderClass(entityClass);
+				}
 
-		for (TapestryCrudModule module : getModules()) {
+				if (labelEncoderClass == null) {
+					labelEncoderClass = candidate.getLabelEncoderClass(entityClass);
+				}
+
+				if (primaryKeyEncoderClass == null) {
+					primaryKeyEncoderClass = candidate.getPrimaryKeyEncoderClass(entityClass);
+				}
 
-			if (module.contains(entityClass)) {
-				clasz = module.getBeanModelCustomizerClass(entityClass);
-				break;
 			}
 
-		}
+			this.activationContextEncoderClass = activationContextEncoderClass;
+			this.encoderClass = encoderClass;
+			this.labelEncoderClass = labelEncoderClass;
+			this.primaryKeyEncoderClass = primaryKeyEncoderClass;
 
-		return clasz;
+			TapestryCrudModule owner = null;
 
-	}
+			for (TapestryCrudModule candidate : modules) {
 
-	public Set<Class<?>> getEntityClasses() {
-		return entityClasses;
-	}
+				if (candidate.contains(entityClass)) {
+					owner = candidate;
+					break;
+				}
 
-	public boolean contains(Class<?> entityClass) {
-		return getEntityClasses().contains(entityClass);
-	}
-
-	public TapestryCrudModule getModule(Class<?> entityClass) {
+			}
 
-		TapestryCrudModule owner = null;
+			module = owner;
 
-		for (TapestryCrudModule module : modules) {
+			if (owner != null) {
 
-			if (module.contains(entityClass)) {
-				owner = module;
-				break;
-			}
+				beanModelCustomizerClass = owner.getBeanModelCustomizerClass(entityClass);
+				editPageClassName = owner.getEditPageClassName(entityClass);
+				listPageClassName = owner.getListPageClassName(entityClass);
+				viewPageClassName = owner.getViewPageClassName(entityClass);
+				editPageURL = owner.getEditPageURL(entityClass);
+				listPageURL = owner.getListPageURL(entityClass);
+				viewPageURL = owner.getViewPageURL(entityClass);
+				editPageClass = owner.getEditPageClass(entityClass);
+				listPageClass = owner.getListPageClass(entityClass);
+				viewPageClass = owner.getViewPageClass(entityClass);
 
-		}
+				if (owner instanceof CacheableTapestryCrudModule) {
 
-		return owner;
+					final CacheableTapestryCrudModule cacheable =
+						(CacheableTapestryCrudModule) owner;
+					pageCacheEnabled = cacheable.isPageCacheEnabled(entityClass);
+					selectModelCacheMaximumAge =
+						cacheable.getSelectModelCacheMaximumAge(entityClass);
 
-	}
+				}
+				else {
+					pageCacheEnabled = false;
+					selectModelCacheMaximumAge = -1;
+				}
 
-	private void fillEntityClasses() {
-
-		for (TapestryCrudModule module : modules) {
+			}
+			else {
+
+				beanModelCustomizerClass = null;
+				editPageClassName = null;
+				listPageClassName = null;
+				viewPageClassName = null;
+				editPageURL = null;
+				listPageURL = null;
+				viewPageURL = null;
+				editPageClass = null;
+				listPageClass = null;
+				viewPageClass = null;
+				pageCacheEnabled = false;
+				selectModelCacheMaximumAge = -1;
 
-			final Set<Class<?>> moduleEntityClasses = module.getEntityClasses();
-			entityClasses.addAll(moduleEntityClasses);
+			}
 
 		}
 
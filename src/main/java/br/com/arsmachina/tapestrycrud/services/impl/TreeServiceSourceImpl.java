@@ -14,12 +14,27 @@
 
 package br.com.arsmachina.tapestrycrud.services.impl;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import org.apache.tapestry5.PrimaryKeyEncoder;
 import org.apache.tapestry5.ioc.util.StrategyRegistry;
 
+import br.com.arsmachina.controller.Controller;
+import br.com.arsmachina.module.service.ControllerSource;
+import br.com.arsmachina.tapestrycrud.services.PrimaryKeyEncoderSource;
 import br.com.arsmachina.tapestrycrud.services.TreeServiceSource;
+import br.com.arsmachina.tapestrycrud.tree.BulkSingleTypeTreeService;
+import br.com.arsmachina.tapestrycrud.tree.CompactTree;
 import br.com.arsmachina.tapestrycrud.tree.SingleTypeTreeService;
+import br.com.arsmachina.tapestrycrud.tree.TreeCacheStatistics;
+import br.com.arsmachina.tapestrycrud.tree.TreeSnapshot;
 
 /**
  * {@link TreeServiceSource} implementation.
@@ -31,19 +46,39 @@ public class TreeServiceSourceImpl implements TreeServiceSource {
 	@SuppressWarnings("unchecked")
 	final private StrategyRegistry<SingleTypeTreeService> registry;
 
+	final private ControllerSource controllerSource;
+
+	final private PrimaryKeyEncoderSource primaryKeyEncoderSource;
+
+	final private ConcurrentMap<Class<?>, Entry> entries =
+		new ConcurrentHashMap<Class<?>, Entry>();
+
 	/**
 	 * Single constructor.
 	 * 
 	 * @param registrations
+	 * @param controllerSource a {@link ControllerSource}. It cannot be null.
+	 * @param primaryKeyEncoderSource a {@link PrimaryKeyEncoderSource}. It cannot be null.
 	 */
 	@SuppressWarnings("unchecked")
-	public TreeServiceSourceImpl(Map<Class, SingleTypeTreeService> registrations) {
+	public TreeServiceSourceImpl(Map<Class, SingleTypeTreeService> registrations,
+			ControllerSource controllerSource, PrimaryKeyEncoderSource primaryKeyEncoderSource) {
 
 		if (registrations == null) {
 			throw new IllegalArgumentException("Parameter registrations cannot be null");
 		}
 
+		if (controllerSource == null) {
+			throw new IllegalArgumentException("Parameter controllerSource cannot be null");
+		}
+
+		if (primaryKeyEncoderSource == null) {
+			throw new IllegalArgumentException("Parameter primaryKeyEncoderSource cannot be null");
+		}
+
 		registry = StrategyRegistry.newInstance(SingleTypeTreeService.class, registrations);
+		this.controllerSource = controllerSource;
+		this.primaryKeyEncoderSource = primaryKeyEncoderSource;
 
 	}
 
@@ -55,4 +90,189 @@ public class TreeServiceSourceImpl implements TreeServiceSource {
 		return registry.get(clasz);
 	}
 
+	@SuppressWarnings("unchecked")
+	public <T> TreeSnapshot<T> getSnapshot(Class<T> clasz) {
+
+		if (clasz == null) {
+			throw new IllegalArgumentException("Parameter clasz cannot be null");
+		}
+
+		final Entry entry = getEntry(clasz);
+		final long version;
+
+		synchronized (entry) {
+
+			if (entry.snapshot != null) {
+				entry.hits++;
+				return entry.snapshot;
+			}
+
+			entry.misses++;
+			version = entry.version;
+
+		}
+
+		// built outside the lock, so slow queries don't block invalidations.
+		final long start = System.currentTimeMillis();
+
+		final Controller controller = controllerSource.get(clasz);
+
+		if (controller == null) {
+			throw new IllegalArgumentException("No controller found for " + clasz.getName());
+		}
+
+		final List<T> objects = controller.findAll();
+		final SingleTypeTreeService<T> treeService = get(clasz);
+		CompactTree<T> tree;
+
+		if (treeService instanceof BulkSingleTypeTreeService) {
+			tree = ((BulkSingleTypeTreeService<T>) treeService).buildCompactTree(objects);
+		}
+		else {
+			tree = new CompactTree<T>(clasz, buildChildrenMap(treeService, objects));
+		}
+
+		// snapshots are read with objects loaded in other sessions, so they're found by key.
+		final PrimaryKeyEncoder<?, T> primaryKeyEncoder = primaryKeyEncoderSource.get(clasz);
+
+		if (primaryKeyEncoder != null) {
+			tree = new CompactTree<T>(tree, primaryKeyEncoder);
+		}
+
+		final long buildTime = System.currentTimeMillis() - start;
+		final TreeSnapshot<T> snapshot = new TreeSnapshot<T>(tree, buildTime);
+
+		synchronized (entry) {
+
+			entry.builds++;
+			entry.lastBuildTime = buildTime;
+			entry.totalBuildTime += buildTime;
+
+			// an object was changed while the snapshot was built, so it may be stale.
+			if (entry.version == version) {
+				entry.snapshot = snapshot;
+			}
+
+		}
+
+		return snapshot;
+
+	}
+
+	public void invalidate(Class<?> clasz) {
+
+		for (Map.Entry<Class<?>, Entry> mapEntry : entries.entrySet()) {
+
+			final Class<?> cachedClass = mapEntry.getKey();
+
+			if (cachedClass.isAssignableFrom(clasz) || clasz.isAssignableFrom(cachedClass)) {
+
+				final Entry entry = mapEntry.getValue();
+
+				synchronized (entry) {
+					entry.snapshot = null;
+					entry.version++;
+				}
+
+			}
+
+		}
+
+	}
+
+	public TreeCacheStatistics getStatistics(Class<?> clasz) {
+
+		final Entry entry = getEntry(clasz);
+
+		synchronized (entry) {
+			return new TreeCacheStatistics(entry.hits, entry.misses, entry.builds,
+					entry.lastBuildTime, entry.totalBuildTime);
+		}
+
+	}
+
+	public <T> void objectSaved(Class<T> entityClass, T object, boolean inserted) {
+		invalidate(entityClass);
+	}
+
+	public <T> void objectRemoved(Class<T> entityClass, T object) {
+		invalidate(entityClass);
+	}
+
+	/**
+	 * Links a flat list of objects using {@link SingleTypeTreeService#getParent(Object)}, for tree
+	 * services that don't implement {@link BulkSingleTypeTreeService}. Objects that are roots or
+	 * whose parent is not in the list are mapped from the <code>null</code> key.
+	 * 
+	 * @param treeService a {@link SingleTypeTreeService}.
+	 * @param objects a {@link List} of <code>T</code>.
+	 * @return a {@link Map}.
+	 */
+	private static <T> Map<T, List<T>> buildChildrenMap(SingleTypeTreeService<T> treeService,
+			List<T> objects) {
+
+		final Set<T> objectSet = new HashSet<T>(objects);
+		final Map<T, List<T>> childrenMap = new HashMap<T, List<T>>();
+
+		for (T object : objects) {
+
+			T parent = treeService.isRoot(object) ? null : treeService.getParent(object);
+
+			if (parent != null && objectSet.contains(parent) == false) {
+				parent = null;
+			}
+
+			List<T> siblings = childrenMap.get(parent);
+
+			if (siblings == null) {
+				siblings = new ArrayList<T>();
+				childrenMap.put(parent, siblings);
+			}
+
+			siblings.add(object);
+
+		}
+
+		return childrenMap;
+
+	}
+
+	private Entry getEntry(Class<?> clasz) {
+
+		Entry entry = entries.get(clasz);
+
+		if (entry == null) {
+
+			entries.putIfAbsent(clasz, new Entry());
+			entry = entries.get(clasz);
+
+		}
+
+		return entry;
+
+	}
+
+	/**
+	 * The cached snapshot of an entity class and its statistics. All fields are guarded by the
+	 * entry itself.
+	 */
+	final private static class Entry {
+
+		@SuppressWarnings("unchecked")
+		private TreeSnapshot snapshot;
+
+		private long version;
+
+		private long hits;
+
+		private long misses;
+
+		private long builds;
+
+		private long lastBuildTime;
+
+		private long totalBuildTime;
+
+	}
+
 }
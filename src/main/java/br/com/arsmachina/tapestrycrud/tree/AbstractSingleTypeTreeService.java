@@ -17,19 +17,39 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import br.com.arsmachina.tapestrycrud.encoder.LabelEncoder;
 import br.com.arsmachina.tapestrycrud.services.LabelEncoderSource;
 
 /**
- * A partial implementation of {@link SingleTypeTreeService}.
+ * A partial implementation of {@link SingleTypeTreeService} and
+ * {@link BulkSingleTypeTreeService}. By default, trees are built by
+ * invoking {@link #getChildren(Object)} for each node. Subclasses that can fetch all the objects
+ * of a tree in a single query should override {@link #getAllObjects()}: the methods that order
+ * or build the trees of a list of objects ({@link #treeOrder(List)},
+ * {@link #buildTreeNodeList(List)} and {@link #buildTreeSelectNodeList(List)}) will then fetch
+ * them once per invocation and link the nodes in a single pass using {@link #getParent(Object)}.
+ * The methods that work on a single object ({@link #buildTreeNode(Object)} and
+ * {@link #buildChildTreeSelectNodes(Object, int)}) always use {@link #getChildren(Object)}, so
+ * they never load the whole table.
+ * <p>
+ * All the traversals are iterative, so deep or corrupt (cyclic) hierarchies never overflow the
+ * stack of a request thread. Objects already visited in a traversal are skipped. Trees are
+ * always built in the calling thread, as {@link #getChildren(Object)} and
+ * {@link #getAllObjects()} usually depend on request-bound resources, such as the Hibernate
+ * session.
+ * </p>
  * 
  * @param <T> the class related to this factory.
  * @author Thiago H. de Paula Figueiredo
  */
 public abstract class AbstractSingleTypeTreeService<T> implements
-		SingleTypeTreeService<T> {
+		BulkSingleTypeTreeService<T> {
 
 	final protected List<TreeNode<T>> EMPTY_LIST =
 		Collections.unmodifiableList(new ArrayList<TreeNode<T>>());
@@ -59,26 +79,244 @@ public abstract class AbstractSingleTypeTreeService<T> implements
 
 	}
 
+	public Class<T> getType() {
+		return type;
+	}
+
 	public TreeNode<T> buildTreeNode(T object) {
 		return build(object, 1);
 	}
 
 	/**
-	 * Builds a {@link TreeNode} for a given object at a given level.
+	 * Returns the ancestors of a given object by invoking {@link #getParent(Object)} up to its
+	 * root. Subclasses whose entities have a materialized path or a closure table should override
+	 * this method to fetch them in a single query.
+	 * 
+	 * @param object a <code>T</code>. It cannot be null.
+	 * @return a {@link List} of <code>T</code>.
+	 */
+	public List<T> getAncestors(T object) {
+
+		if (object == null) {
+			throw new IllegalArgumentException("Parameter object cannot be null");
+		}
+
+		final List<T> ancestors = new ArrayList<T>();
+		final Set<T> visited = new HashSet<T>();
+		T current = isRoot(object) ? null : getParent(object);
+
+		visited.add(object);
+
+		// a corrupt hierarchy may have cycles.
+		while (current != null && visited.add(current)) {
+			ancestors.add(current);
+			current = isRoot(current) ? null : getParent(current);
+		}
+
+		Collections.reverse(ancestors);
+
+		return ancestors;
+
+	}
+
+	/**
+	 * Tells which of some objects have children. This implementation invokes
+	 * {@link #getChildren(Object)} for each object, so subclasses should override it to check
+	 * them all in a single query, for example by selecting the distinct parents among the given
+	 * objects.
+	 * 
+	 * @param objects a {@link List} of <code>T</code>. It cannot be null.
+	 * @return a <code>boolean</code> array.
+	 */
+	public boolean[] hasChildren(List<T> objects) {
+
+		if (objects == null) {
+			throw new IllegalArgumentException("Parameter objects cannot be null");
+		}
+
+		final boolean[] result = new boolean[objects.size()];
+
+		for (int i = 0; i < result.length; i++) {
+
+			final List<T> children = getChildren(objects.get(i));
+			result[i] = children != null && children.isEmpty() == false;
+
+		}
+
+		return result;
+
+	}
+
+	public List<TreeNode<T>> buildTree(List<T> objects) {
+
+		if (objects == null) {
+			throw new IllegalArgumentException("Parameter objects cannot be null");
+		}
+
+		return buildRoots(buildChildrenMap(objects));
+
+	}
+
+	public CompactTree<T> buildCompactTree(List<T> objects) {
+
+		if (objects == null) {
+			throw new IllegalArgumentException("Parameter objects cannot be null");
+		}
+
+		return new CompactTree<T>(type, buildChildrenMap(objects));
+
+	}
+
+	/**
+	 * Builds the {@link TreeNode}s of the roots of a children map.
+	 * 
+	 * @param childrenMap a {@link Map} built by {@link #buildChildrenMap(List)}.
+	 * @return a {@link List} of {@link TreeNode}s.
+	 */
+	private List<TreeNode<T>> buildRoots(Map<T, List<T>> childrenMap) {
+
+		final List<T> roots = childrenMap.get(null);
+
+		if (roots == null) {
+			return new ArrayList<TreeNode<T>>();
+		}
+
+		final List<TreeNode<T>> nodes = new ArrayList<TreeNode<T>>(roots.size());
+
+		for (T root : roots) {
+			nodes.add(build(root, 1, childrenMap));
+		}
+
+		return nodes;
+
+	}
+
+	/**
+	 * Links a flat list of objects in a single pass, returning a map from each object to its
+	 * children. Objects that are roots or whose parent is not in the list are mapped from the
+	 * <code>null</code> key. The order of the objects in the list is kept among siblings.
+	 * 
+	 * @param objects a {@link List} of <code>T</code>. It cannot be null.
+	 * @return a {@link Map}.
+	 */
+	protected Map<T, List<T>> buildChildrenMap(List<T> objects) {
+
+		final Set<T> objectSet = new HashSet<T>(objects);
+		final Map<T, List<T>> childrenMap = new HashMap<T, List<T>>();
+
+		for (T object : objects) {
+
+			T parent = isRoot(object) ? null : getParent(object);
+
+			if (parent != null && objectSet.contains(parent) == false) {
+				parent = null;
+			}
+
+			List<T> siblings = childrenMap.get(parent);
+
+			if (siblings == null) {
+				siblings = new ArrayList<T>();
+				childrenMap.put(parent, siblings);
+			}
+
+			siblings.add(object);
+
+		}
+
+		return childrenMap;
+
+	}
+
+	/**
+	 * Returns the children map of all the objects returned by {@link #getAllObjects()} or
+	 * <code>null</code> if this method returns <code>null</code>. As it fetches all the objects,
+	 * it is invoked once per operation and the map is passed down to the building methods.
+	 * 
+	 * @return a {@link Map} or <code>null</code>.
+	 */
+	protected Map<T, List<T>> getChildrenMap() {
+
+		final List<T> objects = getAllObjects();
+		return objects != null ? buildChildrenMap(objects) : null;
+
+	}
+
+	/**
+	 * Returns all the objects of the tree, fetched in a single query, so trees can be built
+	 * without invoking {@link #getChildren(Object)} for each node. This implementation returns
+	 * <code>null</code>, meaning that {@link #getChildren(Object)} is used instead.
+	 * 
+	 * @return a {@link List} of <code>T</code> or <code>null</code>.
+	 */
+	protected List<T> getAllObjects() {
+		return null;
+	}
+
+	/**
+	 * Builds a {@link TreeNode} for a given object at a given level using
+	 * {@link #getChildren(Object)}, so only its subtree is fetched.
 	 * 
 	 * @param object a <code>T</code> instance.
 	 * @param level an <code>int</code>.
 	 * @return a {@link TreeNode}.
 	 */
 	protected TreeNode<T> build(T object, int level) {
+		return build(object, level, null);
+	}
 
-		SimpleTreeNode<T> treeNode = new SimpleTreeNode<T>(object, level, type);
-		List<T> children = getChildren(object);
+	/**
+	 * Builds a {@link TreeNode} for a given object at a given level.
+	 * 
+	 * @param object a <code>T</code> instance.
+	 * @param level an <code>int</code>.
+	 * @param childrenMap a {@link Map} built by {@link #buildChildrenMap(List)} or
+	 * <code>null</code> to use {@link #getChildren(Object)}.
+	 * @return a {@link TreeNode}.
+	 */
+	protected TreeNode<T> build(T object, int level, Map<T, List<T>> childrenMap) {
+		return build(object, level, childrenMap, Integer.MAX_VALUE);
+	}
 
-		if (children != null) {
+	/**
+	 * Builds a {@link TreeNode} for a given object at a given level, stopping at a given level.
+	 * 
+	 * @param object a <code>T</code> instance.
+	 * @param level an <code>int</code>.
+	 * @param childrenMap a {@link Map} built by {@link #buildChildrenMap(List)} or
+	 * <code>null</code> to use {@link #getChildren(Object)}.
+	 * @param maximumLevel an <code>int</code> with the level of the deepest nodes built.
+	 * @return a {@link TreeNode}.
+	 */
+	private TreeNode<T> build(T object, int level, Map<T, List<T>> childrenMap,
+			int maximumLevel) {
+
+		final SimpleTreeNode<T> treeNode = new SimpleTreeNode<T>(object, level, type);
+		final List<SimpleTreeNode<T>> stack = new ArrayList<SimpleTreeNode<T>>();
+		final Set<T> visited = new HashSet<T>();
+
+		stack.add(treeNode);
+		visited.add(object);
+
+		while (stack.isEmpty() == false) {
+
+			final SimpleTreeNode<T> node = stack.remove(stack.size() - 1);
+			final int childLevel = node.getLevel() + 1;
+
+			if (childLevel <= maximumLevel) {
+
+				for (T child : getChildren(node.getObject(), childrenMap)) {
+
+					if (visited.add(child)) {
+
+						final SimpleTreeNode<T> childNode =
+							new SimpleTreeNode<T>(child, childLevel, type);
+						node.add(childNode);
+						stack.add(childNode);
+
+					}
+
+				}
 
-			for (T child : children) {
-				treeNode.add(build(child, level + 1));
 			}
 
 		}
@@ -87,6 +325,23 @@ public abstract class AbstractSingleTypeTreeService<T> implements
 
 	}
 
+	/**
+	 * Returns the children of a given object using a children map, if available, or
+	 * {@link #getChildren(Object)}.
+	 * 
+	 * @param object a <code>T</code> instance.
+	 * @param childrenMap a {@link Map} or <code>null</code>.
+	 * @return a {@link List} of <code>T</code>. It is never null.
+	 */
+	private List<T> getChildren(T object, Map<T, List<T>> childrenMap) {
+
+		final List<T> children =
+			childrenMap != null ? childrenMap.get(object) : getChildren(object);
+
+		return children != null ? children : Collections.<T>emptyList();
+
+	}
+
 	/**
 	 * Returns the list of the children of a given object.
 	 * 
@@ -97,12 +352,13 @@ public abstract class AbstractSingleTypeTreeService<T> implements
 
 	public void treeOrder(List<T> objects) {
 
+		final Map<T, List<T>> childrenMap = getChildrenMap();
 		List<T> list = new ArrayList<T>();
 
 		for (T object : objects) {
 
 			if (isRoot(object)) {
-				add(object, list);
+				add(object, list, childrenMap);
 			}
 
 		}
@@ -117,13 +373,32 @@ public abstract class AbstractSingleTypeTreeService<T> implements
 	 * 
 	 * @param object a <code>T</code>.
 	 * @param list a {@link List} of <code>T</code>.
+	 * @param childrenMap a {@link Map} or <code>null</code>.
 	 */
-	void add(T object, List<T> list) {
+	void add(T object, List<T> list, Map<T, List<T>> childrenMap) {
+
+		final List<T> stack = new ArrayList<T>();
+		final Set<T> visited = new HashSet<T>();
+
+		stack.add(object);
+
+		while (stack.isEmpty() == false) {
 
-		list.add(object);
+			final T current = stack.remove(stack.size() - 1);
+
+			if (visited.add(current)) {
+
+				list.add(current);
+
+				final List<T> children = getChildren(current, childrenMap);
+
+				// pushed backwards, so they are popped in order.
+				for (int i = children.size() - 1; i >= 0; i--) {
+					stack.add(children.get(i));
+				}
+
+			}
 
-		for (T child : getChildren(object)) {
-			add(child, list);
 		}
 
 	}
@@ -138,16 +413,61 @@ public abstract class AbstractSingleTypeTreeService<T> implements
 		final SimpleTreeSelectNode treeSelectNode =
 			new SimpleTreeSelectNode(object, childrenTSN, label);
 
-		final List<TreeNode<T>> children = node.getChildren();
+		// each node is pushed with the list its tree select node must be added to.
+		final List<TreeNode<T>> nodeStack = new ArrayList<TreeNode<T>>();
+		final List<List<TreeSelectNode>> listStack = new ArrayList<List<TreeSelectNode>>();
+
+		push(node.getChildren(), childrenTSN, nodeStack, listStack);
+
+		while (nodeStack.isEmpty() == false) {
+
+			final TreeNode<T> current = nodeStack.remove(nodeStack.size() - 1);
+			final List<TreeSelectNode> siblings = listStack.remove(listStack.size() - 1);
+			final List<TreeSelectNode> children = new ArrayList<TreeSelectNode>();
+			final T currentObject = current.getObject();
+
+			siblings.add(new SimpleTreeSelectNode(currentObject, children,
+					labelEncoder.toLabel(currentObject)));
+
+			push(current.getChildren(), children, nodeStack, listStack);
 
-		for (TreeNode<T> childNode : children) {
-			childrenTSN.add(buildTreeSelectNode(childNode));
 		}
 
 		return treeSelectNode;
 
 	}
 
+	/**
+	 * Pushes tree nodes backwards, so they are popped in order.
+	 */
+	private void push(List<TreeNode<T>> nodes, List<TreeSelectNode> list,
+			List<TreeNode<T>> nodeStack, List<List<TreeSelectNode>> listStack) {
+
+		for (int i = nodes.size() - 1; i >= 0; i--) {
+			nodeStack.add(nodes.get(i));
+			listStack.add(list);
+		}
+
+	}
+
+	public List<TreeSelectNode> buildChildTreeSelectNodes(T object, int depth) {
+
+		if (object == null) {
+			throw new IllegalArgumentException("Parameter object cannot be null");
+		}
+
+		// only the requested levels are fetched, never the whole table.
+		final List<T> children = getChildren(object, null);
+		final List<TreeSelectNode> nodes = new ArrayList<TreeSelectNode>(children.size());
+
+		for (T child : children) {
+			nodes.add(buildTreeSelectNode(build(child, 1, null, depth)));
+		}
+
+		return nodes;
+
+	}
+
 	public List<TreeSelectNode> buildTreeSelectNodeListFromTreeNodes(
 			List<TreeNode<T>> nodes) {
 
@@ -168,19 +488,55 @@ public abstract class AbstractSingleTypeTreeService<T> implements
 
 	public List<TreeNode<T>> buildTreeNodeList(List<T> objects) {
 
-		treeOrder(objects);
-		
+		final Map<T, List<T>> childrenMap = getChildrenMap();
 		final List<TreeNode<T>> nodes =
 			new ArrayList<TreeNode<T>>(objects.size());
 
+		// each subtree is built once and its nodes are added in tree order.
 		for (T object : objects) {
-			nodes.add(buildTreeNode(object));
+
+			if (isRoot(object)) {
+				addAll(build(object, 1, childrenMap), nodes);
+			}
+
+		}
+
+		objects.clear();
+
+		for (TreeNode<T> node : nodes) {
+			objects.add(node.getObject());
 		}
 
 		return nodes;
 
 	}
 
+	/**
+	 * Adds a tree node and all its descendants to a list in tree order.
+	 * 
+	 * @param node a {@link TreeNode}.
+	 * @param nodes a {@link List} of {@link TreeNode}s.
+	 */
+	private void addAll(TreeNode<T> node, List<TreeNode<T>> nodes) {
+
+		final List<TreeNode<T>> stack = new ArrayList<TreeNode<T>>();
+		stack.add(node);
+
+		while (stack.isEmpty() == false) {
+
+			final TreeNode<T> current = stack.remove(stack.size() - 1);
+			final List<TreeNode<T>> children = current.getChildren();
+
+			nodes.add(current);
+
+			for (int i = children.size() - 1; i >= 0; i--) {
+				stack.add(children.get(i));
+			}
+
+		}
+
+	}
+
 	public List<TreeSelectNode> buildTreeSelectNodeList(List<T> objects) {
 		return buildTreeSelectNodeListFromTreeNodes(buildTreeNodeList(objects));
 	}
@@ -206,18 +562,22 @@ public abstract class AbstractSingleTypeTreeService<T> implements
 		
 		TreeNode<T> result = null;
 		
-		if (treeNode.getObject().equals(object)) {
-			result = treeNode; 
-		}
-		else {
+		final List<TreeNode<T>> stack = new ArrayList<TreeNode<T>>();
+		stack.add(treeNode);
+		
+		while (result == null && stack.isEmpty() == false) {
 			
-			final List<TreeNode<T>> children = treeNode.getChildren();
-			for (TreeNode<T> node : children) {
+			final TreeNode<T> node = stack.remove(stack.size() - 1);
+			
+			if (node.getObject().equals(object)) {
+				result = node;
+			}
+			else {
 				
-				result = find(object, node);
+				final List<TreeNode<T>> children = node.getChildren();
 				
-				if (result != null) {
-					break;
+				for (int i = children.size() - 1; i >= 0; i--) {
+					stack.add(children.get(i));
 				}
 				
 			}
@@ -0,0 +1,86 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.tree;
+
+import java.util.List;
+
+/**
+ * Optional interface that {@link SingleTypeTreeService} implementations can also implement to
+ * fetch and link many objects at once. {@link AbstractSingleTypeTreeService} implements it. The
+ * components that use tree services fall back to {@link SingleTypeTreeService#getParent(Object)}
+ * and {@link SingleTypeTreeService#buildTreeNode(Object)} for services that don't implement it.
+ * 
+ * @param <T> the class related to this factory.
+ * @author Thiago H. de Paula Figueiredo
+ */
+public interface BulkSingleTypeTreeService<T> extends SingleTypeTreeService<T> {
+
+	/**
+	 * Returns the type of the objects handled by this service.
+	 * 
+	 * @return a {@link Class}. It cannot be null.
+	 */
+	Class<T> getType();
+
+	/**
+	 * Builds the trees of a flat list of objects in a single pass, linking each object to its
+	 * parent as returned by {@link #getParent(Object)}. Objects whose parent is not in the list
+	 * are treated as roots. No other objects are fetched.
+	 * 
+	 * @param objects a {@link List} of <code>T</code>. It cannot be null.
+	 * @return a {@link List} of the root {@link TreeNode}s. It cannot be null.
+	 */
+	List<TreeNode<T>> buildTree(List<T> objects);
+
+	/**
+	 * Builds a {@link CompactTree} out of a flat list of objects in a single pass, the same way
+	 * {@link #buildTree(List)} does, but without creating one object per node.
+	 * 
+	 * @param objects a {@link List} of <code>T</code>. It cannot be null.
+	 * @return a {@link CompactTree}. It cannot be null.
+	 */
+	CompactTree<T> buildCompactTree(List<T> objects);
+
+	/**
+	 * Returns all the ancestors of a given object in a single call, starting from its root.
+	 * Implementations backed by a materialized path or a closure table should fetch them in a
+	 * single query.
+	 * 
+	 * @param object a <code>T</code>. It cannot be null.
+	 * @return a {@link List} of <code>T</code>. It cannot be null, but it is empty for roots.
+	 */
+	List<T> getAncestors(T object);
+
+	/**
+	 * Tells which of some objects have children, in a single call. Implementations should check
+	 * them all in a single query instead of fetching the children of each object.
+	 * 
+	 * @param objects a {@link List} of <code>T</code>. It cannot be null.
+	 * @return a <code>boolean</code> array with the same size and order of <code>objects</code>.
+	 */
+	boolean[] hasChildren(List<T> objects);
+
+	/**
+	 * Builds the {@link TreeSelectNode}s of the children of a given object, down to a given
+	 * depth. It is used to load subtrees on demand.
+	 * 
+	 * @param object a <code>T</code>. It cannot be null.
+	 * @param depth an <code>int</code> with the number of levels to build. 1 builds only the
+	 * children, 2 also builds their children and so on.
+	 * @return a {@link List} of {@link TreeSelectNode}. It cannot be null.
+	 */
+	List<TreeSelectNode> buildChildTreeSelectNodes(T object, int depth);
+
+}
@@ -0,0 +1,518 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.tree;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tapestry5.PrimaryKeyEncoder;
+
+/**
+ * A compact, immutable representation of a forest. Instead of one object per node, it keeps
+ * parallel arrays indexed by the position of each node in tree order: the objects, the parent
+ * positions, the levels and the positions of the children, stored contiguously for each node.
+ * Nodes are addressed by their position, so large trees can be traversed without any wrapper
+ * object. {@link #getNode(int)} returns a {@link TreeNode} view for code that needs one.
+ * <p>
+ * {@link #indexOf(Object)} finds objects using <code>equals()</code> and <code>hashCode()</code>
+ * by default, which usually means identity for entities. Trees whose objects are looked up with
+ * instances loaded elsewhere, for example in another Hibernate session, must be created with
+ * {@link #CompactTree(CompactTree, PrimaryKeyEncoder)}, so objects are found by primary key.
+ * </p>
+ * 
+ * @param <T> the type of the objects in the trees.
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class CompactTree<T> {
+
+	final private Class<T> type;
+
+	final private Object[] objects;
+
+	final private int[] parents;
+
+	final private int[] levels;
+
+	/**
+	 * The children of node <code>i</code> are in <code>children</code> from position
+	 * <code>childOffsets[i]</code> (inclusive) to <code>childOffsets[i + 1]</code> (exclusive).
+	 */
+	final private int[] childOffsets;
+
+	final private int[] children;
+
+	final private int[] roots;
+
+	/**
+	 * The primary key encoder used to compute the lookup keys or <code>null</code> if the
+	 * objects themselves are the keys.
+	 */
+	final private PrimaryKeyEncoder<?, T> primaryKeyEncoder;
+
+	/**
+	 * The lookup key of each node.
+	 */
+	final private Object[] keys;
+
+	/**
+	 * Open addressing hash table with the position of each key plus one. Zero means empty.
+	 */
+	final private int[] hashTable;
+
+	/**
+	 * Creates a tree out of a children map. An object listed more than once, under several
+	 * parents or twice in the same list, is only added the first time it is reached in tree order,
+	 * and objects in cycles are not reachable from any root, so they are left out.
+	 * 
+	 * @param type the type of the objects. It cannot be null.
+	 * @param childrenMap a {@link Map} from each object to its children, in order. The roots are
+	 * mapped from the <code>null</code> key. It cannot be null.
+	 */
+	public CompactTree(Class<T> type, Map<T, List<T>> childrenMap) {
+
+		if (type == null) {
+			throw new IllegalArgumentException("Parameter type cannot be null");
+		}
+
+		if (childrenMap == null) {
+			throw new IllegalArgumentException("Parameter childrenMap cannot be null");
+		}
+
+		this.type = type;
+
+		// an upper bound, as each object is added once at most.
+		int size = 0;
+
+		for (List<T> list : childrenMap.values()) {
+			size += list.size();
+		}
+
+		Object[] objects = new Object[size];
+		int[] parents = new int[size];
+		int[] levels = new int[size];
+
+		final List<T> rootObjects = childrenMap.get(null);
+		final int rootCount = rootObjects != null ? rootObjects.size() : 0;
+
+		// iterative depth-first traversal, so deep trees don't overflow the stack.
+		final List<T> stack = new ArrayList<T>();
+		final Set<T> visited = new HashSet<T>();
+		int[] parentStack = new int[Math.max(16, rootCount)];
+
+		for (int i = rootCount - 1; i >= 0; i--) {
+			parentStack[stack.size()] = -1;
+			stack.add(rootObjects.get(i));
+		}
+
+		int position = 0;
+
+		while (stack.isEmpty() == false) {
+
+			final int top = stack.size() - 1;
+			final T object = stack.remove(top);
+			final int parent = parentStack[top];
+
+			if (visited.add(object) == false) {
+				continue;
+			}
+
+			objects[position] = object;
+			parents[position] = parent;
+			levels[position] = parent < 0 ? 1 : levels[parent] + 1;
+
+			final List<T> objectChildren = childrenMap.get(object);
+
+			if (objectChildren != null) {
+
+				if (parentStack.length < stack.size() + objectChildren.size()) {
+
+					int[] newStack = new int[(stack.size() + objectChildren.size()) * 2];
+					System.arraycopy(parentStack, 0, newStack, 0, stack.size());
+					parentStack = newStack;
+
+				}
+
+				for (int i = objectChildren.size() - 1; i >= 0; i--) {
+					parentStack[stack.size()] = position;
+					stack.add(objectChildren.get(i));
+				}
+
+			}
+
+			position++;
+
+		}
+
+		final int count = position;
+
+		if (count < size) {
+			objects = copy(objects, count);
+			parents = copy(parents, count);
+			levels = copy(levels, count);
+		}
+
+		this.objects = objects;
+		this.parents = parents;
+		this.levels = levels;
+
+		childOffsets = new int[count + 1];
+		int root = 0;
+
+		for (int i = 0; i < count; i++) {
+
+			if (parents[i] < 0) {
+				root++;
+			}
+			else {
+				childOffsets[parents[i] + 1]++;
+			}
+
+		}
+
+		roots = new int[root];
+		root = 0;
+
+		for (int i = 0; i < count; i++) {
+
+			if (parents[i] < 0) {
+				roots[root++] = i;
+			}
+
+		}
+
+		for (int i = 0; i < count; i++) {
+			childOffsets[i + 1] += childOffsets[i];
+		}
+
+		// children are visited in tree order, which keeps their original order.
+		children = new int[count - roots.length];
+		final int[] next = new int[count];
+		System.arraycopy(childOffsets, 0, next, 0, count);
+
+		for (int i = 0; i < count; i++) {
+
+			if (parents[i] >= 0) {
+				children[next[parents[i]]++] = i;
+			}
+
+		}
+
+		primaryKeyEncoder = null;
+		keys = objects;
+		hashTable = buildHashTable(keys, count);
+
+	}
+
+	/**
+	 * Creates a tree with the same nodes of another one, whose objects are found by their
+	 * primary keys instead of by <code>equals()</code>. The arrays of the given tree are shared,
+	 * as both trees are immutable, so only the lookup keys are computed.
+	 * 
+	 * @param tree a {@link CompactTree}. It cannot be null.
+	 * @param primaryKeyEncoder a {@link PrimaryKeyEncoder}. It cannot be null.
+	 */
+	@SuppressWarnings("unchecked")
+	public CompactTree(CompactTree<T> tree, PrimaryKeyEncoder<?, T> primaryKeyEncoder) {
+
+		if (tree == null) {
+			throw new IllegalArgumentException("Parameter tree cannot be null");
+		}
+
+		if (primaryKeyEncoder == null) {
+			throw new IllegalArgumentException("Parameter primaryKeyEncoder cannot be null");
+		}
+
+		type = tree.type;
+		objects = tree.objects;
+		parents = tree.parents;
+		levels = tree.levels;
+		childOffsets = tree.childOffsets;
+		children = tree.children;
+		roots = tree.roots;
+		this.primaryKeyEncoder = primaryKeyEncoder;
+
+		final int count = tree.size();
+		keys = new Object[count];
+
+		for (int i = 0; i < count; i++) {
+			keys[i] = primaryKeyEncoder.toKey((T) objects[i]);
+		}
+
+		hashTable = buildHashTable(keys, count);
+
+	}
+
+	private static Object[] copy(Object[] array, int length) {
+
+		final Object[] copy = new Object[length];
+		System.arraycopy(array, 0, copy, 0, length);
+
+		return copy;
+
+	}
+
+	private static int[] copy(int[] array, int length) {
+
+		final int[] copy = new int[length];
+		System.arraycopy(array, 0, copy, 0, length);
+
+		return copy;
+
+	}
+
+	/**
+	 * Builds the hash table of some keys. Null keys are not added.
+	 * 
+	 * @param keys an {@link Object} array.
+	 * @param count an <code>int</code> with the number of keys to add.
+	 * @return an <code>int</code> array.
+	 */
+	private static int[] buildHashTable(Object[] keys, int count) {
+
+		final int[] table = new int[tableSize(count)];
+
+		for (int i = 0; i < count; i++) {
+
+			if (keys[i] != null) {
+
+				int slot = slot(keys[i], table.length);
+
+				while (table[slot] != 0) {
+					slot = (slot + 1) & (table.length - 1);
+				}
+
+				table[slot] = i + 1;
+
+			}
+
+		}
+
+		return table;
+
+	}
+
+	private static int tableSize(int count) {
+
+		int size = 16;
+
+		while (size < count * 2) {
+			size <<= 1;
+		}
+
+		return size;
+
+	}
+
+	private static int slot(Object key, int length) {
+
+		final int hash = key.hashCode();
+		return (hash ^ (hash >>> 16)) & (length - 1);
+
+	}
+
+	/**
+	 * Returns the type of the objects in this tree.
+	 * 
+	 * @return a {@link Class}.
+	 */
+	public Class<T> getType() {
+		return type;
+	}
+
+	/**
+	 * Returns the number of nodes.
+	 * 
+	 * @return an <code>int</code>.
+	 */
+	public int size() {
+		return childOffsets.length - 1;
+	}
+
+	/**
+	 * Returns the number of roots.
+	 * 
+	 * @return an <code>int</code>.
+	 */
+	public int getRootCount() {
+		return roots.length;
+	}
+
+	/**
+	 * Returns the position of a given root.
+	 * 
+	 * @param root an <code>int</code> between 0 and {@link #getRootCount()} - 1.
+	 * @return an <code>int</code>.
+	 */
+	public int getRoot(int root) {
+		return roots[root];
+	}
+
+	/**
+	 * Returns the object of a given node.
+	 * 
+	 * @param node an <code>int</code> with the node position.
+	 * @return a <code>T</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getObject(int node) {
+		return (T) objects[node];
+	}
+
+	/**
+	 * Returns the level of a given node. Roots have level 1.
+	 * 
+	 * @param node an <code>int</code> with the node position.
+	 * @return an <code>int</code>.
+	 */
+	public int getLevel(int node) {
+		return levels[node];
+	}
+
+	/**
+	 * Returns the position of the parent of a given node.
+	 * 
+	 * @param node an <code>int</code> with the node position.
+	 * @return an <code>int</code> or -1 for roots.
+	 */
+	public int getParent(int node) {
+		return parents[node];
+	}
+
+	/**
+	 * Returns the number of children of a given node.
+	 * 
+	 * @param node an <code>int</code> with the node position.
+	 * @return an <code>int</code>.
+	 */
+	public int getChildCount(int node) {
+		return childOffsets[node + 1] - childOffsets[node];
+	}
+
+	/**
+	 * Tells if a given node has children.
+	 * 
+	 * @param node an <code>int</code> with the node position.
+	 * @return a <code>boolean</code>.
+	 */
+	public boolean hasChildren(int node) {
+		return childOffsets[node + 1] > childOffsets[node];
+	}
+
+	/**
+	 * Returns the position of a given child of a given node.
+	 * 
+	 * @param node an <code>int</code> with the node position.
+	 * @param child an <code>int</code> between 0 and {@link #getChildCount(int)} - 1.
+	 * @return an <code>int</code>.
+	 */
+	public int getChild(int node, int child) {
+		return children[childOffsets[node] + child];
+	}
+
+	/**
+	 * Returns the position of a given object, found by primary key if this tree has a
+	 * {@link PrimaryKeyEncoder} or by <code>equals()</code> otherwise.
+	 * 
+	 * @param object a <code>T</code>.
+	 * @return an <code>int</code> or -1 if the object is not in this tree.
+	 */
+	public int indexOf(T object) {
+
+		if (object == null) {
+			return -1;
+		}
+
+		final Object key = primaryKeyEncoder != null ? primaryKeyEncoder.toKey(object) : object;
+
+		// objects that were never saved have no primary key.
+		if (key == null) {
+			return -1;
+		}
+
+		int slot = slot(key, hashTable.length);
+
+		while (hashTable[slot] != 0) {
+
+			final int node = hashTable[slot] - 1;
+
+			if (keys[node].equals(key)) {
+				return node;
+			}
+
+			slot = (slot + 1) & (hashTable.length - 1);
+
+		}
+
+		return -1;
+
+	}
+
+	/**
+	 * Returns a {@link TreeNode} view of a given node. Views are created on each invocation.
+	 * 
+	 * @param node an <code>int</code> with the node position.
+	 * @return a {@link TreeNode}.
+	 */
+	public TreeNode<T> getNode(int node) {
+		return new CompactTreeNode(node);
+	}
+
+	/**
+	 * A {@link TreeNode} view of a node of this tree.
+	 */
+	final private class CompactTreeNode implements TreeNode<T> {
+
+		final private int node;
+
+		CompactTreeNode(int node) {
+			this.node = node;
+		}
+
+		public List<TreeNode<T>> getChildren() {
+
+			final int count = getChildCount(node);
+			final List<TreeNode<T>> nodes = new ArrayList<TreeNode<T>>(count);
+
+			for (int i = 0; i < count; i++) {
+				nodes.add(new CompactTreeNode(getChild(node, i)));
+			}
+
+			return nodes;
+
+		}
+
+		public int getLevel() {
+			return levels[node];
+		}
+
+		public Class<T> getType() {
+			return type;
+		}
+
+		public T getObject() {
+			return CompactTree.this.getObject(node);
+		}
+
+		@Override
+		public String toString() {
+			return objects[node].toString();
+		}
+
+	}
+
+}
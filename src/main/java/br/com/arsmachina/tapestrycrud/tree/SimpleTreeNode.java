@@ -58,6 +58,7 @@ public class SimpleTreeNode<T> implements TreeNode<T> {
 
 		this.level = level;
 		this.object = object;
+		this.type = type;
 
 		children = new ArrayList<TreeNode<T>>();
 
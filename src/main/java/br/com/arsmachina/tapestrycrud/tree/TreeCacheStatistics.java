@@ -0,0 +1,110 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.tree;
+
+import br.com.arsmachina.tapestrycrud.services.TreeServiceSource;
+
+/**
+ * Statistics of the {@link TreeSnapshot}s of an entity class cached by
+ * {@link TreeServiceSource}. Instances of this class are immutable.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class TreeCacheStatistics {
+
+	final private long hits;
+
+	final private long misses;
+
+	final private long builds;
+
+	final private long lastBuildTime;
+
+	final private long totalBuildTime;
+
+	/**
+	 * Single constructor of this class.
+	 * 
+	 * @param hits a <code>long</code> with the number of requests answered by a cached snapshot.
+	 * @param misses a <code>long</code> with the number of requests that needed a new snapshot.
+	 * @param builds a <code>long</code> with the number of snapshots built.
+	 * @param lastBuildTime a <code>long</code> with the time, in milliseconds, taken to build
+	 * the last snapshot.
+	 * @param totalBuildTime a <code>long</code> with the time, in milliseconds, taken to build
+	 * all the snapshots.
+	 */
+	public TreeCacheStatistics(long hits, long misses, long builds, long lastBuildTime,
+			long totalBuildTime) {
+
+		this.hits = hits;
+		this.misses = misses;
+		this.builds = builds;
+		this.lastBuildTime = lastBuildTime;
+		this.totalBuildTime = totalBuildTime;
+
+	}
+
+	/**
+	 * Returns the number of requests answered by a cached snapshot.
+	 * 
+	 * @return a <code>long</code>.
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of requests that needed a new snapshot.
+	 * 
+	 * @return a <code>long</code>.
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of snapshots built.
+	 * 
+	 * @return a <code>long</code>.
+	 */
+	public long getBuilds() {
+		return builds;
+	}
+
+	/**
+	 * Returns the time taken to build the last snapshot.
+	 * 
+	 * @return a <code>long</code> in milliseconds.
+	 */
+	public long getLastBuildTime() {
+		return lastBuildTime;
+	}
+
+	/**
+	 * Returns the time taken to build all the snapshots.
+	 * 
+	 * @return a <code>long</code> in milliseconds.
+	 */
+	public long getTotalBuildTime() {
+		return totalBuildTime;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("hits: %d, misses: %d, builds: %d, last build: %d ms, total: %d ms",
+				hits, misses, builds, lastBuildTime, totalBuildTime);
+	}
+
+}
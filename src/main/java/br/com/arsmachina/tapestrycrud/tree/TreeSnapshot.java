@@ -0,0 +1,151 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.tree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import br.com.arsmachina.tapestrycrud.services.TreeServiceSource;
+
+/**
+ * An immutable snapshot of all the trees of an entity class, as cached by
+ * {@link TreeServiceSource}. It is backed by a {@link CompactTree}, so its nodes can be found in
+ * constant time and large trees don't need one object per node. Nodes are found by primary key
+ * when the tree has a <code>PrimaryKeyEncoder</code>, as the snapshot is shared between requests
+ * and its objects were loaded in another session.
+ * 
+ * @param <T> the type of the objects in the trees.
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class TreeSnapshot<T> {
+
+	final private CompactTree<T> tree;
+
+	final private long buildTime;
+
+	final private long timestamp = System.currentTimeMillis();
+
+	/**
+	 * Single constructor of this class.
+	 * 
+	 * @param tree a {@link CompactTree}. It cannot be null.
+	 * @param buildTime a <code>long</code> with the time, in milliseconds, taken to build the
+	 * trees.
+	 */
+	public TreeSnapshot(CompactTree<T> tree, long buildTime) {
+
+		if (tree == null) {
+			throw new IllegalArgumentException("Parameter tree cannot be null");
+		}
+
+		this.tree = tree;
+		this.buildTime = buildTime;
+
+	}
+
+	/**
+	 * Returns the trees of this snapshot.
+	 * 
+	 * @return a {@link CompactTree}.
+	 */
+	public CompactTree<T> getTree() {
+		return tree;
+	}
+
+	/**
+	 * Returns views of the root nodes.
+	 * 
+	 * @return an unmodifiable {@link List} of {@link TreeNode}s.
+	 */
+	public List<TreeNode<T>> getRoots() {
+
+		final int count = tree.getRootCount();
+		final List<TreeNode<T>> roots = new ArrayList<TreeNode<T>>(count);
+
+		for (int i = 0; i < count; i++) {
+			roots.add(tree.getNode(tree.getRoot(i)));
+		}
+
+		return Collections.unmodifiableList(roots);
+
+	}
+
+	/**
+	 * Returns a view of the node of a given object.
+	 * 
+	 * @param object a <code>T</code>.
+	 * @return a {@link TreeNode} or <code>null</code> if the object is not in this snapshot.
+	 */
+	public TreeNode<T> getNode(T object) {
+
+		final int node = tree.indexOf(object);
+		return node >= 0 ? tree.getNode(node) : null;
+
+	}
+
+	/**
+	 * Returns the ancestors of a given object, starting from its root, without fetching any
+	 * object.
+	 * 
+	 * @param object a <code>T</code>.
+	 * @return a {@link List} of <code>T</code>. It is empty for roots and for objects that are
+	 * not in this snapshot.
+	 */
+	public List<T> getAncestors(T object) {
+
+		final List<T> ancestors = new ArrayList<T>();
+		final int node = tree.indexOf(object);
+		int current = node >= 0 ? tree.getParent(node) : -1;
+
+		while (current >= 0) {
+			ancestors.add(tree.getObject(current));
+			current = tree.getParent(current);
+		}
+
+		Collections.reverse(ancestors);
+
+		return ancestors;
+
+	}
+
+	/**
+	 * Returns the number of nodes in this snapshot.
+	 * 
+	 * @return an <code>int</code>.
+	 */
+	public int size() {
+		return tree.size();
+	}
+
+	/**
+	 * Returns the time taken to build the trees.
+	 * 
+	 * @return a <code>long</code> in milliseconds.
+	 */
+	public long getBuildTime() {
+		return buildTime;
+	}
+
+	/**
+	 * Returns the moment this snapshot was created.
+	 * 
+	 * @return a <code>long</code> as returned by {@link System#currentTimeMillis()}.
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+}
@@ -0,0 +1,107 @@
+var EntityAutocomplete = {
+
+	initialize: function(clientId, url, parameterName, minimumLength) {
+
+		var hidden = $(clientId);
+		var text = $(clientId + "-label");
+		var choices = $(clientId + "-choices");
+		var lastQuery = text.value;
+		var timer = null;
+
+		text.observe("keyup", function(event) {
+
+			if (text.value == lastQuery) {
+				return;
+			}
+
+			lastQuery = text.value;
+
+			// the typed text no longer identifies the selected object
+			hidden.value = "";
+
+			if (timer) {
+				clearTimeout(timer);
+			}
+
+			// waits for a pause in the typing, so each key doesn't trigger a search
+			timer = setTimeout(function() {
+				EntityAutocomplete.search(url, parameterName, minimumLength, text, choices);
+			}, 300);
+
+		});
+
+		text.observe("blur", function() {
+			setTimeout(function() { choices.hide(); }, 200);
+		});
+
+		// a single handler for all the choices, however many searches are done
+		choices.observe("mousedown", function(event) {
+
+			var li = event.element();
+
+			if (li.tagName.toLowerCase() == "li") {
+
+				hidden.value = li.entityValue;
+				text.value = li.entityLabel;
+				lastQuery = text.value;
+				choices.hide();
+
+			}
+
+		});
+
+	},
+
+	search: function(url, parameterName, minimumLength, text, choices) {
+
+		var query = text.value;
+
+		if (query.strip().length < minimumLength) {
+			choices.hide();
+			return;
+		}
+
+		var parameters = {};
+		parameters[parameterName] = query;
+
+		new Ajax.Request(url, {
+			method: "get",
+			parameters: parameters,
+			onSuccess: function(transport) {
+
+				// the text was changed while this search was done
+				if (text.value != query) {
+					return;
+				}
+
+				var ul = new Element("ul");
+				var results = transport.responseJSON.results;
+
+				results.each(
+					function(result) {
+
+						var li = new Element("li");
+						li.entityValue = result.value;
+						li.entityLabel = result.label;
+						li.appendChild(document.createTextNode(result.label));
+						ul.insert(li);
+
+					}
+				);
+
+				choices.update("");
+				choices.insert(ul);
+
+				if (results.length > 0) {
+					choices.show();
+				}
+				else {
+					choices.hide();
+				}
+
+			}
+		});
+
+	}
+
+}
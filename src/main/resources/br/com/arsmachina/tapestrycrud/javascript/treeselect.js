@@ -31,6 +31,25 @@ var TreeSelect = {
 	
 	},
 
+	initialize: function(clientId) {
+
+		// a single handler for all the radio buttons, including the ones loaded later
+		$(clientId).observe("click", function(event) {
+
+			var element = event.element();
+
+			if (element.tagName.toLowerCase() == "input" && element.type == "radio") {
+				TreeSelect.handleChange(element.id, clientId);
+			}
+			else if (element.hasClassName("t-crud-tree-select-expand")) {
+				event.stop();
+				TreeSelect.expand(clientId, element);
+			}
+
+		});
+
+	},
+
 	handleChange: function(radioId, clientId) {
 		
 		$(clientId).select("li.checked").each(
@@ -47,6 +66,76 @@ var TreeSelect = {
 		
 		parentNode.addClassName("checked");
 		
+	},
+
+	lazyTrees: {},
+
+	initializeLazy: function(clientId, url, controlName, hasChildrenIcon, noChildrenIcon) {
+
+		TreeSelect.lazyTrees[clientId] = {
+			url: url,
+			controlName: controlName,
+			hasChildrenIcon: hasChildrenIcon,
+			noChildrenIcon: noChildrenIcon
+		};
+
+	},
+
+	expand: function(clientId, link) {
+
+		var tree = TreeSelect.lazyTrees[clientId];
+		var li = link.up("li");
+		var value = li.down("input").value;
+		var level = parseInt(li.className.match(/level(\d+)/)[1]);
+		var parts = tree.url.split("?");
+		var url = parts[0] + "/" + encodeURIComponent(value);
+
+		if (parts.length > 1) {
+			url += "?" + parts[1];
+		}
+
+		link.remove();
+
+		new Ajax.Request(url, {
+			method: "get",
+			onSuccess: function(transport) {
+
+				var ul = new Element("ul");
+
+				transport.responseJSON.children.each(
+					function(child) {
+						ul.insert(TreeSelect.createNode(clientId, child, level + 1));
+					}
+				);
+
+				li.insert(ul);
+				li.removeClassName("collapsed");
+
+			}
+		});
+
+	},
+
+	createNode: function(clientId, node, level) {
+
+		var tree = TreeSelect.lazyTrees[clientId];
+		var radioId = clientId + "-" + node.value;
+		var li = new Element("li", { "class": "level" + level });
+
+		if (node.children) {
+			li.addClassName("collapsed");
+			li.insert(new Element("a", { href: "#", "class": "t-crud-tree-select-expand" }).update("+"));
+		}
+
+		var label = new Element("label", { "for": radioId });
+		label.insert(new Element("img", { src: node.children ? tree.hasChildrenIcon : tree.noChildrenIcon }));
+		label.appendChild(document.createTextNode(node.label));
+		li.insert(label);
+
+		li.insert(new Element("input", { type: "radio", name: tree.controlName, id: radioId, value: node.value }));
+
+		return li;
+
 	}
 
 };
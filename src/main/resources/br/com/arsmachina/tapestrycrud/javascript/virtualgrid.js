@@ -0,0 +1,138 @@
+// Client-side part of the VirtualGrid component: it keeps in the table only a window of rows
+// around the visible ones, fetching new windows as JSON while the user scrolls.
+var VirtualGrid = Class.create({
+
+	initialize: function(id, url, total, rowHeight, windowSize, labels) {
+
+		this.url = url;
+		this.total = total;
+		this.rowHeight = rowHeight;
+		this.windowSize = windowSize;
+		this.labels = labels;
+		this.first = -1;
+		this.count = 0;
+		this.pending = false;
+		this.stale = false;
+
+		this.viewport = $(id).down("div.t-crud-virtual-grid-viewport");
+		this.spacer = this.viewport.down("div.t-crud-virtual-grid-spacer");
+		this.table = this.spacer.down("table");
+		this.tbody = this.table.down("tbody");
+
+		this.resize();
+		this.viewport.observe("scroll", this.update.bind(this));
+		this.update();
+
+	},
+
+	resize: function() {
+		this.spacer.setStyle({ height: (this.total * this.rowHeight) + "px" });
+	},
+
+	update: function() {
+
+		var visible = Math.ceil(this.viewport.clientHeight / this.rowHeight);
+		var top = Math.floor(this.viewport.scrollTop / this.rowHeight);
+
+		// the loaded window already covers the visible rows
+		if (this.first >= 0 && top >= this.first
+				&& (top + visible <= this.first + this.count || this.first + this.count >= this.total)) {
+			return;
+		}
+
+		// only one request at a time: the latest position is fetched when it finishes
+		if (this.pending) {
+			this.stale = true;
+			return;
+		}
+
+		this.request(Math.max(0, top - Math.floor((this.windowSize - visible) / 2)));
+
+	},
+
+	request: function(first) {
+
+		var parts = this.url.split("?");
+		var url = parts[0] + "/" + first + "/" + this.windowSize;
+
+		if (parts.length > 1) {
+			url += "?" + parts[1];
+		}
+
+		this.pending = true;
+
+		new Ajax.Request(url, {
+			method: "get",
+			onSuccess: this.render.bind(this),
+			onComplete: function() {
+
+				this.pending = false;
+
+				if (this.stale) {
+					this.stale = false;
+					this.update();
+				}
+
+			}.bind(this)
+		});
+
+	},
+
+	render: function(transport) {
+
+		var json = transport.responseJSON;
+
+		if (json == null) {
+			json = transport.responseText.evalJSON();
+		}
+
+		while (this.tbody.firstChild) {
+			this.tbody.removeChild(this.tbody.firstChild);
+		}
+
+		json.rows.each(function(row) {
+
+			var tr = new Element("tr", { "id": "t-crud-row-" + row.key });
+			tr.setStyle({ height: this.rowHeight + "px" });
+
+			row.cells.each(function(cell) {
+				tr.appendChild(new Element("td").update(cell.escapeHTML()));
+			});
+
+			if (row.view || row.edit || row.remove) {
+
+				var td = new Element("td", { "class": "t-crud-actionlinks" });
+
+				["view", "edit", "remove"].each(function(action) {
+
+					if (row[action]) {
+
+						td.appendChild(new Element("a", {
+							"href": row[action],
+							"class": "t-crud-" + action + "-link"
+						}).update(this.labels[action].escapeHTML()));
+
+						td.appendChild(document.createTextNode(" "));
+
+					}
+
+				}, this);
+
+				tr.appendChild(td);
+
+			}
+
+			this.tbody.appendChild(tr);
+
+		}, this);
+
+		this.first = json.first;
+		this.count = json.rows.length;
+		this.total = json.total;
+
+		this.resize();
+		this.table.setStyle({ top: (this.first * this.rowHeight) + "px" });
+
+	}
+
+});
@@ -0,0 +1,100 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.components;
+
+import java.lang.reflect.Field;
+
+import org.apache.tapestry5.services.Request;
+import org.easymock.EasyMock;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import br.com.arsmachina.authorization.Authorizer;
+import br.com.arsmachina.module.service.ControllerSource;
+import br.com.arsmachina.tapestrycrud.services.TapestryCrudModuleService;
+
+/**
+ * Test class for {@link EntityAutocomplete}.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class EntityAutocompleteTest {
+
+	private EntityAutocomplete entityAutocomplete;
+
+	private Request request;
+
+	private Authorizer authorizer;
+
+	private ControllerSource controllerSource;
+
+	private TapestryCrudModuleService tapestryCrudModuleService;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+
+		request = EasyMock.createMock(Request.class);
+		authorizer = EasyMock.createMock(Authorizer.class);
+		controllerSource = EasyMock.createMock(ControllerSource.class);
+		tapestryCrudModuleService = EasyMock.createMock(TapestryCrudModuleService.class);
+
+		entityAutocomplete = new EntityAutocomplete();
+		set("request", request);
+		set("authorizer", authorizer);
+		set("controllerSource", controllerSource);
+		set("tapestryCrudModuleService", tapestryCrudModuleService);
+		set("minimumLength", 1);
+		set("maximumResults", 20);
+
+	}
+
+	/**
+	 * Tests whether a search of an entity class the current user cannot search is rejected
+	 * before its controller is used.
+	 */
+	@Test
+	public void searchWithoutPermission() {
+
+		final RuntimeException exception = new RuntimeException("Access denied");
+
+		EasyMock.expect(tapestryCrudModuleService.contains(String.class)).andReturn(true);
+		authorizer.checkSearch(String.class);
+		EasyMock.expectLastCall().andThrow(exception);
+		EasyMock.expect(request.getParameter(EntityAutocomplete.QUERY_PARAMETER)).andReturn(
+				"a").anyTimes();
+
+		EasyMock.replay(request, authorizer, controllerSource, tapestryCrudModuleService);
+
+		try {
+			entityAutocomplete.search(String.class.getName());
+			assert false : "An unauthorized search must be rejected";
+		}
+		catch (RuntimeException e) {
+			assert e == exception;
+		}
+
+		EasyMock.verify(authorizer, controllerSource, tapestryCrudModuleService);
+
+	}
+
+	private void set(String fieldName, Object value) throws Exception {
+
+		final Field field = EntityAutocomplete.class.getDeclaredField(fieldName);
+		field.setAccessible(true);
+		field.set(entityAutocomplete, value);
+
+	}
+
+}
@@ -0,0 +1,169 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.components;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.tapestry5.ComponentResources;
+import org.apache.tapestry5.ValueEncoder;
+import org.apache.tapestry5.json.JSONArray;
+import org.apache.tapestry5.json.JSONObject;
+import org.easymock.EasyMock;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import br.com.arsmachina.authorization.Authorizer;
+import br.com.arsmachina.tapestrycrud.services.TreeServiceSource;
+import br.com.arsmachina.tapestrycrud.tree.SimpleTreeSelectNode;
+import br.com.arsmachina.tapestrycrud.tree.TreeSelectNode;
+
+/**
+ * Test class for {@link TreeSelect}.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class TreeSelectTest {
+
+	private TreeSelect treeSelect;
+
+	private ComponentResources resources;
+
+	private Authorizer authorizer;
+
+	private TreeServiceSource treeServiceSource;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+
+		resources = EasyMock.createMock(ComponentResources.class);
+		authorizer = EasyMock.createMock(Authorizer.class);
+		treeServiceSource = EasyMock.createMock(TreeServiceSource.class);
+
+		treeSelect = new TreeSelect();
+		set("resources", resources);
+		set("authorizer", authorizer);
+		set("treeServiceSource", treeServiceSource);
+		set("encoder", new StringValueEncoder());
+
+		// root -> child -> grandchild, while other is left out of the page.
+		final TreeSelectNode grandchild = node("grandchild");
+		final TreeSelectNode child = node("child", grandchild);
+		set("rootNodes", Arrays.asList(node("root", child)));
+
+	}
+
+	/**
+	 * Tests whether the children of a node of a type the current user cannot search are
+	 * rejected before the trees are used.
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void childrenWithoutPermission() {
+
+		final RuntimeException exception = new RuntimeException("Access denied");
+
+		EasyMock.expect((Class) resources.getBoundType("value")).andReturn(String.class)
+				.anyTimes();
+		authorizer.checkSearch(String.class);
+		EasyMock.expectLastCall().andThrow(exception);
+
+		EasyMock.replay(resources, authorizer, treeServiceSource);
+
+		try {
+			treeSelect.children("root");
+			assert false : "An unauthorized children request must be rejected";
+		}
+		catch (RuntimeException e) {
+			assert e == exception;
+		}
+
+		EasyMock.verify(authorizer, treeServiceSource);
+
+	}
+
+	/**
+	 * Tests whether only the nodes under the bound root nodes are answered for.
+	 */
+	@Test
+	public void childrenWithRootNodes() {
+
+		expectAuthorizedWithRootNodes();
+
+		assertChildren(treeSelect.children("root"), "child");
+		assertChildren(treeSelect.children("child"), "grandchild");
+		assertChildren(treeSelect.children("other"));
+		assertChildren(treeSelect.children(null));
+		assertChildren(treeSelect.children(""));
+
+		EasyMock.verify(authorizer, treeServiceSource);
+
+	}
+
+	@SuppressWarnings("unchecked")
+	private void expectAuthorizedWithRootNodes() {
+
+		EasyMock.expect((Class) resources.getBoundType("value")).andReturn(String.class)
+				.anyTimes();
+		EasyMock.expect(resources.isBound("rootNodes")).andReturn(true).anyTimes();
+		authorizer.checkSearch(String.class);
+		EasyMock.expectLastCall().anyTimes();
+
+		EasyMock.replay(resources, authorizer, treeServiceSource);
+
+	}
+
+	private void assertChildren(JSONObject result, String... expected) {
+
+		final JSONArray children = result.getJSONArray("children");
+		assert children.length() == expected.length;
+
+		for (int i = 0; i < expected.length; i++) {
+			assert expected[i].equals(children.getJSONObject(i).getString("value"));
+		}
+
+	}
+
+	private static TreeSelectNode node(String value, TreeSelectNode... children) {
+
+		final List<TreeSelectNode> list = new ArrayList<TreeSelectNode>(Arrays.asList(children));
+
+		return new SimpleTreeSelectNode(value, list, value);
+
+	}
+
+	private void set(String fieldName, Object value) throws Exception {
+
+		final Field field = TreeSelect.class.getDeclaredField(fieldName);
+		field.setAccessible(true);
+		field.set(treeSelect, value);
+
+	}
+
+	final private static class StringValueEncoder implements ValueEncoder<String> {
+
+		public String toClient(String value) {
+			return value;
+		}
+
+		public String toValue(String clientValue) {
+			return clientValue;
+		}
+
+	}
+
+}
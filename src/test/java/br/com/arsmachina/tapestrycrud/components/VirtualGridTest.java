@@ -0,0 +1,97 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.components;
+
+import java.lang.reflect.Field;
+
+import org.apache.tapestry5.beaneditor.BeanModel;
+import org.apache.tapestry5.grid.GridDataSource;
+import org.easymock.EasyMock;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import br.com.arsmachina.authorization.Authorizer;
+import br.com.arsmachina.tapestrycrud.services.RowAuthorizer;
+
+/**
+ * Test class for {@link VirtualGrid}.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class VirtualGridTest {
+
+	private VirtualGrid virtualGrid;
+
+	private GridDataSource source;
+
+	private BeanModel<?> model;
+
+	private Authorizer authorizer;
+
+	private RowAuthorizer rowAuthorizer;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+
+		source = EasyMock.createMock(GridDataSource.class);
+		model = EasyMock.createMock(BeanModel.class);
+		authorizer = EasyMock.createMock(Authorizer.class);
+		rowAuthorizer = EasyMock.createMock(RowAuthorizer.class);
+
+		virtualGrid = new VirtualGrid();
+		set("source", source);
+		set("model", model);
+		set("authorizer", authorizer);
+		set("rowAuthorizer", rowAuthorizer);
+
+	}
+
+	/**
+	 * Tests whether a window of rows of an entity class the current user cannot search is
+	 * rejected before the data source is used.
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void rowsWithoutPermission() {
+
+		final RuntimeException exception = new RuntimeException("Access denied");
+
+		EasyMock.expect((Class) model.getBeanType()).andReturn(String.class).anyTimes();
+		authorizer.checkSearch(String.class);
+		EasyMock.expectLastCall().andThrow(exception);
+
+		EasyMock.replay(source, model, authorizer, rowAuthorizer);
+
+		try {
+			virtualGrid.rows(0, VirtualGrid.MAXIMUM_WINDOW_SIZE);
+			assert false : "An unauthorized rows request must be rejected";
+		}
+		catch (RuntimeException e) {
+			assert e == exception;
+		}
+
+		EasyMock.verify(source, authorizer, rowAuthorizer);
+
+	}
+
+	private void set(String fieldName, Object value) throws Exception {
+
+		final Field field = VirtualGrid.class.getDeclaredField(fieldName);
+		field.setAccessible(true);
+		field.set(virtualGrid, value);
+
+	}
+
+}
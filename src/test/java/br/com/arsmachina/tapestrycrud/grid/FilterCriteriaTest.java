@@ -0,0 +1,87 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.grid;
+
+import org.testng.annotations.Test;
+
+/**
+ * Test class for {@link FilterCriteria}.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class FilterCriteriaTest {
+
+	/**
+	 * Tests whether values containing the separators of other filters don't collide with them.
+	 */
+	@Test
+	public void signatureWithSeparatorsInValues() {
+
+		final FilterCriteria oneProperty = new FilterCriteria();
+		oneProperty.put("name", "a, x=b");
+
+		final FilterCriteria twoProperties = new FilterCriteria();
+		twoProperties.put("name", "a");
+		twoProperties.put("x", "b");
+
+		assert oneProperty.getSignature().equals(twoProperties.getSignature()) == false;
+
+		final FilterCriteria semicolon = new FilterCriteria();
+		semicolon.put("name", "a;1:x=java.lang.String:1:b");
+
+		assert semicolon.getSignature().equals(twoProperties.getSignature()) == false;
+
+	}
+
+	/**
+	 * Tests whether values with the same string representation but different types get different
+	 * signatures, as they are matched differently.
+	 */
+	@Test
+	public void signatureWithDifferentValueTypes() {
+
+		final FilterCriteria string = new FilterCriteria();
+		string.put("code", "1");
+
+		final FilterCriteria integer = new FilterCriteria();
+		integer.put("code", 1);
+
+		assert string.getSignature().equals(integer.getSignature()) == false;
+
+	}
+
+	/**
+	 * Tests whether equal filters get the same signature, whatever order their values were put.
+	 */
+	@Test
+	public void signatureOfEqualFilters() {
+
+		final FilterCriteria first = new FilterCriteria();
+		first.put("name", "a");
+		first.put("active", Boolean.TRUE);
+
+		final FilterCriteria second = new FilterCriteria();
+		second.put("active", Boolean.TRUE);
+		second.put("name", "a");
+
+		assert first.getSignature().equals(second.getSignature());
+
+		second.remove("active");
+
+		assert first.getSignature().equals(second.getSignature()) == false;
+
+	}
+
+}
@@ -0,0 +1,130 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.grid;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.tapestry5.PropertyConduit;
+import org.apache.tapestry5.beaneditor.BeanModel;
+import org.apache.tapestry5.beaneditor.PropertyModel;
+import org.easymock.EasyMock;
+import org.testng.annotations.Test;
+
+import br.com.arsmachina.dao.SortCriterion;
+
+/**
+ * Test class for {@link PagedSearchExportStream}.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class PagedSearchExportStreamTest {
+
+	private static final String ROW = "row";
+
+	/**
+	 * Tests whether CSV cells that could be evaluated as formulas are prefixed with a quote.
+	 */
+	@Test
+	public void csvFormulas() throws IOException {
+
+		assert "value\r\n'=SUM(A1:A2)\r\n".equals(export(ExportFormat.CSV, "=SUM(A1:A2)"));
+		assert "value\r\n'+1\r\n".equals(export(ExportFormat.CSV, "+1"));
+		assert "value\r\n'-1\r\n".equals(export(ExportFormat.CSV, "-1"));
+		assert "value\r\n'@A1\r\n".equals(export(ExportFormat.CSV, "@A1"));
+		assert "value\r\n\"'=A1,A2\"\r\n".equals(export(ExportFormat.CSV, "=A1,A2"));
+		assert "value\r\na=b\r\n".equals(export(ExportFormat.CSV, "a=b"));
+
+	}
+
+	/**
+	 * Tests whether negative numbers are not taken as formulas.
+	 */
+	@Test
+	public void csvNumbers() throws IOException {
+		assert "value\r\n-1\r\n".equals(export(ExportFormat.CSV, -1));
+	}
+
+	/**
+	 * Tests whether NaN and infinite numbers are written as JSON nulls.
+	 */
+	@Test
+	public void jsonNotFiniteNumbers() throws IOException {
+
+		assert "[{\"value\":null}]".equals(export(ExportFormat.JSON, Double.NaN));
+		assert "[{\"value\":null}]".equals(export(ExportFormat.JSON, Double.POSITIVE_INFINITY));
+		assert "[{\"value\":null}]".equals(export(ExportFormat.JSON, Float.NEGATIVE_INFINITY));
+		assert "[{\"value\":1.5}]".equals(export(ExportFormat.JSON, 1.5));
+
+	}
+
+	/**
+	 * Exports a single object with a single property, named <code>value</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	private static String export(ExportFormat format, Object value) throws IOException {
+
+		final PropertyConduit conduit = EasyMock.createMock(PropertyConduit.class);
+		EasyMock.expect(conduit.get(ROW)).andReturn(value).anyTimes();
+
+		final PropertyModel propertyModel = EasyMock.createMock(PropertyModel.class);
+		EasyMock.expect(propertyModel.getConduit()).andReturn(conduit).anyTimes();
+		EasyMock.expect(propertyModel.getLabel()).andReturn("value").anyTimes();
+		EasyMock.expect(propertyModel.getPropertyName()).andReturn("value").anyTimes();
+
+		final BeanModel<String> beanModel = EasyMock.createMock(BeanModel.class);
+		EasyMock.expect(beanModel.getPropertyNames()).andReturn(
+				Collections.singletonList("value")).anyTimes();
+		EasyMock.expect(beanModel.get("value")).andReturn(propertyModel).anyTimes();
+
+		EasyMock.replay(conduit, propertyModel, beanModel);
+
+		final PagedSearch<String> pagedSearch = new PagedSearch<String>() {
+
+			public List<String> search(int firstIndex, int maximumResults,
+					SortCriterion... sortingConstraints) {
+
+				if (firstIndex == 0) {
+					return Collections.singletonList(ROW);
+				}
+				else {
+					return Collections.emptyList();
+				}
+
+			}
+
+			public int count() {
+				return 1;
+			}
+
+		};
+
+		final InputStream stream =
+			new PagedSearchExportStream<String>(pagedSearch, beanModel, format, 10, false);
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		int read;
+
+		while ((read = stream.read()) >= 0) {
+			output.write(read);
+		}
+
+		return output.toString("UTF-8");
+
+	}
+
+}
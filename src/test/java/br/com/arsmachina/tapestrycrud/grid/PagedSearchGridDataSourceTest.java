@@ -0,0 +1,296 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.grid;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.tapestry5.beaneditor.PropertyModel;
+import org.apache.tapestry5.grid.ColumnSort;
+import org.apache.tapestry5.grid.SortConstraint;
+import org.easymock.EasyMock;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import br.com.arsmachina.dao.SortCriterion;
+
+/**
+ * Test class for the keyset (seek) pagination of {@link PagedSearchGridDataSource}. Each page is
+ * prepared by a new data source, as in different requests, sharing the same
+ * {@link KeysetBoundary}.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class PagedSearchGridDataSourceTest {
+
+	private static final int PAGE_SIZE = 10;
+
+	private static final int ROWS = 100;
+
+	private InMemorySearch search;
+
+	private KeysetBoundary keysetBoundary;
+
+	private List<SortConstraint> ascending;
+
+	private List<SortConstraint> descending;
+
+	@BeforeMethod
+	public void setUp() {
+
+		search = new InMemorySearch(true);
+		keysetBoundary = new KeysetBoundary();
+
+		final PropertyModel propertyModel = EasyMock.createMock(PropertyModel.class);
+		EasyMock.expect(propertyModel.getPropertyName()).andReturn("id").anyTimes();
+		EasyMock.replay(propertyModel);
+
+		ascending = Collections.singletonList(new SortConstraint(propertyModel,
+				ColumnSort.ASCENDING));
+		descending = Collections.singletonList(new SortConstraint(propertyModel,
+				ColumnSort.DESCENDING));
+
+	}
+
+	/**
+	 * Tests whether the first page is fetched by offset, as there's no boundary yet.
+	 */
+	@Test
+	public void firstPage() {
+
+		prepare(0, ascending);
+
+		assert "offset 0".equals(search.lastCall);
+		assert keysetBoundary.getFirstIndex() == 0;
+		assert keysetBoundary.getLastIndex() == PAGE_SIZE - 1;
+
+	}
+
+	/**
+	 * Tests whether the next page is fetched after the last key of the previous one.
+	 */
+	@Test
+	public void nextPage() {
+
+		prepare(0, ascending);
+		prepare(10, ascending);
+
+		assert "after 9".equals(search.lastCall);
+
+		prepare(20, ascending);
+
+		assert "after 19".equals(search.lastCall);
+
+	}
+
+	/**
+	 * Tests whether the previous page is fetched before the first key of the current one.
+	 */
+	@Test
+	public void previousPage() {
+
+		prepare(50, ascending);
+		prepare(40, ascending);
+
+		assert "before 50".equals(search.lastCall);
+		assert keysetBoundary.getFirstIndex() == 40;
+
+	}
+
+	/**
+	 * Tests whether the same page is fetched from its own first key, inclusive.
+	 */
+	@Test
+	public void samePage() {
+
+		prepare(30, ascending);
+		prepare(30, ascending);
+
+		assert "after 30 inclusive".equals(search.lastCall);
+
+	}
+
+	/**
+	 * Tests whether a page that is not adjacent to the last one is fetched by offset.
+	 */
+	@Test
+	public void jump() {
+
+		prepare(0, ascending);
+		prepare(70, ascending);
+
+		assert "offset 70".equals(search.lastCall);
+		assert keysetBoundary.getFirstIndex() == 70;
+
+	}
+
+	/**
+	 * Tests whether a boundary recorded with another sort order is not used.
+	 */
+	@Test
+	public void changedSort() {
+
+		prepare(0, ascending);
+		prepare(10, descending);
+
+		assert "offset 10".equals(search.lastCall);
+
+		prepare(20, descending);
+
+		assert "after 19".equals(search.lastCall);
+
+	}
+
+	/**
+	 * Tests whether pages are fetched by offset when the last sort property is not unique.
+	 */
+	@Test
+	public void notUniqueSortProperty() {
+
+		search = new InMemorySearch(false);
+
+		prepare(0, ascending);
+		prepare(10, ascending);
+
+		assert "offset 10".equals(search.lastCall);
+		assert keysetBoundary.matches("id asc,") == false;
+
+	}
+
+	/**
+	 * Tests whether pages are fetched by offset when the grid is not sorted.
+	 */
+	@Test
+	public void unsorted() {
+
+		prepare(0, Collections.<SortConstraint> emptyList());
+		prepare(10, Collections.<SortConstraint> emptyList());
+
+		assert "offset 10".equals(search.lastCall);
+
+	}
+
+	/**
+	 * Tests whether an empty page clears the boundary.
+	 */
+	@Test
+	public void emptyPage() {
+
+		prepare(90, ascending);
+		prepare(100, ascending);
+
+		assert "after 99".equals(search.lastCall);
+		assert keysetBoundary.getFirstIndex() == -1;
+		assert keysetBoundary.matches("id asc,") == false;
+
+	}
+
+	/**
+	 * Prepares a page in a new data source and checks its rows.
+	 */
+	private void prepare(int firstIndex, List<SortConstraint> sortConstraints) {
+
+		final PagedSearchGridDataSource<Integer> dataSource =
+			new PagedSearchGridDataSource<Integer>(Integer.class, search);
+		dataSource.setKeysetBoundary(keysetBoundary);
+
+		dataSource.prepare(firstIndex, firstIndex + PAGE_SIZE - 1, sortConstraints);
+
+		for (int i = firstIndex; i < Math.min(ROWS, firstIndex + PAGE_SIZE); i++) {
+			assert dataSource.getRowValue(i).equals(i);
+		}
+
+	}
+
+	/**
+	 * A search over the integers from 0 to {@link PagedSearchGridDataSourceTest#ROWS} - 1 that
+	 * records its last call. The sort direction only changes the sort signature, so the objects
+	 * are always returned in ascending order.
+	 */
+	final private static class InMemorySearch implements KeysetPagedSearch<Integer> {
+
+		final private boolean unique;
+
+		private String lastCall;
+
+		public InMemorySearch(boolean unique) {
+			this.unique = unique;
+		}
+
+		public int count() {
+			return ROWS;
+		}
+
+		public List<Integer> search(int firstIndex, int maximumResults,
+				SortCriterion... sortingConstraints) {
+
+			lastCall = "offset " + firstIndex;
+
+			final List<Integer> all = all();
+			final int end = Math.min(all.size(), firstIndex + maximumResults);
+
+			return new ArrayList<Integer>(all.subList(Math.min(firstIndex, end), end));
+
+		}
+
+		public boolean isUniqueKey(String propertyName) {
+			return unique && propertyName.equals("id");
+		}
+
+		public Object[] getKey(Integer object, SortCriterion... sortCriteria) {
+			return new Object[] { object };
+		}
+
+		public List<Integer> searchAfter(Object[] key, boolean inclusive, int maximumResults,
+				SortCriterion... sortCriteria) {
+
+			lastCall = "after " + key[0] + (inclusive ? " inclusive" : "");
+
+			final List<Integer> all = all();
+			final int start = all.indexOf(key[0]) + (inclusive ? 0 : 1);
+			final int end = Math.min(all.size(), start + maximumResults);
+
+			return new ArrayList<Integer>(all.subList(start, end));
+
+		}
+
+		public List<Integer> searchBefore(Object[] key, int maximumResults,
+				SortCriterion... sortCriteria) {
+
+			lastCall = "before " + key[0];
+
+			final List<Integer> all = all();
+			final int end = all.indexOf(key[0]);
+
+			return new ArrayList<Integer>(all.subList(Math.max(0, end - maximumResults), end));
+
+		}
+
+		private static List<Integer> all() {
+
+			final List<Integer> all = new ArrayList<Integer>(ROWS);
+
+			for (int i = 0; i < ROWS; i++) {
+				all.add(i);
+			}
+
+			return all;
+
+		}
+
+	}
+
+}
@@ -0,0 +1,190 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.services.impl;
+
+import org.easymock.EasyMock;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import br.com.arsmachina.tapestrycrud.services.TapestryCrudModuleService;
+
+/**
+ * Test class for {@link PageCacheImpl}.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class PageCacheImplTest {
+
+	private static final long ONE_HOUR = 60 * 60 * 1000;
+
+	private TapestryCrudModuleService tapestryCrudModuleService;
+
+	private PageCacheImpl pageCache;
+
+	@BeforeMethod
+	public void setUp() {
+
+		tapestryCrudModuleService = EasyMock.createMock(TapestryCrudModuleService.class);
+		pageCache = new PageCacheImpl(tapestryCrudModuleService, 10, ONE_HOUR);
+
+	}
+
+	/**
+	 * Tests whether cached values are returned for the same entity class and key only.
+	 */
+	@Test
+	public void putAndGet() {
+
+		pageCache.put(String.class, "page", "value", pageCache.getVersion(String.class));
+
+		assert "value".equals(pageCache.get(String.class, "page"));
+		assert pageCache.get(String.class, "other") == null;
+		assert pageCache.get(Integer.class, "page") == null;
+
+	}
+
+	/**
+	 * Tests whether a value fetched before an invalidation is not cached, as it may be stale.
+	 */
+	@Test
+	public void staleVersion() {
+
+		final long version = pageCache.getVersion(String.class);
+
+		// an object is saved while the page is fetched.
+		pageCache.objectSaved(String.class, "a", false);
+		pageCache.put(String.class, "page", "stale", version);
+
+		assert pageCache.get(String.class, "page") == null;
+		assert pageCache.getVersion(String.class) != version;
+
+		pageCache.put(String.class, "page", "fresh", pageCache.getVersion(String.class));
+
+		assert "fresh".equals(pageCache.get(String.class, "page"));
+
+	}
+
+	/**
+	 * Tests whether saving or removing an object discards the values of its entity class only.
+	 */
+	@Test
+	public void invalidation() {
+
+		put(String.class, "page");
+		put(Integer.class, "page");
+
+		pageCache.objectSaved(String.class, "a", true);
+
+		assert pageCache.get(String.class, "page") == null;
+		assert pageCache.get(Integer.class, "page") != null;
+
+		put(String.class, "page");
+		pageCache.objectRemoved(String.class, "a");
+
+		assert pageCache.get(String.class, "page") == null;
+		assert pageCache.get(Integer.class, "page") != null;
+
+	}
+
+	/**
+	 * Tests whether invalidating everything discards all values and changes all versions.
+	 */
+	@Test
+	public void invalidateAll() {
+
+		put(String.class, "page");
+		final long version = pageCache.getVersion(Integer.class);
+		put(Integer.class, "page");
+
+		pageCache.invalidateAll();
+
+		assert pageCache.get(String.class, "page") == null;
+		assert pageCache.get(Integer.class, "page") == null;
+		assert pageCache.getVersion(Integer.class) != version;
+
+	}
+
+	/**
+	 * Tests whether the least recently used value is discarded when the cache is full.
+	 */
+	@Test
+	public void leastRecentlyUsed() {
+
+		for (int i = 0; i < 10; i++) {
+			put(String.class, "page" + i);
+		}
+
+		// page0 becomes the most recently used one.
+		assert pageCache.get(String.class, "page0") != null;
+
+		put(String.class, "page10");
+
+		assert pageCache.get(String.class, "page0") != null;
+		assert pageCache.get(String.class, "page1") == null;
+		assert pageCache.get(String.class, "page10") != null;
+
+	}
+
+	/**
+	 * Tests whether values older than the maximum age are discarded.
+	 */
+	@Test
+	public void expiry() throws InterruptedException {
+
+		pageCache = new PageCacheImpl(tapestryCrudModuleService, 10, 1);
+		put(String.class, "page");
+
+		Thread.sleep(20);
+
+		assert pageCache.get(String.class, "page") == null;
+
+	}
+
+	/**
+	 * Tests whether nothing is cached when the size is zero.
+	 */
+	@Test
+	public void disabled() {
+
+		pageCache = new PageCacheImpl(tapestryCrudModuleService, 0, ONE_HOUR);
+		put(String.class, "page");
+
+		assert pageCache.get(String.class, "page") == null;
+
+	}
+
+	/**
+	 * Tests whether the entity classes whose pages can be cached are defined by their modules.
+	 */
+	@Test
+	public void isEnabled() {
+
+		EasyMock.expect(tapestryCrudModuleService.isPageCacheEnabled(String.class)).andReturn(true);
+		EasyMock.expect(tapestryCrudModuleService.isPageCacheEnabled(Integer.class)).andReturn(
+				false);
+		EasyMock.replay(tapestryCrudModuleService);
+
+		assert pageCache.isEnabled(String.class);
+		assert pageCache.isEnabled(Integer.class) == false;
+
+		EasyMock.verify(tapestryCrudModuleService);
+
+	}
+
+	private void put(Class<?> entityClass, String key) {
+		pageCache.put(entityClass, key, key, pageCache.getVersion(entityClass));
+	}
+
+}
@@ -0,0 +1,209 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.services.impl;
+
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import br.com.arsmachina.dao.SortCriterion;
+import br.com.arsmachina.tapestrycrud.grid.PagedSearch;
+
+/**
+ * Test class for {@link RowCountCacheImpl}.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class RowCountCacheImplTest {
+
+	private static final long ONE_HOUR = 60 * 60 * 1000;
+
+	private CountingSearch search;
+
+	@BeforeMethod
+	public void setUp() {
+		search = new CountingSearch(10);
+	}
+
+	/**
+	 * Tests whether the count is done once and then served from the cache.
+	 */
+	@Test
+	public void cachedCount() {
+
+		final RowCountCacheImpl cache = new RowCountCacheImpl(ONE_HOUR);
+
+		assert cache.getCount(String.class, search) == 10;
+		assert cache.getCount(String.class, search) == 10;
+		assert search.counts == 1;
+
+		// each entity class has its own count.
+		assert cache.getCount(Integer.class, search) == 10;
+		assert search.counts == 2;
+
+	}
+
+	/**
+	 * Tests whether inserted objects increment the cached count, but updated ones don't.
+	 */
+	@Test
+	public void increment() {
+
+		final RowCountCacheImpl cache = new RowCountCacheImpl(ONE_HOUR);
+		cache.getCount(String.class, search);
+
+		cache.objectSaved(String.class, "a", true);
+		cache.objectSaved(String.class, "b", true);
+		cache.objectSaved(String.class, "a", false);
+
+		assert cache.getCount(String.class, search) == 12;
+		assert search.counts == 1;
+
+	}
+
+	/**
+	 * Tests whether removed objects decrement the cached count.
+	 */
+	@Test
+	public void decrement() {
+
+		final RowCountCacheImpl cache = new RowCountCacheImpl(ONE_HOUR);
+		cache.getCount(String.class, search);
+
+		cache.objectRemoved(String.class, "a");
+
+		assert cache.getCount(String.class, search) == 9;
+		assert search.counts == 1;
+
+	}
+
+	/**
+	 * Tests whether a count that would become negative is discarded and recounted.
+	 */
+	@Test
+	public void negativeCount() {
+
+		search = new CountingSearch(0);
+
+		final RowCountCacheImpl cache = new RowCountCacheImpl(ONE_HOUR);
+		cache.getCount(String.class, search);
+
+		cache.objectRemoved(String.class, "a");
+
+		assert cache.getCount(String.class, search) == 0;
+		assert search.counts == 2;
+
+	}
+
+	/**
+	 * Tests whether changes to classes without a cached count are ignored.
+	 */
+	@Test
+	public void changesWithoutCachedCount() {
+
+		final RowCountCacheImpl cache = new RowCountCacheImpl(ONE_HOUR);
+
+		cache.objectSaved(String.class, "a", true);
+		cache.objectRemoved(String.class, "b");
+
+		assert cache.getCount(String.class, search) == 10;
+		assert search.counts == 1;
+
+	}
+
+	/**
+	 * Tests whether counts older than the maximum age are recounted.
+	 */
+	@Test
+	public void expiry() throws InterruptedException {
+
+		final RowCountCacheImpl cache = new RowCountCacheImpl(1);
+		cache.getCount(String.class, search);
+
+		Thread.sleep(20);
+		search.count = 15;
+
+		assert cache.getCount(String.class, search) == 15;
+		assert search.counts == 2;
+
+	}
+
+	/**
+	 * Tests whether nothing is cached when the maximum age is not positive.
+	 */
+	@Test
+	public void disabled() {
+
+		final RowCountCacheImpl cache = new RowCountCacheImpl(0);
+
+		cache.getCount(String.class, search);
+		cache.setCount(String.class, 5);
+		cache.objectSaved(String.class, "a", true);
+
+		assert cache.getCount(String.class, search) == 10;
+		assert search.counts == 2;
+
+	}
+
+	/**
+	 * Tests whether refreshed counts are recounted and stored counts are used.
+	 */
+	@Test
+	public void refreshAndSetCount() {
+
+		final RowCountCacheImpl cache = new RowCountCacheImpl(ONE_HOUR);
+		cache.getCount(String.class, search);
+		cache.getCount(Integer.class, search);
+
+		cache.refresh(String.class);
+		assert cache.getCount(String.class, search) == 10;
+		assert search.counts == 3;
+
+		cache.refreshAll();
+		cache.setCount(Integer.class, 7);
+
+		assert cache.getCount(Integer.class, search) == 7;
+		assert cache.getCount(String.class, search) == 10;
+		assert search.counts == 4;
+
+	}
+
+	/**
+	 * A {@link PagedSearch} that counts how many times its objects were counted.
+	 */
+	final private static class CountingSearch implements PagedSearch<Object> {
+
+		private int count;
+
+		private int counts;
+
+		public CountingSearch(int count) {
+			this.count = count;
+		}
+
+		public int count() {
+			counts++;
+			return count;
+		}
+
+		public List<Object> search(int firstIndex, int maximumResults,
+				SortCriterion... sortingConstraints) {
+			throw new UnsupportedOperationException();
+		}
+
+	}
+
+}
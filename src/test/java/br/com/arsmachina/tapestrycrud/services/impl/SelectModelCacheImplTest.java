@@ -0,0 +1,146 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.services.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.tapestry5.OptionModel;
+import org.apache.tapestry5.SelectModel;
+import org.easymock.EasyMock;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import br.com.arsmachina.tapestrycrud.selectmodel.SimpleOptionModel;
+import br.com.arsmachina.tapestrycrud.selectmodel.SimpleSelectModel;
+import br.com.arsmachina.tapestrycrud.services.TapestryCrudModuleService;
+
+/**
+ * Test class for {@link SelectModelCacheImpl}.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class SelectModelCacheImplTest {
+
+	private static final long ONE_HOUR = 60 * 60 * 1000;
+
+	private TapestryCrudModuleService tapestryCrudModuleService;
+
+	private SelectModelCacheImpl selectModelCache;
+
+	@BeforeMethod
+	public void setUp() {
+
+		tapestryCrudModuleService = EasyMock.createMock(TapestryCrudModuleService.class);
+		EasyMock.expect(tapestryCrudModuleService.getSelectModelCacheMaximumAge(
+				(Class<?>) EasyMock.anyObject())).andReturn(-1L).anyTimes();
+		EasyMock.replay(tapestryCrudModuleService);
+
+		selectModelCache = new SelectModelCacheImpl(tapestryCrudModuleService, 2, ONE_HOUR);
+
+	}
+
+	/**
+	 * Tests whether cached models are returned for the same type only.
+	 */
+	@Test
+	public void putAndGet() {
+
+		final SelectModel model = createModel(2);
+		selectModelCache.put(Integer.class, model, selectModelCache.getVersion(Integer.class));
+
+		assert selectModelCache.isEnabled(Integer.class);
+		assert selectModelCache.get(Integer.class) == model;
+		assert selectModelCache.get(String.class) == null;
+
+	}
+
+	/**
+	 * Tests whether models larger than the maximum size are not cached.
+	 */
+	@Test
+	public void tooLarge() {
+
+		selectModelCache.put(Integer.class, createModel(3),
+				selectModelCache.getVersion(Integer.class));
+
+		assert selectModelCache.get(Integer.class) == null;
+
+	}
+
+	/**
+	 * Tests whether a model created before an invalidation is not cached, as it may be stale.
+	 */
+	@Test
+	public void staleVersion() {
+
+		final long version = selectModelCache.getVersion(Integer.class);
+
+		// an object is saved while the model is created.
+		selectModelCache.objectSaved(Integer.class, 1, false);
+		selectModelCache.put(Integer.class, createModel(1), version);
+
+		assert selectModelCache.get(Integer.class) == null;
+
+	}
+
+	/**
+	 * Tests whether removing an object discards the models of its type, its superclasses and
+	 * its subclasses only.
+	 */
+	@Test
+	public void invalidateRelatedTypes() {
+
+		final SelectModel model = createModel(1);
+		selectModelCache.put(Number.class, model, selectModelCache.getVersion(Number.class));
+		selectModelCache.put(Integer.class, model, selectModelCache.getVersion(Integer.class));
+		selectModelCache.put(String.class, model, selectModelCache.getVersion(String.class));
+
+		selectModelCache.objectRemoved(Integer.class, 1);
+
+		assert selectModelCache.get(Number.class) == null;
+		assert selectModelCache.get(Integer.class) == null;
+		assert selectModelCache.get(String.class) == model;
+
+	}
+
+	/**
+	 * Tests whether nothing is cached when the maximum age is zero.
+	 */
+	@Test
+	public void disabled() {
+
+		selectModelCache = new SelectModelCacheImpl(tapestryCrudModuleService, 2, 0);
+		selectModelCache.put(Integer.class, createModel(1),
+				selectModelCache.getVersion(Integer.class));
+
+		assert selectModelCache.isEnabled(Integer.class) == false;
+		assert selectModelCache.get(Integer.class) == null;
+
+	}
+
+	private static SelectModel createModel(int size) {
+
+		final List<OptionModel> options = new ArrayList<OptionModel>();
+
+		for (int i = 0; i < size; i++) {
+			options.add(new SimpleOptionModel(i, String.valueOf(i)));
+		}
+
+		return new SimpleSelectModel(options);
+
+	}
+
+}
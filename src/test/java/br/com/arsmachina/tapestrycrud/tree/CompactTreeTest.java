@@ -0,0 +1,223 @@
+// Copyright 2009 Thiago H. de Paula Figueiredo
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package br.com.arsmachina.tapestrycrud.tree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tapestry5.PrimaryKeyEncoder;
+import org.easymock.EasyMock;
+import org.testng.annotations.Test;
+
+/**
+ * Test class for {@link CompactTree}.
+ * 
+ * @author Thiago H. de Paula Figueiredo
+ */
+public class CompactTreeTest {
+
+	/**
+	 * Tests the tree order, levels, parents and children of a small forest:
+	 * <code>a(b, c), d(e)</code>.
+	 */
+	@Test
+	public void structure() {
+
+		final Map<String, List<String>> childrenMap = new HashMap<String, List<String>>();
+		put(childrenMap, null, "a", "d");
+		put(childrenMap, "a", "b", "c");
+		put(childrenMap, "b");
+		put(childrenMap, "d", "e");
+
+		final CompactTree<String> tree = new CompactTree<String>(String.class, childrenMap);
+
+		assertObjects(tree, "a", "b", "c", "d", "e");
+		assert tree.getType() == String.class;
+
+		assert tree.getRootCount() == 2;
+		assert tree.getRoot(0) == 0;
+		assert tree.getRoot(1) == 3;
+
+		final int[] levels = { 1, 2, 2, 1, 2 };
+		final int[] parents = { -1, 0, 0, -1, 3 };
+
+		for (int i = 0; i < levels.length; i++) {
+			assert tree.getLevel(i) == levels[i];
+			assert tree.getParent(i) == parents[i];
+		}
+
+		assert tree.getChildCount(0) == 2;
+		assert tree.getChild(0, 0) == 1;
+		assert tree.getChild(0, 1) == 2;
+		assert tree.hasChildren(1) == false;
+		assert tree.hasChildren(2) == false;
+		assert tree.getChildCount(3) == 1;
+		assert tree.getChild(3, 0) == 4;
+		assert tree.hasChildren(4) == false;
+
+	}
+
+	/**
+	 * Tests an empty tree.
+	 */
+	@Test
+	public void empty() {
+
+		final CompactTree<String> tree =
+			new CompactTree<String>(String.class, new HashMap<String, List<String>>());
+
+		assert tree.size() == 0;
+		assert tree.getRootCount() == 0;
+		assert tree.indexOf("a") == -1;
+
+	}
+
+	/**
+	 * Tests the lookup of objects by <code>equals()</code>.
+	 */
+	@Test
+	public void indexOfByEquality() {
+
+		final Map<String, List<String>> childrenMap = new HashMap<String, List<String>>();
+		put(childrenMap, null, "a");
+		put(childrenMap, "a", "b", "c");
+
+		final CompactTree<String> tree = new CompactTree<String>(String.class, childrenMap);
+
+		assert tree.indexOf("a") == 0;
+		assert tree.indexOf(new String("c")) == 2;
+		assert tree.indexOf("x") == -1;
+		assert tree.indexOf(null) == -1;
+
+	}
+
+	/**
+	 * Tests the lookup of objects by primary key, with instances other than the ones in the tree.
+	 */
+	@SuppressWarnings("unchecked")
+	@Test
+	public void indexOfByPrimaryKey() {
+
+		final Item root = new Item(1);
+		final Item child = new Item(2);
+
+		// other instances of the same objects, as if loaded in another session.
+		final Item rootCopy = new Item(1);
+		final Item childCopy = new Item(2);
+		final Item other = new Item(3);
+		final Item unsaved = new Item(null);
+
+		final Map<Item, List<Item>> childrenMap = new HashMap<Item, List<Item>>();
+		put(childrenMap, null, root);
+		put(childrenMap, root, child);
+
+		final PrimaryKeyEncoder<Integer, Item> encoder =
+			EasyMock.createMock(PrimaryKeyEncoder.class);
+
+		for (Item item : Arrays.asList(root, child, rootCopy, childCopy, other, unsaved)) {
+			EasyMock.expect(encoder.toKey(item)).andReturn(item.id).anyTimes();
+		}
+
+		EasyMock.replay(encoder);
+
+		final CompactTree<Item> byEquality = new CompactTree<Item>(Item.class, childrenMap);
+		final CompactTree<Item> byKey = new CompactTree<Item>(byEquality, encoder);
+
+		// items use identity, as entities loaded in different sessions.
+		assert byEquality.indexOf(childCopy) == -1;
+
+		assert byKey.size() == 2;
+		assert byKey.getObject(1) == child;
+		assert byKey.indexOf(rootCopy) == 0;
+		assert byKey.indexOf(childCopy) == 1;
+		assert byKey.indexOf(other) == -1;
+
+		// objects that were never saved have no primary key.
+		assert byKey.indexOf(unsaved) == -1;
+
+	}
+
+	/**
+	 * Tests whether objects listed more than once are added only the first time they're reached.
+	 */
+	@Test
+	public void duplicates() {
+
+		final Map<String, List<String>> childrenMap = new HashMap<String, List<String>>();
+		put(childrenMap, null, "a", "a");
+		put(childrenMap, "a", "b", "c", "b");
+		put(childrenMap, "b", "c");
+
+		final CompactTree<String> tree = new CompactTree<String>(String.class, childrenMap);
+
+		assertObjects(tree, "a", "b", "c");
+		assert tree.getRootCount() == 1;
+		assert tree.getChildCount(0) == 1;
+		assert tree.getParent(2) == 1;
+		assert tree.getLevel(2) == 3;
+		assert tree.indexOf("c") == 2;
+
+	}
+
+	/**
+	 * Tests whether cycles don't loop and unreachable objects are left out.
+	 */
+	@Test
+	public void cycles() {
+
+		final Map<String, List<String>> childrenMap = new HashMap<String, List<String>>();
+		put(childrenMap, null, "a");
+		put(childrenMap, "a", "b");
+		put(childrenMap, "b", "a");
+		put(childrenMap, "x", "y");
+		put(childrenMap, "y", "x");
+
+		final CompactTree<String> tree = new CompactTree<String>(String.class, childrenMap);
+
+		assertObjects(tree, "a", "b");
+		assert tree.hasChildren(1) == false;
+		assert tree.indexOf("x") == -1;
+
+	}
+
+	private static void assertObjects(CompactTree<String> tree, String... expected) {
+
+		assert tree.size() == expected.length;
+
+		for (int i = 0; i < expected.length; i++) {
+			assert expected[i].equals(tree.getObject(i));
+			assert tree.indexOf(expected[i]) == i;
+		}
+
+	}
+
+	private static <T> void put(Map<T, List<T>> childrenMap, T parent, T... children) {
+		childrenMap.put(parent, new ArrayList<T>(Arrays.asList(children)));
+	}
+
+	final private static class Item {
+
+		final private Integer id;
+
+		public Item(Integer id) {
+			this.id = id;
+		}
+
+	}
+
+}